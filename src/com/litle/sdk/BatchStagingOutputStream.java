@@ -0,0 +1,177 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Properties;
+
+/**
+ * The stream a LitleBatchRequest stages its marshalled transactions in until the request file is assembled.  Bytes
+ * are gathered in a buffer and written to the file's channel when it fills, instead of one write call per
+ * transaction.
+ *
+ *	Optional properties are:
+ *	batchStagingBufferSize (in bytes - defaults to 65536; 0 writes every transaction straight to the file)
+ *	batchStagingDirectBuffer (possible values "true" and "false" - defaults to false)
+ *	batchStagingSync (when the file is forced to disk: "never", "batch" when the batch is closed, or a number of
+ *	transactions - defaults to never)
+ */
+class BatchStagingOutputStream extends OutputStream {
+
+	static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private static final int SYNC_NEVER = 0;
+	private static final int SYNC_PER_BATCH = -1;
+
+	private final FileOutputStream file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer;
+	private final int syncEvery;
+	private int transactionsSinceSync;
+	private boolean closed;
+
+	/**
+	 * @param target the file to stage into, truncated if it exists
+	 * @param bufferSize 0 for no buffering
+	 * @param directBuffer whether the buffer is allocated outside the heap
+	 * @param syncEvery force the file to disk after this many transactions; 0 for never, -1 only when closed
+	 * @throws FileNotFoundException
+	 */
+	BatchStagingOutputStream(File target, int bufferSize, boolean directBuffer, int syncEvery) throws FileNotFoundException {
+		this.file = new FileOutputStream(target);
+		this.channel = file.getChannel();
+		if (bufferSize <= 0) {
+			this.buffer = null;
+		} else {
+			this.buffer = directBuffer ? ByteBuffer.allocateDirect(bufferSize) : ByteBuffer.allocate(bufferSize);
+		}
+		this.syncEvery = syncEvery;
+	}
+
+	/**
+	 * Opens a staging stream with the batchStaging settings in the configuration.
+	 */
+	static BatchStagingOutputStream open(File target, Properties config) throws FileNotFoundException {
+		int bufferSize = Integer.parseInt(config.getProperty("batchStagingBufferSize", String.valueOf(DEFAULT_BUFFER_SIZE)));
+		boolean directBuffer = "true".equalsIgnoreCase(config.getProperty("batchStagingDirectBuffer"));
+		return new BatchStagingOutputStream(target, bufferSize, directBuffer, syncPolicy(config.getProperty("batchStagingSync")));
+	}
+
+	private static int syncPolicy(String value) {
+		if (value == null || value.length() == 0 || value.equalsIgnoreCase("never")) {
+			return SYNC_NEVER;
+		}
+		if (value.equalsIgnoreCase("batch")) {
+			return SYNC_PER_BATCH;
+		}
+		try {
+			int every = Integer.parseInt(value);
+			if (every > 0) {
+				return every;
+			}
+		} catch (NumberFormatException e) {
+			// reported below
+		}
+		throw new LitleBatchException("batchStagingSync must be \"never\", \"batch\" or a positive number of transactions, not " + value);
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		if (buffer == null) {
+			file.write(b);
+			return;
+		}
+		if (!buffer.hasRemaining()) {
+			drainBuffer();
+		}
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (buffer == null) {
+			file.write(b, off, len);
+			return;
+		}
+		if (len > buffer.remaining()) {
+			drainBuffer();
+		}
+		if (len >= buffer.capacity()) {
+			writeFully(ByteBuffer.wrap(b, off, len));
+		} else {
+			buffer.put(b, off, len);
+		}
+	}
+
+	/**
+	 * Marks the end of a transaction, forcing the file to disk if the sync policy asks for it.
+	 * @throws IOException
+	 */
+	void transactionWritten() throws IOException {
+		transactionsWritten(1);
+	}
+
+	/**
+	 * Marks the end of a number of transactions written together.
+	 * @param count
+	 * @throws IOException
+	 */
+	void transactionsWritten(int count) throws IOException {
+		transactionsSinceSync += count;
+		if (syncEvery > 0 && transactionsSinceSync >= syncEvery) {
+			sync();
+		}
+	}
+
+	/**
+	 * Writes out the buffer and forces the file's contents to disk.
+	 * @throws IOException
+	 */
+	void sync() throws IOException {
+		drainBuffer();
+		channel.force(false);
+		transactionsSinceSync = 0;
+	}
+
+	@Override
+	public void flush() throws IOException {
+		drainBuffer();
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		try {
+			if (syncEvery != SYNC_NEVER) {
+				sync();
+			} else {
+				drainBuffer();
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+	private void drainBuffer() throws IOException {
+		if (buffer == null || buffer.position() == 0) {
+			return;
+		}
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer bytes) throws IOException {
+		while (bytes.hasRemaining()) {
+			channel.write(bytes);
+		}
+	}
+
+}
@@ -1,10 +1,20 @@
 package com.litle.sdk;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
 import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
 
 import net.sf.opensftp.SftpException;
 import net.sf.opensftp.SftpResult;
@@ -17,68 +27,333 @@ import org.apache.http.HttpHost;
 import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.conn.params.ConnRoutePNames;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.DefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.impl.conn.SchemeRegistryFactory;
 import org.apache.http.params.CoreConnectionPNames;
+import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.util.EntityUtils;
 
+import com.litle.sdk.generate.LitleOnlineRequest;
+
 public class Communication {
 
+	private static final int DEFAULT_MAX_CONNECTIONS = 20;
+	private static final long DEFAULT_IDLE_CONNECTION_TIMEOUT = 60;
+	private static final long IDLE_CONNECTION_SWEEP_INTERVAL = 5000;
+
 	private DefaultHttpClient httpclient;
 	private StreamData streamData;
+	private PoolingClientConnectionManager connectionManager;
+	private boolean keepAlive;
+	private long idleConnectionTimeout;
+	private volatile long lastIdleConnectionSweep;
 
 	public Communication() {
 		httpclient = new DefaultHttpClient();
 		streamData = new StreamData();
 	}
 
-	public String requestToServer(String xmlRequest, Properties configuration) {
-		String xmlResponse = null;
-		String proxyHost = configuration.getProperty("proxyHost");
-		String proxyPort = configuration.getProperty("proxyPort");
-		if (proxyHost != null && proxyHost.length() > 0 && proxyPort != null
-				&& proxyHost.length() > 0) {
-			HttpHost proxy = new HttpHost(proxyHost, Integer.valueOf(proxyPort));
+	/**
+	 * Construct a Communication using the http transport settings in the configuration.  Connections come from a
+	 * bounded pool, so the instance can be shared between threads.  When keepAlive is "true" the online requests
+	 * reuse persistent connections; otherwise every request closes its connection, as with Communication().
+	 *
+	 *	Optional properties are:
+	 *	keepAlive (possible values "true" and "false" - defaults to false)
+	 *	maxConnections (defaults to 20)
+	 *	maxConnectionsPerRoute (defaults to maxConnections)
+	 *	idleConnectionTimeout (in seconds - defaults to 60)
+	 *	staleConnectionCheck (possible values "true" and "false" - defaults to true)
+	 *	timeout (in seconds - the connect and socket read timeout, none when unset)
+	 *
+	 * @param configuration
+	 */
+	public Communication(Properties configuration) {
+		streamData = new StreamData();
+		keepAlive = "true".equalsIgnoreCase(configuration.getProperty("keepAlive"));
+		int maxConnections = Integer.parseInt(configuration.getProperty("maxConnections", String.valueOf(DEFAULT_MAX_CONNECTIONS)));
+		int maxConnectionsPerRoute = Integer.parseInt(configuration.getProperty("maxConnectionsPerRoute", String.valueOf(maxConnections)));
+		idleConnectionTimeout = Long.parseLong(configuration.getProperty("idleConnectionTimeout", String.valueOf(DEFAULT_IDLE_CONNECTION_TIMEOUT)));
+		boolean staleConnectionCheck = !"false".equalsIgnoreCase(configuration.getProperty("staleConnectionCheck"));
+
+		connectionManager = new PoolingClientConnectionManager(SchemeRegistryFactory.createDefault());
+		connectionManager.setMaxTotal(maxConnections);
+		connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+		lastIdleConnectionSweep = System.currentTimeMillis();
+
+		httpclient = new DefaultHttpClient(connectionManager);
+		HttpConnectionParams.setStaleCheckingEnabled(httpclient.getParams(), staleConnectionCheck);
+		String timeout = configuration.getProperty("timeout");
+		if (timeout != null && timeout.length() > 0) {
+			int timeoutMillis = Integer.parseInt(timeout) * 1000;
+			HttpConnectionParams.setConnectionTimeout(httpclient.getParams(), timeoutMillis);
+			HttpConnectionParams.setSoTimeout(httpclient.getParams(), timeoutMillis);
+		}
+		// The pooled client is shared by many threads, so the proxy is fixed when the pool is built.
+		HttpHost proxy = proxyFromConfig(configuration);
+		if (proxy != null) {
 			httpclient.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
-			httpclient.getParams().setParameter(CoreConnectionPNames.SO_LINGER, 0);
+		}
+	}
+
+	/**
+	 * Whether requests are sent over persistent connections.
+	 * @return true if this instance was configured with keepAlive=true
+	 */
+	public boolean isKeepAlive() {
+		return keepAlive;
+	}
+
+	/**
+	 * Closes every pooled connection.  The instance must not be used afterwards.
+	 */
+	public void shutdown() {
+		httpclient.getConnectionManager().shutdown();
+	}
+
+	public String requestToServer(String xmlRequest, Properties configuration) {
+		return post(stringEntity(xmlRequest, configuration), configuration, new StringEntityReader(configuration));
+	}
+
+	/**
+	 * Sends an online request without building it as a String first: the marshaller writes it straight into the
+	 * connection as UTF-8.  When printxml is on the request is marshalled to a buffer so that it can be printed.
+	 * @param request
+	 * @param marshaller used only for the duration of the call
+	 * @param configuration
+	 * @return the response xml
+	 */
+	public String requestToServer(LitleOnlineRequest request, Marshaller marshaller, Properties configuration) {
+		return post(marshallingEntity(request, marshaller, configuration), configuration, new StringEntityReader(configuration));
+	}
+
+	/**
+	 * Sends an online request and hands the body of the response to the handler as it arrives, rather than reading
+	 * it into a String first.  When printxml is on the bytes the handler reads are copied aside and printed.
+	 * @param xmlRequest
+	 * @param configuration
+	 * @param handler called once, before the connection is released
+	 * @return what the handler returned
+	 */
+	public <T> T requestToServer(String xmlRequest, Properties configuration, ResponseStreamHandler<T> handler) {
+		return post(stringEntity(xmlRequest, configuration), configuration, new StreamEntityReader<T>(handler, configuration));
+	}
+
+	/**
+	 * Streams both ways: the request as in {@link #requestToServer(LitleOnlineRequest, Marshaller, Properties)} and
+	 * the response as in {@link #requestToServer(String, Properties, ResponseStreamHandler)}.
+	 * @param request
+	 * @param marshaller used only for the duration of the call
+	 * @param configuration
+	 * @param handler called once, before the connection is released
+	 * @return what the handler returned
+	 */
+	public <T> T requestToServer(LitleOnlineRequest request, Marshaller marshaller, Properties configuration, ResponseStreamHandler<T> handler) {
+		return post(marshallingEntity(request, marshaller, configuration), configuration, new StreamEntityReader<T>(handler, configuration));
+	}
+
+	private HttpEntity stringEntity(String xmlRequest, Properties configuration) {
+		if (isPrintxml(configuration)) {
+			System.out.println("Request XML: " + xmlRequest);
+		}
+		try {
+			return new StringEntity(xmlRequest);
+		} catch (UnsupportedEncodingException e) {
+			throw new LitleOnlineException("Exception connection to Litle", e);
+		}
+	}
+
+	private HttpEntity marshallingEntity(LitleOnlineRequest request, Marshaller marshaller, Properties configuration) {
+		if (!isPrintxml(configuration)) {
+			return new MarshallingEntity(request, marshaller);
+		}
+		try {
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			marshaller.marshal(request, buffer);
+			System.out.println("Request XML: " + buffer.toString("UTF-8"));
+			ByteArrayEntity bufferedEntity = new ByteArrayEntity(buffer.toByteArray());
+			bufferedEntity.setContentType("text/xml; charset=UTF-8");
+			return bufferedEntity;
+		} catch (JAXBException e) {
+			throw new LitleOnlineException("Error validating xml data against the schema", e);
+		} catch (UnsupportedEncodingException e) {
+			throw new LitleOnlineException("Exception connection to Litle", e);
+		}
+	}
+
+	private <T> T post(HttpEntity requestEntity, Properties configuration, EntityReader<T> reader) {
+		if (connectionManager == null) {
+			HttpHost proxy = proxyFromConfig(configuration);
+			if (proxy != null) {
+				httpclient.getParams().setParameter(ConnRoutePNames.DEFAULT_PROXY, proxy);
+				httpclient.getParams().setParameter(CoreConnectionPNames.SO_LINGER, 0);
+			}
+		} else if (keepAlive) {
+			evictIdleConnections();
 		}
 
 		HttpPost post = new HttpPost(configuration.getProperty("url"));
 		post.setHeader("Content-Type", "text/xml");
-		post.setHeader("Connection","close");
+		if (!keepAlive) {
+			post.setHeader("Connection","close");
+		}
 		HttpEntity entity = null;
 		try {
-			boolean printxml = configuration.getProperty("printxml") != null
-					&& configuration.getProperty("printxml").equalsIgnoreCase(
-							"true");
-			if (printxml) {
-				System.out.println("Request XML: " + xmlRequest);
-			}
-			post.setEntity(new StringEntity(xmlRequest));
+			post.setEntity(requestEntity);
 
+			if (Thread.currentThread().isInterrupted()) {
+				throw new LitleOnlineException("Request to Litle was cancelled before it was sent");
+			}
 			HttpResponse response = httpclient.execute(post);
 			if(response.getStatusLine().getStatusCode() != 200) {
 				throw new LitleOnlineException(response.getStatusLine().getStatusCode() + ":" + response.getStatusLine().getReasonPhrase());
 			}
 			entity = response.getEntity();
-			xmlResponse = EntityUtils.toString(entity);
-
-			if (printxml) {
-				System.out.println("Response XML: " + xmlResponse);
-			}
+			return reader.read(entity);
 		} catch (IOException e) {
+			if (e.getCause() instanceof JAXBException) {
+				// thrown by a MarshallingEntity part way through writing the request
+				throw new LitleOnlineException("Error validating xml data against the schema", (JAXBException) e.getCause());
+			}
 			throw new LitleOnlineException("Exception connection to Litle", e);
 		} finally {
 			if(entity != null) {
 				EntityUtils.consumeQuietly(entity);
 			}
-			post.abort();
+			if (!keepAlive) {
+				post.abort();
+			} else {
+				// hands a fully consumed connection back to the pool, and discards it otherwise
+				post.releaseConnection();
+			}
+		}
+	}
+
+	/**
+	 * Turns the body of a successful response into the value requestToServer returns.
+	 */
+	private interface EntityReader<T> {
+		T read(HttpEntity entity) throws IOException;
+	}
+
+	private static class StringEntityReader implements EntityReader<String> {
+		private final Properties configuration;
+
+		StringEntityReader(Properties configuration) {
+			this.configuration = configuration;
+		}
+
+		public String read(HttpEntity entity) throws IOException {
+			String xmlResponse = EntityUtils.toString(entity);
+			if (isPrintxml(configuration)) {
+				System.out.println("Response XML: " + xmlResponse);
+			}
+			return xmlResponse;
+		}
+	}
+
+	private static class StreamEntityReader<T> implements EntityReader<T> {
+		private final ResponseStreamHandler<T> handler;
+		private final Properties configuration;
+
+		StreamEntityReader(ResponseStreamHandler<T> handler, Properties configuration) {
+			this.handler = handler;
+			this.configuration = configuration;
+		}
+
+		public T read(HttpEntity entity) throws IOException {
+			if (!isPrintxml(configuration)) {
+				return handler.handleResponse(entity.getContent());
+			}
+			ByteArrayOutputStream copy = new ByteArrayOutputStream();
+			try {
+				return handler.handleResponse(new TeeInputStream(entity.getContent(), copy));
+			} finally {
+				Charset charset = ContentType.getOrDefault(entity).getCharset();
+				System.out.println("Response XML: " + copy.toString(charset != null ? charset.name() : "UTF-8"));
+			}
+		}
+	}
+
+	/**
+	 * Copies every byte read through it to a second stream.
+	 */
+	private static class TeeInputStream extends FilterInputStream {
+		private final OutputStream copy;
+
+		TeeInputStream(InputStream in, OutputStream copy) {
+			super(in);
+			this.copy = copy;
+		}
+
+		@Override
+		public int read() throws IOException {
+			int b = super.read();
+			if (b != -1) {
+				copy.write(b);
+			}
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			int n = super.read(b, off, len);
+			if (n > 0) {
+				copy.write(b, off, n);
+			}
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException {
+			// read rather than skip so that the copy has every byte
+			byte[] buffer = new byte[(int) Math.min(n, 4096)];
+			int read = read(buffer, 0, buffer.length);
+			return read < 0 ? 0 : read;
+		}
+
+		@Override
+		public boolean markSupported() {
+			return false;
+		}
+	}
+
+	private static boolean isPrintxml(Properties configuration) {
+		return configuration.getProperty("printxml") != null
+				&& configuration.getProperty("printxml").equalsIgnoreCase("true");
+	}
+
+	private HttpHost proxyFromConfig(Properties configuration) {
+		String proxyHost = configuration.getProperty("proxyHost");
+		String proxyPort = configuration.getProperty("proxyPort");
+		if (proxyHost != null && proxyHost.length() > 0 && proxyPort != null
+				&& proxyPort.length() > 0) {
+			return new HttpHost(proxyHost, Integer.valueOf(proxyPort));
+		}
+		return null;
+	}
+
+	/**
+	 * Drops pooled connections the server has expired or that have sat idle too long, at most once per sweep interval.
+	 */
+	private void evictIdleConnections() {
+		long now = System.currentTimeMillis();
+		if (now - lastIdleConnectionSweep < IDLE_CONNECTION_SWEEP_INTERVAL) {
+			return;
 		}
-		return xmlResponse;
+		lastIdleConnectionSweep = now;
+		connectionManager.closeExpiredConnections();
+		connectionManager.closeIdleConnections(idleConnectionTimeout, TimeUnit.SECONDS);
 	}
 
 	/**
-	 * This method is exclusively used for sending batch file to the communicator.
+	 * This method is exclusively used for sending batch file to the communicator.  The sizes of the socket's buffers
+	 * can be set in bytes with batchSocketSendBufferSize and batchSocketReceiveBufferSize; by default they are left
+	 * to the operating system.
 	 * @param requestFile
 	 * @param responseFile
 	 * @param configuration
@@ -90,7 +365,9 @@ public class Communication {
 		int tcpTimeout = Integer.parseInt(configuration.getProperty("batchTcpTimeout"));
 		boolean useSSL = configuration.getProperty("batchUseSSL") != null
 				&& configuration.getProperty("batchUseSSL").equalsIgnoreCase("true");
-		streamData.init(hostName, hostPort, tcpTimeout, useSSL);
+		int sendBufferSize = Integer.parseInt(configuration.getProperty("batchSocketSendBufferSize", "0"));
+		int receiveBufferSize = Integer.parseInt(configuration.getProperty("batchSocketReceiveBufferSize", "0"));
+		streamData.init(hostName, hostPort, tcpTimeout, useSSL, sendBufferSize, receiveBufferSize);
 
 		streamData.dataOut(requestFile);
 
@@ -166,8 +443,9 @@ public class Communication {
             try {
                 Thread.sleep(45000);
             } catch (InterruptedException e) {
-                // TODO Auto-generated catch block
-                e.printStackTrace();
+                util.disconnect(session);
+                Thread.currentThread().interrupt();
+                throw new LitleBatchException("Interrupted while waiting for the response file on sFTP", e);
             }
             SftpResult res = util.get(session, "outbound/" + requestFile.getName() + ".asc", responseFile.getAbsolutePath());
             if(res.getSuccessFlag()) {
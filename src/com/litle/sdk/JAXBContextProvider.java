@@ -0,0 +1,32 @@
+package com.litle.sdk;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Holds the single JAXBContext for com.litle.sdk.generate.  Building the context is expensive and a JAXBContext is
+ * thread-safe, so every online, batch and RFR class shares this one.  It is built the first time it is asked for.
+ */
+final class JAXBContextProvider {
+
+	private static final String CONTEXT_PATH = "com.litle.sdk.generate";
+
+	private static volatile JAXBContext context;
+
+	private JAXBContextProvider() {
+	}
+
+	static JAXBContext getContext() throws JAXBException {
+		JAXBContext result = context;
+		if (result == null) {
+			synchronized (JAXBContextProvider.class) {
+				result = context;
+				if (result == null) {
+					result = JAXBContext.newInstance(CONTEXT_PATH);
+					context = result;
+				}
+			}
+		}
+		return result;
+	}
+}
@@ -0,0 +1,26 @@
+package com.litle.sdk;
+
+/**
+ * Implement this interface to be told when each batch of a response file processed with
+ * LitleBatchFileResponse.processBatchesInParallel has been read.  The methods are called on the thread that read the
+ * batch, so several may run at the same time.
+ */
+public interface LitleBatchCompletionListener {
+
+	/**
+	 * Called once every transaction of the batch has been handed to the LitleResponseProcessor.
+	 * @param batchIndex the position of the batch in the response file, starting at 0
+	 * @param batchResponse
+	 * @param transactionCount the number of transactions processed
+	 */
+	void batchCompleted(int batchIndex, LitleBatchResponse batchResponse, int transactionCount);
+
+	/**
+	 * Called when the batch could not be read to its end.  Transactions read before the failure have already been
+	 * processed.
+	 * @param batchIndex the position of the batch in the response file, starting at 0
+	 * @param e
+	 */
+	void batchFailed(int batchIndex, RuntimeException e);
+
+}
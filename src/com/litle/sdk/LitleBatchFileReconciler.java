@@ -0,0 +1,332 @@
+package com.litle.sdk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Matches every transaction of a request file to its response in the response file, and reports any request
+ * without a response, response without a request, duplicate, or response of the wrong kind to a
+ * LitleReconciliationListener.  Requests and responses are matched by their id attribute, orderId and reportGroup
+ * together.
+ *
+ * The files can be larger than the heap, so nothing is unmarshalled and the two are joined by a partitioned hash
+ * join on disk.  One byte-level pass over each file (see MappedResponseFile) writes a 24 byte record of every
+ * transaction -- a 64 bit hash of its key, the offset of its start tag and a hash of its kind -- to one of a number
+ * of partition files chosen by the key's hash.  Each partition of requests is then loaded into primitive arrays and
+ * an open-addressing hash table, and the responses of the same partition are streamed past it.  Only the problems
+ * found are read back from the files, to report their names and keys.  Two different keys are taken to match if
+ * their 64 bit hashes are equal, which for a million transactions happens about once in 30 million files.
+ */
+public class LitleBatchFileReconciler {
+
+	private static final int RECORD_SIZE = 24;
+	private static final int DEFAULT_PARTITIONS = 64;
+	private static final String NO_VALUE = "\u0001";
+
+	private static final byte[] BATCH_REQUEST = RequestEnvelope.utf8("batchRequest");
+	private static final byte[] BATCH_RESPONSE = RequestEnvelope.utf8("batchResponse");
+	private static final byte[] ID_ATTRIBUTE = RequestEnvelope.utf8("id");
+	private static final byte[] REPORT_GROUP_ATTRIBUTE = RequestEnvelope.utf8("reportGroup");
+	private static final byte[] ORDER_ID_ELEMENT = RequestEnvelope.utf8("orderId");
+
+	private static final int NAME = 0;
+	private static final int ID = 1;
+	private static final int ORDER_ID = 2;
+	private static final int REPORT_GROUP = 3;
+
+	private final File requestFile;
+	private final File responseFile;
+	private final MappedResponseFile mappedResponseFile;
+	private int partitions = DEFAULT_PARTITIONS;
+	private File workingDirectory = new File(System.getProperty("java.io.tmpdir"));
+
+	public LitleBatchFileReconciler(File requestFile, File responseFile) {
+		this.requestFile = requestFile;
+		this.responseFile = responseFile;
+		this.mappedResponseFile = null;
+	}
+
+	/**
+	 * Construct a reconciler that reads the responses through the mapping the response already holds, rather than
+	 * mapping the file again.  The response must not be closed before reconciling.
+	 * @param request
+	 * @param response
+	 */
+	public LitleBatchFileReconciler(LitleBatchFileRequest request, LitleBatchFileResponse response) {
+		this.requestFile = request.getFile();
+		this.responseFile = response.getFile();
+		this.mappedResponseFile = response.getMappedFile();
+	}
+
+	/**
+	 * @param partitions how many parts to split the transactions into, so that the requests of one part fit in
+	 * the heap at a time; 64 by default
+	 */
+	public void setPartitions(int partitions) {
+		if (partitions < 1) {
+			throw new IllegalArgumentException("There must be at least one partition, not " + partitions + ".");
+		}
+		this.partitions = partitions;
+	}
+
+	/**
+	 * @param workingDirectory where the partition files are written while reconciling; java.io.tmpdir by default
+	 */
+	public void setWorkingDirectory(File workingDirectory) {
+		this.workingDirectory = workingDirectory;
+	}
+
+	/**
+	 * Reconciles the files, reporting each problem found to the listener as it is found.
+	 * @param listener
+	 * @return the number of requests that have exactly one response, of the kind the request asks for
+	 * @throws LitleBatchException if either file could not be read, or the partition files could not be written
+	 */
+	public long reconcile(LitleReconciliationListener listener) throws LitleBatchException {
+		File directory = null;
+		try {
+			MappedResponseFile requests = MappedResponseFile.map(requestFile);
+			MappedResponseFile responses = mappedResponseFile != null ? mappedResponseFile : MappedResponseFile.map(responseFile);
+			directory = File.createTempFile("litleReconciliation", "", workingDirectory);
+			if (!directory.delete() || !directory.mkdir()) {
+				throw new IOException("Could not create the directory " + directory + ".");
+			}
+			partition(requests, BATCH_REQUEST, directory, "request");
+			partition(responses, BATCH_RESPONSE, directory, "response");
+			long matched = 0;
+			for (int i = 0; i < partitions; i++) {
+				matched += join(requests, responses, partitionFile(directory, "request", i), partitionFile(directory, "response", i), listener);
+			}
+			return matched;
+		} catch (IOException e) {
+			throw new LitleBatchException("There was an exception while reconciling " + requestFile + " with " + responseFile + ".", e);
+		} finally {
+			if (directory != null) {
+				File[] files = directory.listFiles();
+				for (int i = 0; files != null && i < files.length; i++) {
+					files[i].delete();
+				}
+				directory.delete();
+			}
+		}
+	}
+
+	private static File partitionFile(File directory, String side, int partition) {
+		return new File(directory, side + "." + partition);
+	}
+
+	/**
+	 * Writes a record of every transaction in every batch of the file to the partition of its key.
+	 */
+	private void partition(MappedResponseFile file, byte[] batchName, File directory, String side) throws IOException {
+		DataOutputStream[] out = new DataOutputStream[partitions];
+		try {
+			for (int i = 0; i < partitions; i++) {
+				out[i] = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partitionFile(directory, side, i)), 16 * 1024));
+			}
+			String[] transaction = new String[4];
+			long limit = file.length();
+			long root = file.nextTag(0, limit);
+			if (root < 0) {
+				return;
+			}
+			long position = file.tagEnd(root, limit);
+			if (file.isEmptyElementTag(position)) {
+				return;
+			}
+			long tag;
+			while ((tag = file.nextTag(position, limit)) >= 0 && !file.isEndTag(tag)) {
+				if (!file.hasLocalName(tag, batchName)) {
+					position = file.elementEnd(tag, limit);
+					continue;
+				}
+				position = file.tagEnd(tag, limit);
+				if (file.isEmptyElementTag(position)) {
+					continue;
+				}
+				long transactionTag;
+				while ((transactionTag = file.nextTag(position, limit)) >= 0 && !file.isEndTag(transactionTag)) {
+					position = readTransaction(file, transactionTag, limit, transaction);
+					long key = key(transaction);
+					DataOutputStream partition = out[(int) ((key >>> 40) % partitions)];
+					partition.writeLong(key);
+					partition.writeLong(transactionTag);
+					partition.writeLong(ResponseFileIndex.hash(kind(transaction[NAME])));
+				}
+				if (transactionTag < 0) {
+					throw new LitleBatchException("The file " + file.getFile() + " ends inside an element.");
+				}
+				position = file.tagEnd(transactionTag, limit);
+			}
+		} finally {
+			for (int i = 0; i < partitions; i++) {
+				if (out[i] != null) {
+					out[i].close();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Joins one partition of requests to the same partition of responses.
+	 * @return the number of requests matched to one response of their kind
+	 */
+	private long join(MappedResponseFile requests, MappedResponseFile responses, File requestPartition, File responsePartition,
+			LitleReconciliationListener listener) throws IOException {
+		int count = (int) (requestPartition.length() / RECORD_SIZE);
+		long[] keys = new long[count];
+		long[] offsets = new long[count];
+		long[] kinds = new long[count];
+		int[] responseCounts = new int[count];
+		boolean[] sameKind = new boolean[count];
+		int mask = Integer.highestOneBit(Math.max(count, 1) * 2) * 2 - 1;
+		int[] table = new int[mask + 1];
+		Arrays.fill(table, -1);
+
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(requestPartition), 64 * 1024));
+		try {
+			for (int i = 0; i < count; i++) {
+				keys[i] = in.readLong();
+				offsets[i] = in.readLong();
+				kinds[i] = in.readLong();
+				int slot = find(table, mask, keys, keys[i]);
+				if (table[slot] < 0) {
+					table[slot] = i;
+				} else {
+					report(listener, LitleReconciliationMismatch.Type.DUPLICATE_REQUEST, requests, offsets[i], null, -1);
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		in = new DataInputStream(new BufferedInputStream(new FileInputStream(responsePartition), 64 * 1024));
+		try {
+			while (true) {
+				long key;
+				try {
+					key = in.readLong();
+				} catch (EOFException e) {
+					break;
+				}
+				long offset = in.readLong();
+				long kind = in.readLong();
+				int request = table[find(table, mask, keys, key)];
+				if (request < 0) {
+					report(listener, LitleReconciliationMismatch.Type.UNEXPECTED_RESPONSE, null, -1, responses, offset);
+				} else if (++responseCounts[request] > 1) {
+					report(listener, LitleReconciliationMismatch.Type.DUPLICATE_RESPONSE, requests, offsets[request], responses, offset);
+				} else if (kind != kinds[request]) {
+					report(listener, LitleReconciliationMismatch.Type.TRANSACTION_TYPE_MISMATCH, requests, offsets[request], responses, offset);
+				} else {
+					sameKind[request] = true;
+				}
+			}
+		} finally {
+			in.close();
+		}
+
+		long matched = 0;
+		for (int slot = 0; slot <= mask; slot++) {
+			int request = table[slot];
+			if (request >= 0 && responseCounts[request] == 0) {
+				report(listener, LitleReconciliationMismatch.Type.MISSING_RESPONSE, requests, offsets[request], null, -1);
+			} else if (request >= 0 && responseCounts[request] == 1 && sameKind[request]) {
+				matched++;
+			}
+		}
+		return matched;
+	}
+
+	/**
+	 * @return the slot of the table holding the request with the key, or the empty slot where it would go
+	 */
+	private static int find(int[] table, int mask, long[] keys, long key) {
+		int slot = (int) key & mask;
+		while (table[slot] >= 0 && keys[table[slot]] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static void report(LitleReconciliationListener listener, LitleReconciliationMismatch.Type type, MappedResponseFile requests,
+			long requestOffset, MappedResponseFile responses, long responseOffset) {
+		String[] request = new String[4];
+		String[] response = new String[4];
+		if (requests != null) {
+			readTransaction(requests, requestOffset, requests.length(), request);
+		}
+		if (responses != null) {
+			readTransaction(responses, responseOffset, responses.length(), response);
+		}
+		String[] keys = requests != null ? request : response;
+		listener.mismatchFound(new LitleReconciliationMismatch(type, request[NAME], response[NAME], keys[ID], keys[ORDER_ID], keys[REPORT_GROUP]));
+	}
+
+	/**
+	 * Reads the name, id, orderId and reportGroup of the transaction whose start tag is at the given offset.
+	 * @return the position just after the end of the transaction
+	 */
+	private static long readTransaction(MappedResponseFile file, long tag, long limit, String[] transaction) {
+		long position = file.tagEnd(tag, limit);
+		transaction[NAME] = file.localName(tag);
+		transaction[ID] = unescape(file.attributeValue(tag, position, ID_ATTRIBUTE));
+		transaction[REPORT_GROUP] = unescape(file.attributeValue(tag, position, REPORT_GROUP_ATTRIBUTE));
+		transaction[ORDER_ID] = null;
+		if (file.isEmptyElementTag(position)) {
+			return position;
+		}
+		int depth = 1;
+		while (depth > 0) {
+			long child = file.nextTag(position, limit);
+			if (child < 0) {
+				throw new LitleBatchException("The file " + file.getFile() + " ends inside an element.");
+			}
+			position = file.tagEnd(child, limit);
+			if (file.isEndTag(child)) {
+				depth--;
+			} else if (!file.isEmptyElementTag(position)) {
+				if (depth == 1 && file.hasLocalName(child, ORDER_ID_ELEMENT)) {
+					transaction[ORDER_ID] = ResponseFileIndex.unescape(file.textAfter(position, limit));
+				}
+				depth++;
+			}
+		}
+		return position;
+	}
+
+	private static String unescape(String value) {
+		return value == null ? null : ResponseFileIndex.unescape(value);
+	}
+
+	private static long key(String[] transaction) {
+		return ResponseFileIndex.hash(valueOf(transaction[ID]) + '\u0000' + valueOf(transaction[ORDER_ID]) + '\u0000' + valueOf(transaction[REPORT_GROUP]));
+	}
+
+	private static String valueOf(String value) {
+		return value == null ? NO_VALUE : value;
+	}
+
+	/**
+	 * @return what a request and its response have in common in their names: "sale" for sale and saleResponse,
+	 * "registerToken" for registerTokenRequest and registerTokenResponse
+	 */
+	static String kind(String elementName) {
+		String kind = elementName;
+		if (kind.endsWith("Response")) {
+			kind = kind.substring(0, kind.length() - "Response".length());
+		} else if (kind.endsWith("Request")) {
+			kind = kind.substring(0, kind.length() - "Request".length());
+		}
+		return kind.equals("echeckSales") ? "echeckSale" : kind;
+	}
+
+}
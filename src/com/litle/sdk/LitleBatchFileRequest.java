@@ -5,12 +5,16 @@ import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.StringWriter;
 import java.math.BigInteger;
-import java.util.ArrayList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -28,13 +32,22 @@ public class LitleBatchFileRequest{
 	private String requestFileName;
 	private File requestFile;
 	private File responseFile;
-	private File tempBatchRequestFile;
 	//private File tempLitleRequestFile;
 	private String requestId;
 	private Marshaller marshaller;
 	private Configuration config = null;
 
 	protected int maxAllowedTransactionsPerFile;
+	private final AtomicInteger numberOfTransactionsInFile = new AtomicInteger();
+	private final AtomicInteger batchSequence = new AtomicInteger();
+	private final AtomicBoolean generated = new AtomicBoolean();
+	private boolean batchesLost;
+	private boolean compact;
+
+	private static final byte[] SPACE = RequestEnvelope.utf8(" ");
+	private static final byte[] BATCH_REQUEST_END = RequestEnvelope.utf8("</batchRequest>");
+	private static final byte[] BATCH_REQUEST_END_LINE = RequestEnvelope.utf8("</batchRequest>\n");
+	private static final byte[] LITLE_REQUEST_END_LINE = RequestEnvelope.utf8("</litleRequest>\n");
 
 	/**
 	 * Recommend NOT to change this value.
@@ -62,7 +75,14 @@ public class LitleBatchFileRequest{
 	 * batchUseSSL BatchRequestPath folder - specify the absolute path
 	 * BatchResponsePath folder - specify the absolute path Optional properties
 	 * are: proxyHost proxyPort printxml (possible values "true" and "false" -
-	 * defaults to false)
+	 * defaults to false) batchStagingBufferSize (in bytes - defaults to 65536)
+	 * batchStagingDirectBuffer (possible values "true" and "false" - defaults
+	 * to false) batchStagingSync (possible values "never", "batch" or a number
+	 * of transactions - defaults to never) batchCompactXml (possible values
+	 * "true" and "false" - defaults to false) batchTransactionWriter
+	 * (possible values "jaxb" and "direct" - defaults to jaxb)
+	 * batchSocketSendBufferSize and batchSocketReceiveBufferSize (in bytes -
+	 * default to the operating system's)
 	 *
 	 * @param RequestFileName
 	 *            , config
@@ -87,18 +107,13 @@ public class LitleBatchFileRequest{
 
 	public void intializeMembers(String requestFileName, Properties in_properties) throws LitleBatchException{
 		try {
-			this.jc = JAXBContext.newInstance("com.litle.sdk.generate");
+			this.jc = JAXBContextProvider.getContext();
 			if(config == null){
 				config = new Configuration();
 			}
 			this.communication = new Communication();
-			this.litleBatchRequestList = new ArrayList<LitleBatchRequest>();
+			this.litleBatchRequestList = new CopyOnWriteArrayList<LitleBatchRequest>();
 			this.requestFileName = requestFileName;
-			marshaller = jc.createMarshaller();
-			// JAXB_FRAGMENT property required to prevent unnecessary XML info from being printed in the file during marshal.
-			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
-			// Proper formatting of XML purely for aesthetic purposes.
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
 
 			if (in_properties == null || in_properties.isEmpty()) {
 				this.properties = new Properties();
@@ -107,6 +122,9 @@ public class LitleBatchFileRequest{
 				fillInMissingFieldsFromConfig(in_properties);
 				this.properties = in_properties;
 			}
+			this.compact = RequestEnvelope.isCompact(properties);
+			// Indented XML unless batchCompactXml is set, purely for aesthetic purposes.
+			marshaller = RequestEnvelope.newFragmentMarshaller(compact);
 
 			this.maxAllowedTransactionsPerFile = Integer.parseInt(properties.getProperty("maxAllowedTransactionsPerFile"));
 			if (maxAllowedTransactionsPerFile > litleLimit_maxAllowedTransactionsPerFile) {
@@ -140,13 +158,16 @@ public class LitleBatchFileRequest{
 	}
 
 	/**
-	 * Returns a LitleBatchRequest object, the container for transactions.
+	 * Returns a LitleBatchRequest object, the container for transactions.  Batches may be created, and transactions
+	 * added to different batches, from several threads at once; the file's maxAllowedTransactionsPerFile still holds.
+	 * No batch can be created once the request file has been generated.
 	 * @param merchantId
 	 * @return
 	 * @throws LitleBatchException
 	 */
-	public LitleBatchRequest createBatch(String merchantId)
+	public synchronized LitleBatchRequest createBatch(String merchantId)
 			throws LitleBatchException {
+		checkNotGenerated();
 		LitleBatchRequest litleBatchRequest = new LitleBatchRequest(merchantId, this);
 		litleBatchRequestList.add(litleBatchRequest);
 		return litleBatchRequest;
@@ -156,47 +177,106 @@ public class LitleBatchFileRequest{
 	 * This method generates the request file alone. To generate the response
 	 * object call sendToLitle method.
 	 *
+	 * The file is written in one pass: the litleRequest header, then for each batch its batchRequest header followed
+	 * by the batch's temporary transaction file, copied with FileChannel.transferTo, so every byte reaches disk once.
+	 * The batch counts and amounts are all known by then, so no header has to be patched afterwards.
+	 *
+	 * Once generation starts no batch can be created and no transaction added.  The batches' temporary files are
+	 * removed once the whole file has been written, after which generating the file again throws a
+	 * LitleBatchException.  If writing the file fails, what was written of it is removed and the temporary files are
+	 * kept, so the file can be generated again once the problem is fixed.
+	 *
 	 * @throws LitleBatchException
-	 * @throws JAXBException
 	 */
-	public void generateRequestFile() throws LitleBatchException {
+	public synchronized void generateRequestFile() throws LitleBatchException {
+		if (requestFile != null) {
+			throw new LitleBatchException("The request file has already been generated.");
+		}
+		if (batchesLost) {
+			throw new LitleBatchException("The request file cannot be generated: its batches could not be completed when it was first generated.");
+		}
+		generated.set(true);
+		boolean batchesClosed = false;
 		try {
-			LitleRequest litleRequest = buildLitleRequest();
+			for (LitleBatchRequest batchReq : litleBatchRequestList) {
+				batchReq.closeFile();
+			}
+			batchesClosed = true;
+		} catch (IOException e) {
+			throw new LitleBatchException("There was an exception while completing the batches' temporary files; the request file cannot be generated.", e);
+		} finally {
+			// a batch that failed to close may have lost the transactions it still held
+			batchesLost = !batchesClosed;
+		}
 
-			// Code to write to the file directly
-			File localFile = getFileToWrite("batchRequestFolder");
-			StringWriter sw = new StringWriter();
-			Marshaller marshaller;
+		File localFile = getFileToWrite("batchRequestFolder");
+		FileOutputStream litleReqWriter = null;
+		boolean written = false;
+		try {
+			byte[] xmlRequest;
 			try {
-				marshaller = jc.createMarshaller();
-				marshaller.marshal(litleRequest, sw);
+				xmlRequest = RequestEnvelope.openLitleRequest(jc.createMarshaller(), buildLitleRequest());
 			} catch (JAXBException e) {
-				throw new LitleBatchException("Unable to load jaxb dependencies.  Perhaps a classpath issue?");
+				throw new LitleBatchException("Unable to load jaxb dependencies.  Perhaps a classpath issue?", e);
 			}
-			String xmlRequest = sw.toString();
-
-			xmlRequest = xmlRequest.replace("</litleRequest>", " ");
 
-			OutputStream litleReqWriter = new FileOutputStream(localFile);
-			FileInputStream fis = new FileInputStream(tempBatchRequestFile);
-			byte[] readData = new byte[1024];
-			litleReqWriter.write(xmlRequest.getBytes());
-			int i = fis.read(readData);
-
-			while (i != -1) {
-				litleReqWriter.write(readData, 0, i);
-				i = fis.read(readData);
+			litleReqWriter = new FileOutputStream(localFile);
+			FileChannel out = litleReqWriter.getChannel();
+			writeFully(out, xmlRequest);
+			if (!compact) {
+				writeFully(out, SPACE);
+			}
+			for (LitleBatchRequest batchReq : litleBatchRequestList) {
+				writeFully(out, RequestEnvelope.openBatchRequest(marshaller, batchReq.getBatchRequest()));
+				File batchFile = batchReq.getFile();
+				if (batchFile != null) {
+					FileInputStream fis = new FileInputStream(batchFile);
+					try {
+						FileChannel in = fis.getChannel();
+						long size = in.size();
+						long position = 0;
+						while (position < size) {
+							position += in.transferTo(position, size - position, out);
+						}
+					} finally {
+						fis.close();
+					}
+				}
+				writeFully(out, compact ? BATCH_REQUEST_END : BATCH_REQUEST_END_LINE);
 			}
-			litleReqWriter.write(("</litleRequest>\n").getBytes());
-			//marshaller.marshal(litleRequest, os);
-			requestFile = localFile;
-			fis.close();
-			tempBatchRequestFile.delete();
+			writeFully(out, LITLE_REQUEST_END_LINE);
 			litleReqWriter.close();
+			written = true;
+		} catch (JAXBException e) {
+			throw new LitleBatchException(
+					"There was an exception while marshalling BatchRequest or LitleRequest objects.", e);
 		} catch (IOException e) {
-			throw new LitleBatchException("Error while creating a batch request file. Check to see if the current user has permission to read and write to " + this.properties.getProperty("batchRequestFolder"), e);
+			throw new LitleBatchException("Error while creating a batch request file. Check to see if the current user has permission to read and write to " + this.properties.getProperty("batchRequestFolder") + ". The file can be generated again once the problem is fixed.", e);
+		} finally {
+			if (!written && litleReqWriter != null) {
+				try {
+					litleReqWriter.close();
+				} catch (IOException e) {
+					// the file is incomplete anyway; the first exception is the one worth reporting
+				}
+				localFile.delete();
+			}
 		}
 
+		requestFile = localFile;
+		for (LitleBatchRequest batchReq : litleBatchRequestList) {
+			File batchFile = batchReq.getFile();
+			if (batchFile != null) {
+				batchFile.delete();
+			}
+		}
+	}
+
+	private static void writeFully(FileChannel out, byte[] xml) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(xml);
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
 	}
 
 	public File getFile() {
@@ -244,13 +324,48 @@ public class LitleBatchFileRequest{
 	}
 
 	public int getNumberOfTransactionInFile() {
-		int i = 0;
-		int totalNumberOfTransactions = 0;
-		for (i = 0; i < getNumberOfBatches(); i++) {
-			LitleBatchRequest lbr = litleBatchRequestList.get(i);
-			totalNumberOfTransactions += lbr.getNumberOfTransactions();
+		return numberOfTransactionsInFile.get();
+	}
+
+	/**
+	 * Keeps the running total of transactions in the file, so that checking it does not visit every batch.
+	 * @param count the change in a batch's number of transactions
+	 */
+	void transactionsAdded(int count) {
+		numberOfTransactionsInFile.addAndGet(count);
+	}
+
+	/**
+	 * @throws LitleBatchException if the request file has already been generated, and so can take nothing more
+	 */
+	void checkNotGenerated() throws LitleBatchException {
+		if (generated.get()) {
+			throw new LitleBatchException("The request file has already been generated; no more batches or transactions can be added to it.");
 		}
-		return totalNumberOfTransactions;
+	}
+
+	/**
+	 * Counts one more transaction in the file unless that would take it past maxAllowedTransactionsPerFile.  Batches
+	 * filled from different threads reserve their room here, so the file never ends up over the limit.
+	 * @return false if the file is already full
+	 */
+	boolean reserveTransaction() {
+		while (true) {
+			int current = numberOfTransactionsInFile.get();
+			if (current >= maxAllowedTransactionsPerFile) {
+				return false;
+			}
+			if (numberOfTransactionsInFile.compareAndSet(current, current + 1)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * @return a number no other batch of this file has, to keep the batches' temporary files apart
+	 */
+	int nextBatchSequence() {
+		return batchSequence.incrementAndGet();
 	}
 
 	/**
@@ -328,52 +443,43 @@ public class LitleBatchFileRequest{
     }
 
 
+	/**
+	 * Sends the file to Litle over sFTP and waits for the response on the SDK's shared I/O executor, so the polling
+	 * does not hold the caller's thread.  With useVirtualThreads set to "true" on Java 21 or later, each pending
+	 * retrieval parks a virtual thread instead of a platform thread.
+	 * @return A Future for the response object for the batch file
+	 */
+	public Future<LitleBatchFileResponse> sendToLitleSFTPAsync() {
+		return LitleExecutors.sharedIoExecutor(properties).submit(new Callable<LitleBatchFileResponse>() {
+			public LitleBatchFileResponse call() {
+				return sendToLitleSFTP();
+			}
+		});
+	}
+
+	/**
+	 * Retrieves the file from Litle over sFTP on the SDK's shared I/O executor.  This method requires separate
+	 * invocation of the send method.
+	 * @return A Future for the response object for the file
+	 */
+	public Future<LitleBatchFileResponse> retrieveOnlyFromLitleSFTPAsync() {
+		return LitleExecutors.sharedIoExecutor(properties).submit(new Callable<LitleBatchFileResponse>() {
+			public LitleBatchFileResponse call() {
+				return retrieveOnlyFromLitleSFTP();
+			}
+		});
+	}
+
 	private void prepareForDelivery() {
-        try {
-            String writeFolderPath = this.properties.getProperty("batchRequestFolder");
-
-            tempBatchRequestFile = new File(writeFolderPath + "/tmp/tempBatchFileTesting");
-            OutputStream batchReqWriter = new FileOutputStream(tempBatchRequestFile.getAbsoluteFile());
-            // close the all the batch files
-            byte[] readData = new byte[1024];
-            for (LitleBatchRequest batchReq : litleBatchRequestList) {
-                batchReq.closeFile();
-                StringWriter sw = new StringWriter();
-                marshaller.marshal(batchReq.getBatchRequest(), sw);
-                String xmlRequest = sw.toString();
-
-                xmlRequest = xmlRequest.replaceFirst("/>", ">");
-
-                FileInputStream fis = new FileInputStream(batchReq.getFile());
-
-                batchReqWriter.write(xmlRequest.getBytes());
-                int i = fis.read(readData);
-
-                while (i != -1) {
-                    batchReqWriter.write(readData, 0, i);
-                    i = fis.read(readData);
-                }
-
-                batchReqWriter.write(("</batchRequest>\n").getBytes());
-                fis.close();
-                batchReq.getFile().delete();
-            }
-            // close the file
-            batchReqWriter.close();
-            generateRequestFile();
-            File tmpFile = new File(writeFolderPath + "/tmp");
-            if (tmpFile.exists()) {
-                tmpFile.delete();
-            }
-        } catch (JAXBException e) {
-            throw new LitleBatchException(
-                    "There was an exception while marshalling BatchRequest or LitleRequest objects.", e);
-        } catch (IOException e) {
-            throw new LitleBatchException(
-                    "There was an exception while creating the Litle Request file. Check to see if the current user has permission to read and write to "
-                            + this.properties.getProperty("batchRequestFolder"), e);
-        }
-    }
+		// a file already generated, by LitleBatchFileWriter for instance, has had its batches' temporary files removed
+		if (requestFile == null) {
+			generateRequestFile();
+		}
+		File tmpFile = new File(this.properties.getProperty("batchRequestFolder") + "/tmp");
+		if (tmpFile.exists()) {
+			tmpFile.delete();
+		}
+	}
 
 	void setResponseFile(File inFile) {
 		this.responseFile = inFile;
@@ -1,12 +1,25 @@
 package com.litle.sdk;
 
 import java.io.File;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBException;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import com.litle.sdk.generate.TransactionType;
 
 
 public class LitleBatchFileResponse extends LitleFileResponse{
 
+	private ResponseFileIndex index;
 
 	/**
 	 * This constructor initializes the LitleBatchResponseList to the Response values.
@@ -27,4 +40,227 @@ public class LitleBatchFileResponse extends LitleFileResponse{
 		retObj = new LitleBatchResponse(super.responseFileParser);
 		return retObj;
 	}
+
+	/**
+	 * Iterates over the transactions of every batch not yet read with getNextLitleBatchResponse, one batch after
+	 * another.  Each transaction is unmarshalled only when the iterator is asked for it, so no more than one is held
+	 * at a time; iterating moves the same position as getNextLitleBatchResponse does.
+	 * @return the transactions
+	 */
+	public Iterable<TransactionType> getTransactions() {
+		return new Iterable<TransactionType>() {
+			public Iterator<TransactionType> iterator() {
+				return new Iterator<TransactionType>() {
+					private Iterator<TransactionType> batch;
+					private boolean lastBatchRead;
+
+					public boolean hasNext() {
+						while (batch == null || !batch.hasNext()) {
+							if (lastBatchRead) {
+								return false;
+							}
+							try {
+								batch = getNextLitleBatchResponse().iterator();
+							} catch (LitleBatchNoMoreBatchesException e) {
+								lastBatchRead = true;
+							}
+						}
+						return true;
+					}
+
+					public TransactionType next() {
+						if (!hasNext()) {
+							throw new NoSuchElementException("All batches from this response file have already been retrieved");
+						}
+						return batch.next();
+					}
+
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+				};
+			}
+		};
+	}
+
+	/**
+	 * Counts the transaction responses of the whole file and of each batch, and sums their approved amounts, by
+	 * transaction type, response code and report group, in one pass over the file that unmarshals nothing.  This
+	 * does not move the position of getNextLitleBatchResponse.
+	 * @return the summary of the file, with those of its batches
+	 * @throws LitleBatchException if the file could not be read
+	 */
+	public LitleResponseSummary summarize() throws LitleBatchException {
+		try {
+			MappedResponseFile mappedFile = getMappedFile();
+			XMLStreamReader reader = ResponseFileParser.newReader(mappedFile.open(0, mappedFile.length()));
+			try {
+				return ResponseStatistics.read(reader);
+			} finally {
+				reader.close();
+			}
+		} catch (XMLStreamException e) {
+			throw new LitleBatchException("There was an unknown error while parsing the response file.", e);
+		}
+	}
+
+	/**
+	 * Splits the response file at its batch boundaries.  The file is scanned for the byte offsets of its
+	 * batchResponse elements, and each batch returned reads its transactions with a parser of its own, so the
+	 * batches can be read on separate threads, in any order, and independently of getNextLitleBatchResponse.  Each
+	 * holds only its batch header until its transactions are read, one at a time.
+	 * @return a batch response for every batch in the file
+	 * @throws LitleBatchException if the file could not be scanned
+	 */
+	public List<LitleBatchResponse> splitIntoBatches() throws LitleBatchException {
+		ResponseFileOffsets offsets = scanOffsets();
+		List<LitleBatchResponse> batches = new ArrayList<LitleBatchResponse>(offsets.getBatchCount());
+		for (int i = 0; i < offsets.getBatchCount(); i++) {
+			batches.add(new LitleBatchResponse(offsets.newBatchParser(i)));
+		}
+		return batches;
+	}
+
+	/**
+	 * Processes every batch of the response file on the SDK's shared pool of one thread per processor for response
+	 * processing (see LitleExecutors.sharedResponseExecutor).  The processor must not itself wait on batches processed
+	 * this way, as they could be queued behind it.
+	 * @see #processBatchesInParallel(LitleResponseProcessor, LitleBatchCompletionListener, ExecutorService)
+	 */
+	public void processBatchesInParallel(LitleResponseProcessor processor, LitleBatchCompletionListener listener) throws LitleBatchException {
+		processBatchesInParallel(processor, listener, LitleExecutors.sharedResponseExecutor());
+	}
+
+	/**
+	 * Processes every batch of the response file at the same time.  The file is first scanned for the byte offsets
+	 * of its batchResponse elements; each batch is then read by a parser of its own on the executor, which hands its
+	 * transactions to the processor in the order they appear in the batch.  This does not move the parser used by
+	 * getNextLitleBatchResponse.
+	 *
+	 * The processor is called from several threads at once, so it must be thread-safe.  The method returns once
+	 * every batch has been read.
+	 * @param processor
+	 * @param listener told as each batch is completed or fails; may be null
+	 * @param executor
+	 * @throws LitleBatchException if the file could not be scanned, or a batch could not be read to its end
+	 */
+	public void processBatchesInParallel(final LitleResponseProcessor processor, final LitleBatchCompletionListener listener, ExecutorService executor) throws LitleBatchException {
+		final ResponseFileOffsets offsets = scanOffsets();
+		List<Future<Integer>> batches = new ArrayList<Future<Integer>>(offsets.getBatchCount());
+		for (int i = 0; i < offsets.getBatchCount(); i++) {
+			final int batchIndex = i;
+			batches.add(executor.submit(new Callable<Integer>() {
+				public Integer call() {
+					return processBatch(offsets, batchIndex, processor, listener);
+				}
+			}));
+		}
+
+		Exception firstFailure = null;
+		int failures = 0;
+		for (Future<Integer> batch : batches) {
+			try {
+				batch.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new LitleBatchException("Interrupted while waiting for the batches of the response file to be processed.", e);
+			} catch (ExecutionException e) {
+				if (firstFailure == null) {
+					firstFailure = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+				}
+				failures++;
+			}
+		}
+		if (firstFailure != null) {
+			throw new LitleBatchException(failures + " of the " + batches.size() + " batches in the response file could not be processed.", firstFailure);
+		}
+	}
+
+	/**
+	 * Reads the transaction response with the given litleTxnId without going through the file.  The first lookup in
+	 * a response file indexes it, and saves the index next to it for later lookups (see ResponseFileIndex); reading
+	 * the file with getNextLitleBatchResponse does not need or build an index.
+	 * @param litleTxnId
+	 * @return the transaction response, or null if the file has none with that litleTxnId
+	 * @throws LitleBatchException
+	 */
+	public synchronized TransactionType findTransactionByLitleTxnId(long litleTxnId) throws LitleBatchException {
+		List<TransactionType> transactions = readTransactions(getIndex().offsetsOfLitleTxnId(litleTxnId));
+		return transactions.isEmpty() ? null : transactions.get(0);
+	}
+
+	/**
+	 * Reads the transaction responses with the given orderId without going through the file.
+	 * @param orderId
+	 * @return the transaction responses, in the order they appear in the file
+	 * @throws LitleBatchException
+	 * @see #findTransactionByLitleTxnId(long)
+	 */
+	public synchronized List<TransactionType> findTransactionsByOrderId(String orderId) throws LitleBatchException {
+		return readTransactions(getIndex().offsetsOf(ResponseFileIndex.ORDER_ID, orderId));
+	}
+
+	/**
+	 * Reads the transaction responses with the given id attribute without going through the file.
+	 * @param id
+	 * @return the transaction responses, in the order they appear in the file
+	 * @throws LitleBatchException
+	 * @see #findTransactionByLitleTxnId(long)
+	 */
+	public synchronized List<TransactionType> findTransactionsById(String id) throws LitleBatchException {
+		return readTransactions(getIndex().offsetsOf(ResponseFileIndex.ID, id));
+	}
+
+	private ResponseFileIndex getIndex() {
+		if (index == null) {
+			index = ResponseFileIndex.open(getMappedFile());
+		}
+		return index;
+	}
+
+	private List<TransactionType> readTransactions(long[] offsets) {
+		List<TransactionType> transactions = new ArrayList<TransactionType>(offsets.length);
+		try {
+			for (long offset : offsets) {
+				transactions.add(index.read(offset, unmarshaller));
+			}
+		} catch (JAXBException e) {
+			throw new LitleBatchException("There was an exception while trying to unmarshall transactionResponse.", e);
+		} catch (XMLStreamException e) {
+			throw new LitleBatchException("There was an unknown error while parsing the response file.", e);
+		}
+		return transactions;
+	}
+
+	@Override
+	public synchronized void close() {
+		super.close();
+		index = null;
+	}
+
+	private ResponseFileOffsets scanOffsets() {
+		return ResponseFileOffsets.scan(getMappedFile());
+	}
+
+	private int processBatch(ResponseFileOffsets offsets, int batchIndex, LitleResponseProcessor processor, LitleBatchCompletionListener listener) {
+		ResponseFileParser parser = offsets.newBatchParser(batchIndex);
+		try {
+			LitleBatchResponse batchResponse = new LitleBatchResponse(parser);
+			int transactions = 0;
+			while (batchResponse.processNextTransaction(processor)) {
+				transactions++;
+			}
+			if (listener != null) {
+				listener.batchCompleted(batchIndex, batchResponse, transactions);
+			}
+			return transactions;
+		} catch (RuntimeException e) {
+			if (listener != null) {
+				listener.batchFailed(batchIndex, e);
+			}
+			throw e;
+		} finally {
+			parser.close();
+		}
+	}
 }
@@ -0,0 +1,122 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import com.litle.sdk.generate.AccountUpdate;
+import com.litle.sdk.generate.TransactionType;
+
+/**
+ * Writes any number of transactions into as many request files as they need.  A merchant's transactions go into
+ * its current batch until that batch holds maxTransactionsPerBatch, then into a new one; a request file is finished
+ * and a new one started once it holds maxAllowedTransactionsPerFile.  AccountUpdates are kept in batches of their
+ * own, as Litle requires.  Nothing is sent to Litle: the finished files are returned to be sent however suits.
+ *
+ * The request files are named after the name given to the constructor, numbered from 1: "payments.xml" gives
+ * "payments_1.xml", "payments_2.xml" and so on.  All methods may be called from several threads.
+ */
+public class LitleBatchFileWriter {
+
+	private final String requestFileName;
+	private final Properties properties;
+	private final List<LitleBatchFileRequest> finishedRequests = new ArrayList<LitleBatchFileRequest>();
+	private final Map<String, LitleBatchRequest> batches = new HashMap<String, LitleBatchRequest>();
+	private final Map<String, LitleBatchRequest> accountUpdateBatches = new HashMap<String, LitleBatchRequest>();
+	private LitleBatchFileRequest currentRequest;
+	private boolean closed;
+
+	/**
+	 * @param requestFileName the name the request files are numbered after
+	 * @param properties the configuration, as for LitleBatchFileRequest(String, Properties)
+	 */
+	public LitleBatchFileWriter(String requestFileName, Properties properties) {
+		this.requestFileName = requestFileName;
+		this.properties = properties;
+	}
+
+	/**
+	 * Adds a transaction to the current batch of the merchant, starting a new batch or request file first if the
+	 * current one is full.
+	 * @param merchantId
+	 * @param transaction
+	 * @throws LitleBatchException if the writer is closed, or the transaction is of a type that cannot be sent in a
+	 * batch, in which case nothing is written
+	 */
+	public synchronized void addTransaction(String merchantId, TransactionType transaction) throws LitleBatchException {
+		if (closed) {
+			throw new LitleBatchException("Transactions cannot be added once the LitleBatchFileWriter is closed.");
+		}
+		if (!LitleBatchRequest.isBatchTransaction(transaction)) {
+			throw new LitleBatchException("A " + transaction.getClass().getSimpleName() + " cannot be sent in a batch.");
+		}
+		if (currentRequest != null && currentRequest.isFull()) {
+			finishRequest();
+		}
+		if (currentRequest == null) {
+			currentRequest = new LitleBatchFileRequest(nextFileName(), properties);
+		}
+		Map<String, LitleBatchRequest> openBatches = (transaction instanceof AccountUpdate) ? accountUpdateBatches : batches;
+		LitleBatchRequest batch = openBatches.get(merchantId);
+		if (batch == null || batch.isFull()) {
+			batch = currentRequest.createBatch(merchantId);
+			openBatches.put(merchantId, batch);
+		}
+		batch.addTransaction(transaction);
+	}
+
+	/**
+	 * @return the request files finished so far, in the order they were written
+	 */
+	public synchronized List<File> getFinishedFiles() {
+		List<File> files = new ArrayList<File>(finishedRequests.size());
+		for (LitleBatchFileRequest request : finishedRequests) {
+			files.add(request.getFile());
+		}
+		return files;
+	}
+
+	/**
+	 * @return the requests finished so far, whose files are written and ready for sendToLitle
+	 */
+	public synchronized List<LitleBatchFileRequest> getFinishedRequests() {
+		return Collections.unmodifiableList(new ArrayList<LitleBatchFileRequest>(finishedRequests));
+	}
+
+	/**
+	 * Finishes the request file being written, if it holds any transactions.
+	 * @return every request file written, in order
+	 * @throws LitleBatchException
+	 */
+	public synchronized List<File> close() throws LitleBatchException {
+		if (!closed) {
+			closed = true;
+			if (currentRequest != null && !currentRequest.isEmpty()) {
+				finishRequest();
+			}
+		}
+		return getFinishedFiles();
+	}
+
+	private void finishRequest() {
+		currentRequest.generateRequestFile();
+		finishedRequests.add(currentRequest);
+		currentRequest = null;
+		batches.clear();
+		accountUpdateBatches.clear();
+	}
+
+	private String nextFileName() {
+		int number = finishedRequests.size() + 1;
+		int extension = requestFileName.lastIndexOf('.');
+		if (extension < 0) {
+			return requestFileName + "_" + number;
+		}
+		return requestFileName.substring(0, extension) + "_" + number + requestFileName.substring(extension);
+	}
+
+}
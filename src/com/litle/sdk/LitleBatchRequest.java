@@ -1,12 +1,17 @@
 package com.litle.sdk;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
 import java.math.BigInteger;
 import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
@@ -32,6 +37,12 @@ import com.litle.sdk.generate.TransactionType;
 import com.litle.sdk.generate.UpdateCardValidationNumOnToken;
 
 public class LitleBatchRequest {
+
+	static final int DEFAULT_MARSHALLING_CHUNK_SIZE = 256;
+
+	private static final ThreadLocal<Marshaller> indentedChunkMarshaller = new ChunkMarshaller(false);
+	private static final ThreadLocal<Marshaller> compactChunkMarshaller = new ChunkMarshaller(true);
+
 	private BatchRequest batchRequest;
 	private JAXBContext jc;
 	private File file;
@@ -39,12 +50,20 @@ public class LitleBatchRequest {
 	ObjectFactory objFac;
 	TransactionType txn;
 	String filePath;
-	OutputStream osWrttxn;
+	BatchStagingOutputStream osWrttxn;
 
-	int numOfTxn;
+	volatile int numOfTxn;
+	private PendingTotals pending = new PendingTotals();
 
 
 	private final int maxTransactionsPerBatch;
+	private final boolean compact;
+	private final boolean writeDirectly;
+	private final TransactionXmlWriter xmlWriter;
+	private final int marshallingThreads;
+	private final int marshallingChunkSize;
+	private List<JAXBElement> chunk;
+	private final LinkedList<MarshalledChunk> marshalledChunks = new LinkedList<MarshalledChunk>();
 	protected int litleLimit_maxTransactionsPerBatch = 100000;
 	private final LitleBatchFileRequest lbfr;
 
@@ -66,15 +85,15 @@ public class LitleBatchRequest {
 			tmpFile.mkdir();
 		}
 		java.util.Date date= new java.util.Date();
-		filePath = new String(lbfr.getConfig().getProperty("batchRequestFolder")+ "/tmp/Transactions" +merchantId + new Timestamp(date.getTime()));
+		filePath = new String(lbfr.getConfig().getProperty("batchRequestFolder")+ "/tmp/Transactions" +merchantId + new Timestamp(date.getTime()) + "_" + lbfr.nextBatchSequence());
 		numOfTxn = 0;
+		this.compact = RequestEnvelope.isCompact(lbfr.getConfig());
+		this.writeDirectly = TransactionXmlWriter.isSelected(lbfr.getConfig());
+		this.xmlWriter = writeDirectly ? new TransactionXmlWriter(compact) : null;
 		try {
-			this.jc = JAXBContext.newInstance("com.litle.sdk.generate");
-			marshaller = jc.createMarshaller();
-			// JAXB_FRAGMENT property required to prevent unnecessary XML info from being printed in the file during marshal.
-			marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
-			// Proper formatting of XML purely for aesthetic purposes.
-			marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
+			this.jc = JAXBContextProvider.getContext();
+			// Indented XML unless batchCompactXml is set, purely for aesthetic purposes.
+			marshaller = RequestEnvelope.newFragmentMarshaller(compact);
 		} catch (JAXBException e) {
 			throw new LitleBatchException("Unable to load jaxb dependencies.  Perhaps a classpath issue?", e);
 		}
@@ -82,33 +101,84 @@ public class LitleBatchRequest {
 		if( maxTransactionsPerBatch > litleLimit_maxTransactionsPerBatch ){
 			throw new LitleBatchException("maxTransactionsPerBatch property value cannot exceed " + String.valueOf(litleLimit_maxTransactionsPerBatch));
 		}
+		this.marshallingThreads = Integer.parseInt(lbfr.getConfig().getProperty("batchMarshallingThreads", "0"));
+		this.marshallingChunkSize = Integer.parseInt(lbfr.getConfig().getProperty("batchMarshallingChunkSize", String.valueOf(DEFAULT_MARSHALLING_CHUNK_SIZE)));
+		if (marshallingThreads > 0) {
+			this.chunk = new ArrayList<JAXBElement>(marshallingChunkSize);
+		}
 	}
 
-	BatchRequest getBatchRequest(){
+	/**
+	 * Returns the batch header, with the counts and amounts of every transaction added so far.  They are kept as
+	 * longs while transactions are added and only turned into the header's BigIntegers here.
+	 * @return
+	 */
+	synchronized BatchRequest getBatchRequest(){
+		batchRequest.setNumSales(plus(batchRequest.getNumSales(), pending.numSales));
+		batchRequest.setSaleAmount(plus(batchRequest.getSaleAmount(), pending.saleAmount));
+		batchRequest.setNumAuths(plus(batchRequest.getNumAuths(), pending.numAuths));
+		batchRequest.setAuthAmount(plus(batchRequest.getAuthAmount(), pending.authAmount));
+		batchRequest.setNumCredits(plus(batchRequest.getNumCredits(), pending.numCredits));
+		batchRequest.setCreditAmount(plus(batchRequest.getCreditAmount(), pending.creditAmount));
+		batchRequest.setNumTokenRegistrations(plus(batchRequest.getNumTokenRegistrations(), pending.numTokenRegistrations));
+		batchRequest.setNumCaptureGivenAuths(plus(batchRequest.getNumCaptureGivenAuths(), pending.numCaptureGivenAuths));
+		batchRequest.setCaptureGivenAuthAmount(plus(batchRequest.getCaptureGivenAuthAmount(), pending.captureGivenAuthAmount));
+		batchRequest.setNumForceCaptures(plus(batchRequest.getNumForceCaptures(), pending.numForceCaptures));
+		batchRequest.setForceCaptureAmount(plus(batchRequest.getForceCaptureAmount(), pending.forceCaptureAmount));
+		batchRequest.setNumAuthReversals(plus(batchRequest.getNumAuthReversals(), pending.numAuthReversals));
+		batchRequest.setAuthReversalAmount(plus(batchRequest.getAuthReversalAmount(), pending.authReversalAmount));
+		batchRequest.setNumCaptures(plus(batchRequest.getNumCaptures(), pending.numCaptures));
+		batchRequest.setCaptureAmount(plus(batchRequest.getCaptureAmount(), pending.captureAmount));
+		batchRequest.setNumEcheckVerification(plus(batchRequest.getNumEcheckVerification(), pending.numEcheckVerification));
+		batchRequest.setEcheckVerificationAmount(plus(batchRequest.getEcheckVerificationAmount(), pending.echeckVerificationAmount));
+		batchRequest.setNumEcheckCredit(plus(batchRequest.getNumEcheckCredit(), pending.numEcheckCredit));
+		batchRequest.setEcheckCreditAmount(plus(batchRequest.getEcheckCreditAmount(), pending.echeckCreditAmount));
+		batchRequest.setNumEcheckRedeposit(plus(batchRequest.getNumEcheckRedeposit(), pending.numEcheckRedeposit));
+		batchRequest.setNumEcheckSales(plus(batchRequest.getNumEcheckSales(), pending.numEcheckSales));
+		batchRequest.setEcheckSalesAmount(plus(batchRequest.getEcheckSalesAmount(), pending.echeckSalesAmount));
+		batchRequest.setNumUpdateCardValidationNumOnTokens(plus(batchRequest.getNumUpdateCardValidationNumOnTokens(), pending.numUpdateCardValidationNumOnTokens));
+		batchRequest.setNumAccountUpdates(plus(batchRequest.getNumAccountUpdates(), pending.numAccountUpdates));
+		pending = new PendingTotals();
 		return batchRequest;
 	}
 
+	private static BigInteger plus(BigInteger total, long pending) {
+		return pending == 0 ? total : total.add(BigInteger.valueOf(pending));
+	}
+
 	/**
-	 * This method is used to add transaction to a particular batch
+	 * This method is used to add transaction to a particular batch.  Different batches can be added to from different
+	 * threads at the same time; calls on the same batch wait for each other.
+	 *
+	 * When batchMarshallingThreads is set, the transaction is marshalled later on a shared thread, together with the
+	 * others of its chunk, so it must not be changed after it is added.  An error marshalling it is then thrown by a
+	 * later call to addTransaction or closeFile.
+	 *
+	 * When batchTransactionWriter is "direct", transactions are written by a TransactionXmlWriter rather than the
+	 * marshaller, except for those it cannot write exactly as the marshaller would.
+	 *
+	 * No transaction can be added once the request file has been generated.
 	 * @param transactionType
 	 * @return
 	 * @throws FileNotFoundException
 	 * @throws JAXBException
 	 */
-	public TransactionCodeEnum addTransaction(TransactionType transactionType) throws LitleBatchException, LitleBatchFileFullException, LitleBatchBatchFullException {
+	public synchronized TransactionCodeEnum addTransaction(TransactionType transactionType) throws LitleBatchException, LitleBatchFileFullException, LitleBatchBatchFullException {
+		lbfr.checkNotGenerated();
 		if (numOfTxn == 0) {
             this.file = new File(filePath);
             try {
-                osWrttxn = new FileOutputStream(file.getAbsolutePath());
+                osWrttxn = BatchStagingOutputStream.open(file, lbfr.getConfig());
             } catch (FileNotFoundException e) {
                 throw new LitleBatchException("There was an exception while trying to create a Request file. Please check if the folder: " + lbfr.getConfig().getProperty("batchRequestFolder") +" has read and write access. ");
             }
         }
 
-		if(numOfTxn > 0 && batchRequest.getNumAccountUpdates().intValue() != numOfTxn
+		long numAccountUpdates = batchRequest.getNumAccountUpdates().longValue() + pending.numAccountUpdates;
+		if(numOfTxn > 0 && numAccountUpdates != numOfTxn
 		        && (transactionType instanceof AccountUpdate)){
             throw new LitleBatchException("An account update cannot be added to a batch containing transactions other than other AccountUpdates.");
-        } else if(numOfTxn > 0 && batchRequest.getNumAccountUpdates().intValue() == numOfTxn &&
+        } else if(numOfTxn > 0 && numAccountUpdates == numOfTxn &&
                 !(transactionType instanceof AccountUpdate)){
             throw new LitleBatchException("Transactions that are not AccountUpdates cannot be added to a batch containing AccountUpdates.");
         }
@@ -121,101 +191,121 @@ public class LitleBatchRequest {
             Exception e = new Exception();
             throw new LitleBatchBatchFullException("Batch is already full -- it has reached the maximum number of transactions allowed per batch.", e);
         }
+        // another batch may have taken the file's last place since the check above
+        if (!lbfr.reserveTransaction()) {
+            Exception e = new Exception();
+            throw new LitleBatchFileFullException("Batch File is already full -- it has reached the maximum number of transactions allowed per batch file.", e);
+        }
 
-        //Adding 1 to the number of transaction. This is on the assumption that we are adding one transaction to the batch at a time.
-        BigInteger numToAdd = new BigInteger("1");
         boolean transactionAdded = false;
 
 		JAXBElement transaction;
 
 		if(transactionType instanceof Sale){
-            batchRequest.setNumSales(batchRequest.getNumSales().add(BigInteger.valueOf(1)));
-            batchRequest.setSaleAmount(batchRequest.getSaleAmount().add(BigInteger.valueOf(((Sale) transactionType).getAmount())));
+            pending.numSales++;
+            pending.saleAmount += ((Sale) transactionType).getAmount();
             transaction = objFac.createSale((Sale)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof Authorization){
-            batchRequest.setNumAuths(batchRequest.getNumAuths().add(BigInteger.valueOf(1)));
-            batchRequest.setAuthAmount(batchRequest.getAuthAmount().add(BigInteger.valueOf(((Authorization) transactionType).getAmount())));
+            pending.numAuths++;
+            pending.authAmount += ((Authorization) transactionType).getAmount();
             transaction = objFac.createAuthorization((Authorization)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof Credit){
-            batchRequest.setNumCredits(batchRequest.getNumCredits().add(BigInteger.valueOf(1)));
-            batchRequest.setCreditAmount(batchRequest.getCreditAmount().add(BigInteger.valueOf(((Credit) transactionType).getAmount())));
+            pending.numCredits++;
+            pending.creditAmount += ((Credit) transactionType).getAmount();
             transaction = objFac.createCredit((Credit)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof RegisterTokenRequestType){
-            batchRequest.setNumTokenRegistrations(batchRequest.getNumTokenRegistrations().add(BigInteger.valueOf(1)));
+            pending.numTokenRegistrations++;
             transaction = objFac.createRegisterTokenRequest((RegisterTokenRequestType)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof CaptureGivenAuth){
-            batchRequest.setNumCaptureGivenAuths(batchRequest.getNumCaptureGivenAuths().add(BigInteger.valueOf(1)));
-            batchRequest.setCaptureGivenAuthAmount(batchRequest.getCaptureGivenAuthAmount().add(BigInteger.valueOf(((CaptureGivenAuth) transactionType).getAmount())));
+            pending.numCaptureGivenAuths++;
+            pending.captureGivenAuthAmount += ((CaptureGivenAuth) transactionType).getAmount();
             transaction = objFac.createCaptureGivenAuth((CaptureGivenAuth)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof ForceCapture){
-            batchRequest.setNumForceCaptures(batchRequest.getNumForceCaptures().add(BigInteger.valueOf(1)));
-            batchRequest.setForceCaptureAmount(batchRequest.getForceCaptureAmount().add(BigInteger.valueOf(((ForceCapture) transactionType).getAmount())));
+            pending.numForceCaptures++;
+            pending.forceCaptureAmount += ((ForceCapture) transactionType).getAmount();
             transaction = objFac.createForceCapture((ForceCapture)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof AuthReversal){
-            batchRequest.setNumAuthReversals(batchRequest.getNumAuthReversals().add(BigInteger.valueOf(1)));
-            batchRequest.setAuthReversalAmount(batchRequest.getAuthReversalAmount().add(BigInteger.valueOf(((AuthReversal) transactionType).getAmount())));
+            pending.numAuthReversals++;
+            pending.authReversalAmount += ((AuthReversal) transactionType).getAmount();
             transaction = objFac.createAuthReversal((AuthReversal)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof Capture){
-            batchRequest.setNumCaptures(batchRequest.getNumCaptures().add(BigInteger.valueOf(1)));
-            batchRequest.setCaptureAmount(batchRequest.getCaptureAmount().add(BigInteger.valueOf(((Capture) transactionType).getAmount())));
+            pending.numCaptures++;
+            pending.captureAmount += ((Capture) transactionType).getAmount();
             transaction = objFac.createCapture((Capture)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof EcheckVerification){
-            batchRequest.setNumEcheckVerification(batchRequest.getNumEcheckVerification().add(BigInteger.valueOf(1)));
-            batchRequest.setEcheckVerificationAmount(batchRequest.getEcheckVerificationAmount().add(BigInteger.valueOf(((EcheckVerification) transactionType).getAmount())));
+            pending.numEcheckVerification++;
+            pending.echeckVerificationAmount += ((EcheckVerification) transactionType).getAmount();
             transaction = objFac.createEcheckVerification((EcheckVerification)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof EcheckCredit){
-            batchRequest.setNumEcheckCredit(batchRequest.getNumEcheckCredit().add(BigInteger.valueOf(1)));
-            batchRequest.setEcheckCreditAmount(batchRequest.getEcheckCreditAmount().add(BigInteger.valueOf(((EcheckCredit) transactionType).getAmount())));
+            pending.numEcheckCredit++;
+            pending.echeckCreditAmount += ((EcheckCredit) transactionType).getAmount();
             transaction = objFac.createEcheckCredit((EcheckCredit)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof EcheckRedeposit){
-            batchRequest.setNumEcheckRedeposit(batchRequest.getNumEcheckRedeposit().add(BigInteger.valueOf(1)));
+            pending.numEcheckRedeposit++;
             transaction = objFac.createEcheckRedeposit((EcheckRedeposit)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof EcheckSale){
-            batchRequest.setNumEcheckSales(batchRequest.getNumEcheckSales().add(BigInteger.valueOf(1)));
-            batchRequest.setEcheckSalesAmount(batchRequest.getEcheckSalesAmount().add(BigInteger.valueOf(((EcheckSale) transactionType).getAmount())));
+            pending.numEcheckSales++;
+            pending.echeckSalesAmount += ((EcheckSale) transactionType).getAmount();
             transaction = objFac.createEcheckSale((EcheckSale)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof UpdateCardValidationNumOnToken){
-            batchRequest.setNumUpdateCardValidationNumOnTokens(batchRequest.getNumUpdateCardValidationNumOnTokens().add(BigInteger.valueOf(1)));
+            pending.numUpdateCardValidationNumOnTokens++;
             transaction = objFac.createUpdateCardValidationNumOnToken((UpdateCardValidationNumOnToken)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else if (transactionType instanceof AccountUpdate){
-            batchRequest.setNumAccountUpdates(batchRequest.getNumAccountUpdates().add(BigInteger.valueOf(1)));
+            pending.numAccountUpdates++;
             transaction = objFac.createAccountUpdate((AccountUpdate)transactionType);
             transactionAdded = true;
             numOfTxn ++;
         } else {
             transaction = objFac.createTransaction(new TransactionType());
         }
+        if (!transactionAdded) {
+            lbfr.transactionsAdded(-1);
+        }
 
 		try {
-            marshaller.marshal(transaction, osWrttxn);
+            if (chunk != null) {
+                chunk.add(transaction);
+                if (chunk.size() >= marshallingChunkSize) {
+                    submitChunk();
+                }
+            } else {
+                if (xmlWriter == null || osWrttxn == null || !xmlWriter.write(transaction, osWrttxn)) {
+                    marshaller.marshal(transaction, osWrttxn);
+                }
+                if (osWrttxn != null) {
+                    osWrttxn.transactionWritten();
+                }
+            }
         } catch (JAXBException e) {
             throw new LitleBatchException("There was an exception while marshalling the transaction object.", e);
+        } catch (IOException e) {
+            throw new LitleBatchException("There was an exception while writing the transaction to the batch's temporary file.", e);
         }
 
         batchFileStatus = verifyFileThresholds();
@@ -232,6 +322,20 @@ public class LitleBatchRequest {
         }
 	}
 
+	/**
+	 * @param transactionType
+	 * @return true if addTransaction accepts the transaction; any other is written as an empty transaction element
+	 * and counted as a FAILURE
+	 */
+	static boolean isBatchTransaction(TransactionType transactionType) {
+		return transactionType instanceof Sale || transactionType instanceof Authorization || transactionType instanceof Credit
+				|| transactionType instanceof RegisterTokenRequestType || transactionType instanceof CaptureGivenAuth
+				|| transactionType instanceof ForceCapture || transactionType instanceof AuthReversal || transactionType instanceof Capture
+				|| transactionType instanceof EcheckVerification || transactionType instanceof EcheckCredit
+				|| transactionType instanceof EcheckRedeposit || transactionType instanceof EcheckSale
+				|| transactionType instanceof UpdateCardValidationNumOnToken || transactionType instanceof AccountUpdate;
+	}
+
 	/**
 	 * This method makes sure that the maximum number of transactions per batch and file is not exceeded
 	 * This is to ensure Performance.
@@ -267,8 +371,62 @@ public class LitleBatchRequest {
 	 * Closes the batch output file
 	 * @throws IOException
 	 */
-	public void closeFile() throws IOException {
-		osWrttxn.close();
+	public synchronized void closeFile() throws IOException {
+		if (chunk != null && osWrttxn != null) {
+			if (!chunk.isEmpty()) {
+				submitChunk();
+			}
+			while (!marshalledChunks.isEmpty()) {
+				writeChunk(marshalledChunks.removeFirst());
+			}
+		}
+		if (osWrttxn != null) {
+			osWrttxn.close();
+		}
+	}
+
+	/**
+	 * Hands the chunk of transactions to the marshalling threads, then writes out the oldest chunks until no more
+	 * than batchMarshallingThreads are left in flight, so they reach the file in the order they were added.
+	 * @throws IOException
+	 */
+	private void submitChunk() throws IOException {
+		final List<JAXBElement> transactions = chunk;
+		chunk = new ArrayList<JAXBElement>(marshallingChunkSize);
+		Future<byte[]> bytes = LitleExecutors.sharedMarshallingExecutor().submit(new Callable<byte[]>() {
+			public byte[] call() throws JAXBException, IOException {
+				Marshaller marshaller = (compact ? compactChunkMarshaller : indentedChunkMarshaller).get();
+				TransactionXmlWriter writer = writeDirectly ? new TransactionXmlWriter(compact) : null;
+				ByteArrayOutputStream out = new ByteArrayOutputStream(transactions.size() * 1024);
+				for (JAXBElement transaction : transactions) {
+					if (writer == null || !writer.write(transaction, out)) {
+						marshaller.marshal(transaction, out);
+					}
+				}
+				return out.toByteArray();
+			}
+		});
+		marshalledChunks.addLast(new MarshalledChunk(bytes, transactions.size()));
+		while (marshalledChunks.size() > marshallingThreads) {
+			writeChunk(marshalledChunks.removeFirst());
+		}
+	}
+
+	private void writeChunk(MarshalledChunk marshalled) throws IOException {
+		byte[] bytes;
+		try {
+			bytes = marshalled.bytes.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new LitleBatchException("Interrupted while waiting for transactions to be marshalled.", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof JAXBException) {
+				throw new LitleBatchException("There was an exception while marshalling the transaction object.", (JAXBException) e.getCause());
+			}
+			throw new LitleBatchException("There was an exception while marshalling the transaction object.", e);
+		}
+		osWrttxn.write(bytes);
+		osWrttxn.transactionsWritten(marshalled.transactions);
 	}
 
 	/**
@@ -291,10 +449,66 @@ public class LitleBatchRequest {
         return numOfTxn;
     }
 
-    public void setNumOfTxn(int numOfTxn) {
+    public synchronized void setNumOfTxn(int numOfTxn) {
+        lbfr.transactionsAdded(numOfTxn - this.numOfTxn);
         this.numOfTxn = numOfTxn;
     }
 
+	private static class ChunkMarshaller extends ThreadLocal<Marshaller> {
+		private final boolean compact;
+
+		ChunkMarshaller(boolean compact) {
+			this.compact = compact;
+		}
 
+		@Override
+		protected Marshaller initialValue() {
+			try {
+				return RequestEnvelope.newFragmentMarshaller(compact);
+			} catch (JAXBException e) {
+				throw new LitleBatchException("Unable to load jaxb dependencies.  Perhaps a classpath issue?", e);
+			}
+		}
+	}
+
+	private static class MarshalledChunk {
+		final Future<byte[]> bytes;
+		final int transactions;
+
+		MarshalledChunk(Future<byte[]> bytes, int transactions) {
+			this.bytes = bytes;
+			this.transactions = transactions;
+		}
+	}
+
+	/**
+	 * The counts and amounts added to the batch since getBatchRequest() last copied them into the header.
+	 */
+	private static class PendingTotals {
+		long numSales;
+		long saleAmount;
+		long numAuths;
+		long authAmount;
+		long numCredits;
+		long creditAmount;
+		long numTokenRegistrations;
+		long numCaptureGivenAuths;
+		long captureGivenAuthAmount;
+		long numForceCaptures;
+		long forceCaptureAmount;
+		long numAuthReversals;
+		long authReversalAmount;
+		long numCaptures;
+		long captureAmount;
+		long numEcheckVerification;
+		long echeckVerificationAmount;
+		long numEcheckCredit;
+		long echeckCreditAmount;
+		long numEcheckRedeposit;
+		long numEcheckSales;
+		long echeckSalesAmount;
+		long numUpdateCardValidationNumOnTokens;
+		long numAccountUpdates;
+	}
 
 }
@@ -1,11 +1,12 @@
 package com.litle.sdk;
 
-import java.io.StringReader;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 import javax.xml.bind.JAXBContext;
-import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
 
 import com.litle.sdk.generate.AccountUpdateResponse;
 import com.litle.sdk.generate.AuthReversalResponse;
@@ -24,9 +25,10 @@ import com.litle.sdk.generate.SaleResponse;
 import com.litle.sdk.generate.TransactionType;
 
 /**
- * Wrapper class to initialize the batch Responses
+ * Wrapper class to initialize the batch Responses.  Its transactions can be read with getNextTransaction, with
+ * processNextTransaction, or by iterating over the batch; all three read from the same position.
  */
-public class LitleBatchResponse {
+public class LitleBatchResponse implements Iterable<TransactionType> {
 	private BatchResponse batchResponse;
 	ResponseFileParser responseFileParser;
 	private JAXBContext jc;
@@ -45,19 +47,19 @@ public class LitleBatchResponse {
 	 */
 	public LitleBatchResponse(ResponseFileParser responseFileParser) throws LitleBatchException{
 		this.responseFileParser = responseFileParser;
-		String batchResponseXML = "";
 
 		try {
-			batchResponseXML = responseFileParser.getNextTag("batchResponse");
-			//batchResponseXML = "<batchResponse litleBatchId=\"1431\" merchantId=\"101\" xmlns=\"http://www.litle.com/schema\"></batchResponse>";
-			jc = JAXBContext.newInstance("com.litle.sdk.generate");
+			jc = JAXBContextProvider.getContext();
 			unmarshaller = jc.createUnmarshaller();
-			batchResponse = (BatchResponse) unmarshaller.unmarshal(new StringReader(batchResponseXML));
+			batchResponse = responseFileParser.nextStartTag("batchResponse", BatchResponse.class, unmarshaller);
 		} catch (JAXBException e) {
-			throw new LitleBatchException("There was an exception while trying to unmarshall batchResponse: " + batchResponseXML, e);
+			throw new LitleBatchException("There was an exception while trying to unmarshall batchResponse.", e);
 		} catch (Exception e) {
 			throw new LitleBatchException("There was an unknown error while parsing the response file.", e);
 		}
+		if (batchResponse == null) {
+			throw new LitleBatchNoMoreBatchesException("All batches from this response file have already been retrieved");
+		}
 	}
 
 	void setBatchResponse(BatchResponse batchResponse) {
@@ -85,21 +87,90 @@ public class LitleBatchResponse {
 			throw new LitleBatchNoMoreBatchTransactionException("All transactions from this batch have already been retrieved");
 		}
 
-		String txnXML = "";
-
-		try{
-			txnXML = responseFileParser.getNextTag("transactionResponse");
-		} catch (Exception e) {
+		TransactionType objToRet = readNextTransaction();
+		if (objToRet == null) {
 			allTransactionsRetrieved = true;
 			throw new LitleBatchNoMoreBatchTransactionException("All transactions from this batch have already been retrieved");
 		}
+		return objToRet;
+	}
+
+	/**
+	 * Unmarshals the next transaction response straight from the response file's parser.
+	 * @return the transaction, or null at the end of the batch
+	 */
+	private TransactionType readNextTransaction() {
 		try {
-			@SuppressWarnings("unchecked")
-			TransactionType objToRet = ((JAXBElement<TransactionType>)unmarshaller.unmarshal(new StringReader(txnXML))).getValue();
-			return objToRet;
+			return responseFileParser.nextTransactionResponse(unmarshaller);
 		} catch (JAXBException e) {
-			throw new LitleBatchException("There was an exception while trying to unmarshall transactionResponse: " + txnXML, e);
+			throw new LitleBatchException("There was an exception while trying to unmarshall transactionResponse.", e);
+		} catch (XMLStreamException e) {
+			throw new LitleBatchException("There was an unknown error while parsing the response file.", e);
+		}
+	}
+
+	/**
+	 * Reads the next transaction of the batch into the view, unmarshalling only the fields of its projection.  The
+	 * rest of the batch can still be read with getNextTransaction, but from then on each transaction is parsed on its
+	 * own, which is slower than reading the batch with getNextTransaction alone.
+	 * @param view
+	 * @return true, or false once every transaction in the batch has been read
+	 */
+	public boolean nextTransaction(LitleTransactionView view) {
+		if (allTransactionsRetrieved) {
+			return false;
+		}
+		long tag = responseFileParser.nextTransactionTag();
+		if (tag < 0) {
+			allTransactionsRetrieved = true;
+			return false;
 		}
+		view.read(this, responseFileParser.getMappedFile(), tag);
+		return true;
+	}
+
+	/**
+	 * Unmarshals the transaction response at the given offset of the response file.
+	 */
+	TransactionType readTransactionAt(long offset) {
+		try {
+			return responseFileParser.transactionResponseAt(offset, unmarshaller);
+		} catch (JAXBException e) {
+			throw new LitleBatchException("There was an exception while trying to unmarshall transactionResponse.", e);
+		} catch (XMLStreamException e) {
+			throw new LitleBatchException("There was an unknown error while parsing the response file.", e);
+		}
+	}
+
+	/**
+	 * Iterates over the transactions of the batch not yet read, unmarshalling each one only when the iterator is
+	 * asked for it, so no more than one transaction is held at a time.
+	 */
+	public Iterator<TransactionType> iterator() {
+		return new Iterator<TransactionType>() {
+			private TransactionType next;
+
+			public boolean hasNext() {
+				if (next == null && !allTransactionsRetrieved) {
+					next = readNextTransaction();
+					allTransactionsRetrieved = next == null;
+				}
+				return next != null;
+			}
+
+			public TransactionType next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException("All transactions from this batch have already been retrieved");
+				}
+				TransactionType transaction = next;
+				next = null;
+				return transaction;
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
 	}
 
 	/**
@@ -109,18 +180,9 @@ public class LitleBatchResponse {
 	 * @return true or false, indicating whether another transaction was read.
 	 */
 	public boolean processNextTransaction(LitleResponseProcessor processor){
-	    String txnXml = "";
-	    TransactionType objToRet;
-	    try {
-            txnXml = responseFileParser.getNextTag("transactionResponse");
-        } catch (Exception e) {
-            return false;
-        }
-
-	    try{
-	        objToRet = ((JAXBElement<TransactionType>)unmarshaller.unmarshal(new StringReader(txnXml))).getValue();
-	    } catch (JAXBException e){
-	        throw new LitleBatchException("There was an exception while trying to unmarshall transactionResponse: " + txnXml, e);
+	    TransactionType objToRet = readNextTransaction();
+	    if (objToRet == null) {
+	        return false;
 	    }
 
 	    if(objToRet instanceof SaleResponse){
@@ -0,0 +1,143 @@
+package com.litle.sdk;
+
+import java.lang.reflect.Method;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the executors the SDK runs blocking I/O on (online requests, sFTP uploads and response polling), the one
+ * batches marshal transactions on, and the one response batches are processed on.
+ *
+ * When the configuration sets useVirtualThreads to "true" and the JVM has virtual threads (Java 21 and later),
+ * every task gets its own virtual thread, so thousands of requests waiting on the network or on the sFTP poll
+ * hold almost no OS threads.  Otherwise tasks run on platform daemon threads.  The SDK is built for Java 5, so the
+ * virtual thread executor is looked up reflectively.
+ *
+ *	Optional properties are:
+ *	useVirtualThreads (possible values "true" and "false" - defaults to false)
+ *	ioThreads (size of the platform thread pool built by newIoExecutor - defaults to 20)
+ */
+public final class LitleExecutors {
+
+	private static final int DEFAULT_IO_THREADS = 20;
+
+	private static ExecutorService sharedPlatformExecutor;
+	private static ExecutorService sharedVirtualExecutor;
+	private static ExecutorService sharedMarshallingExecutor;
+	private static ExecutorService sharedResponseExecutor;
+
+	private LitleExecutors() {
+	}
+
+	/**
+	 * Returns a new executor for blocking SDK I/O.  The caller owns it and should shut it down when done.
+	 * @param config
+	 * @param threadNamePrefix name given to platform threads
+	 * @return a virtual-thread-per-task executor, or a fixed pool of ioThreads platform daemon threads
+	 */
+	public static ExecutorService newIoExecutor(Properties config, String threadNamePrefix) {
+		if (useVirtualThreads(config)) {
+			ExecutorService virtualExecutor = newVirtualThreadExecutor();
+			if (virtualExecutor != null) {
+				return virtualExecutor;
+			}
+		}
+		int threads = Integer.parseInt(config.getProperty("ioThreads", String.valueOf(DEFAULT_IO_THREADS)));
+		return Executors.newFixedThreadPool(threads, new DaemonThreadFactory(threadNamePrefix));
+	}
+
+	/**
+	 * Returns the process-wide executor owned by the SDK.  It is never shut down; platform threads are daemons
+	 * that exit after sitting idle, so long-running polls such as sFTP retrieval do not keep the JVM alive.
+	 * @param config
+	 * @return the shared virtual-thread executor when enabled and available, otherwise the shared platform executor
+	 */
+	public static synchronized ExecutorService sharedIoExecutor(Properties config) {
+		if (useVirtualThreads(config)) {
+			if (sharedVirtualExecutor == null) {
+				sharedVirtualExecutor = newVirtualThreadExecutor();
+			}
+			if (sharedVirtualExecutor != null) {
+				return sharedVirtualExecutor;
+			}
+		}
+		if (sharedPlatformExecutor == null) {
+			sharedPlatformExecutor = Executors.newCachedThreadPool(new DaemonThreadFactory("litle-io"));
+		}
+		return sharedPlatformExecutor;
+	}
+
+	/**
+	 * Returns the process-wide executor that batches marshal transactions on when batchMarshallingThreads is set.
+	 * The work is CPU-bound, so it has one platform daemon thread per available processor.  Nothing that waits on
+	 * other tasks may run on it: a batch adding transactions waits for its chunks to be marshalled here, so a caller
+	 * occupying these threads while building a request file would wait forever.
+	 * @return the shared marshalling executor
+	 */
+	public static synchronized ExecutorService sharedMarshallingExecutor() {
+		if (sharedMarshallingExecutor == null) {
+			sharedMarshallingExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new DaemonThreadFactory("litle-marshal"));
+		}
+		return sharedMarshallingExecutor;
+	}
+
+	/**
+	 * Returns the process-wide executor that LitleBatchFileResponse.processBatchesInParallel reads batches on by
+	 * default, with one platform daemon thread per available processor.  It is kept apart from the marshalling
+	 * executor because the processors it runs are the caller's code, which may build and marshal a request file of
+	 * its own.
+	 * @return the shared response executor
+	 */
+	public static synchronized ExecutorService sharedResponseExecutor() {
+		if (sharedResponseExecutor == null) {
+			sharedResponseExecutor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+					new DaemonThreadFactory("litle-response"));
+		}
+		return sharedResponseExecutor;
+	}
+
+	/**
+	 * @return true if this JVM can run tasks on virtual threads
+	 */
+	public static boolean isVirtualThreadSupported() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	private static boolean useVirtualThreads(Properties config) {
+		return config != null && "true".equalsIgnoreCase(config.getProperty("useVirtualThreads"));
+	}
+
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) factory.invoke(null);
+		} catch (Exception e) {
+			// Older JVM (or virtual threads disabled); fall back to platform threads.
+			return null;
+		}
+	}
+
+	static class DaemonThreadFactory implements ThreadFactory {
+		private final String namePrefix;
+		private final AtomicInteger threadNumber = new AtomicInteger(1);
+
+		DaemonThreadFactory(String namePrefix) {
+			this.namePrefix = namePrefix;
+		}
+
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, namePrefix + "-" + threadNumber.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
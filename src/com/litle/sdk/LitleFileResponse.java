@@ -1,7 +1,6 @@
 package com.litle.sdk;
 
 import java.io.File;
-import java.io.StringReader;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -22,6 +21,7 @@ abstract class LitleFileResponse {
     protected Unmarshaller unmarshaller;
     protected File xmlFile;
     ResponseFileParser responseFileParser;
+    private MappedResponseFile mappedFile;
 
     public LitleFileResponse(File xmlFile) throws LitleBatchException{
         // convert from xml to objects
@@ -29,16 +29,19 @@ abstract class LitleFileResponse {
         try {
             this.xmlFile = xmlFile;
             responseFileParser = new ResponseFileParser(xmlFile);
-            String litleResponseXml = responseFileParser.getNextTag("litleResponse");
+            mappedFile = responseFileParser.getMappedFile();
 
-            jc = JAXBContext.newInstance("com.litle.sdk.generate");
+            jc = JAXBContextProvider.getContext();
             unmarshaller = jc.createUnmarshaller();
-            litleResponse = (LitleResponse) unmarshaller.unmarshal(new StringReader(litleResponseXml));
+            litleResponse = responseFileParser.nextStartTag("litleResponse", LitleResponse.class, unmarshaller);
         } catch (JAXBException e) {
             throw new LitleBatchException("There was an exception while unmarshalling the response file. Check your JAXB dependencies.", e);
         } catch (Exception e) {
             throw new LitleBatchException("There was an exception while reading the Litle response file. The response file might not have been generated. Try re-sending the request file or contact us.", e);
         }
+        if (litleResponse == null) {
+            throw new LitleBatchException("There was an exception while reading the Litle response file. The response file might not have been generated. Try re-sending the request file or contact us.");
+        }
     }
 
 
@@ -76,5 +79,31 @@ abstract class LitleFileResponse {
         this.responseFileParser = responseFileParser;
     }
 
+    /**
+     * The memory mapping of the response file, shared by everything this response reads from the file, so the file
+     * is mapped only once.
+     * @return the mapping
+     * @throws LitleBatchException if this response has been closed
+     */
+    MappedResponseFile getMappedFile() throws LitleBatchException {
+        if (mappedFile == null) {
+            throw new LitleBatchException("The response file has already been closed.");
+        }
+        return mappedFile;
+    }
+
+    /**
+     * Releases the response file.  The file itself is closed as soon as it has been mapped into memory; this lets the
+     * mapping be freed once nothing read from it is in use, after which nothing more is read from the file.
+     *
+     * Java cannot unmap a file explicitly, so the mapping lasts until the garbage collector has collected it and
+     * everything read through it.  Until then the operating system may keep the file locked: on Windows it can be
+     * neither deleted nor replaced.
+     */
+    public void close() {
+        responseFileParser.close();
+        mappedFile = null;
+    }
+
 
 }
@@ -3,16 +3,26 @@ package com.litle.sdk;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.StringReader;
 import java.io.StringWriter;
+import java.lang.reflect.Method;
+import java.util.Enumeration;
 import java.util.Properties;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
+import javax.xml.transform.Source;
+import javax.xml.transform.stream.StreamSource;
 
+import com.litle.sdk.LitleOnlineMetrics.Phase;
 import com.litle.sdk.generate.AuthReversal;
 import com.litle.sdk.generate.AuthReversalResponse;
 import com.litle.sdk.generate.Authentication;
@@ -49,31 +59,46 @@ import com.litle.sdk.generate.UpdateCardValidationNumOnToken;
 import com.litle.sdk.generate.UpdateCardValidationNumOnTokenResponse;
 import com.litle.sdk.generate.VoidResponse;
 
+/**
+ * A LitleOnline is safe to share between threads.  Its configuration is copied when it is constructed and each
+ * call borrows a Marshaller and Unmarshaller from a pool, so no two threads use one at the same time.  A pool
+ * rather than one per thread keeps the cost flat when every call runs on a fresh (virtual) thread.
+ */
 public class LitleOnline {
 
-	private JAXBContext jc;
-	private Properties config;
-	private ObjectFactory objectFactory;
-	private Marshaller marshaller;
-	private Unmarshaller unmarshaller;
-	private Communication communication;
+	private static final ConcurrentMap<Class<?>, Method> RESPONSE_CODE_GETTERS = new ConcurrentHashMap<Class<?>, Method>();
+
+	private final JAXBContext jc;
+	private final Properties config;
+	private final ObjectFactory objectFactory;
+	private final boolean streamRequests;
+	private final boolean streamResponses;
+	private final ResponseStreamHandler<LitleOnlineResponse> responseUnmarshaller = new ResponseStreamHandler<LitleOnlineResponse>() {
+		public LitleOnlineResponse handleResponse(InputStream xmlResponse) {
+			try {
+				return unmarshal(new StreamSource(xmlResponse));
+			} catch (JAXBException e) {
+				throw new LitleOnlineException("Error validating xml data against the schema", e);
+			}
+		}
+	};
+	private final Queue<Marshaller> marshallers = new ConcurrentLinkedQueue<Marshaller>();
+	private final Queue<Unmarshaller> unmarshallers = new ConcurrentLinkedQueue<Unmarshaller>();
+	private volatile Communication communication;
+	private volatile LitleOnlineMetrics metrics;
 
 	/**
 	 * Construct a LitleOnline using the configuration specified in $HOME/.litle_SDK_config.properties
 	 */
 	public LitleOnline() {
+		this(loadConfigFile());
+	}
+
+	private static Properties loadConfigFile() {
 		try {
-			jc = JAXBContext.newInstance("com.litle.sdk.generate");
-			marshaller = jc.createMarshaller();
-			unmarshaller = jc.createUnmarshaller();
-			communication = new Communication();
-			objectFactory = new ObjectFactory();
-		} catch (JAXBException e) {
-			throw new LitleOnlineException("Unable to load jaxb dependencies.  Perhaps a classpath issue?", e);
-		}
-		try {
-			config = new Properties();
+			Properties config = new Properties();
 			config.load(new FileInputStream((new Configuration()).location()));
+			return config;
 		} catch (FileNotFoundException e) {
 			throw new LitleOnlineException("Configuration file not found." +
 					" If you are not using the .litle_SDK_config.properties file," +
@@ -101,26 +126,51 @@ public class LitleOnline {
 	 *	proxyHost
 	 *	proxyPort
 	 *	printxml (possible values "true" and "false" - defaults to false)
+	 *	keepAlive (possible values "true" and "false" - defaults to false, see {@link Communication#Communication(Properties)})
+	 *	maxConnections
+	 *	maxConnectionsPerRoute
+	 *	idleConnectionTimeout (in seconds)
+	 *	staleConnectionCheck (possible values "true" and "false" - defaults to true)
+	 *	streamRequests (possible values "true" and "false" - defaults to false, marshals each request straight into the connection)
+	 *	streamResponses (possible values "true" and "false" - defaults to false, unmarshals each response straight from the connection)
+	 *	useVirtualThreads (possible values "true" and "false" - defaults to false, used by {@link LitleOnlineAsync})
 	 *
 	 * @param config
 	 */
 	public LitleOnline(Properties config) {
-		this.config = config;
+		this.config = new Properties();
+		for (Enumeration<?> names = config.propertyNames(); names.hasMoreElements();) {
+			String name = (String) names.nextElement();
+			this.config.setProperty(name, config.getProperty(name));
+		}
 		try {
-			jc = JAXBContext.newInstance("com.litle.sdk.generate");
-			marshaller = jc.createMarshaller();
-			unmarshaller = jc.createUnmarshaller();
-			communication = new Communication();
-			objectFactory = new ObjectFactory();
+			jc = JAXBContextProvider.getContext();
 		} catch (JAXBException e) {
 			throw new LitleOnlineException("Unable to load jaxb dependencies.  Perhaps a classpath issue?", e);
 		}
+		communication = new Communication(this.config);
+		objectFactory = new ObjectFactory();
+		streamRequests = "true".equalsIgnoreCase(this.config.getProperty("streamRequests"));
+		streamResponses = "true".equalsIgnoreCase(this.config.getProperty("streamResponses"));
 	}
 
 	protected void setCommunication(Communication communication) {
 		this.communication = communication;
 	}
 
+	/**
+	 * Reports the marshal, network and unmarshal time of every call, and its response code or error, to the given
+	 * metrics; a LitleOnlineStatistics keeps them in memory.  Pass null, the default, to stop recording.
+	 * @param metrics
+	 */
+	public void setMetrics(LitleOnlineMetrics metrics) {
+		this.metrics = metrics;
+	}
+
+	Properties getConfig() {
+		return this.config;
+	}
+
 	/**
 	 * <script src="https://gist.github.com/2139120.js"></script>
 	 */
@@ -447,20 +497,169 @@ public class LitleOnline {
 	}
 
 	private LitleOnlineResponse sendToLitle(LitleOnlineRequest request) throws LitleOnlineException {
+		LitleOnlineMetrics metrics = this.metrics;
+		CallTimer timer = metrics == null ? null : new CallTimer(metrics, request.getTransaction().getName().getLocalPart());
 		try {
-			StringWriter sw = new StringWriter();
-			marshaller.marshal(request, sw);
-			String xmlRequest = sw.toString();
-
-			String xmlResponse = communication.requestToServer(xmlRequest, config);
-			LitleOnlineResponse response = (LitleOnlineResponse)unmarshaller.unmarshal(new StringReader(xmlResponse));
+			LitleOnlineResponse response;
+			if (streamResponses) {
+				response = sendAndUnmarshal(request, timer);
+			} else {
+				String xmlResponse = send(request, timer);
+				response = unmarshal(new StreamSource(new StringReader(xmlResponse)));
+				if (timer != null) {
+					timer.lap(Phase.UNMARSHAL);
+				}
+			}
 			if("1".equals(response.getResponse())) {
 				throw new LitleOnlineException(response.getMessage());
 			}
+			if (timer != null) {
+				timer.finish(response);
+			}
 			return response;
 		} catch(JAXBException ume) {
-			throw new LitleOnlineException("Error validating xml data against the schema", ume);
+			LitleOnlineException e = new LitleOnlineException("Error validating xml data against the schema", ume);
+			if (timer != null) {
+				timer.error(e);
+			}
+			throw e;
+		} catch(LitleOnlineException e) {
+			if (timer != null) {
+				timer.error(e);
+			}
+			throw e;
+		}
+	}
+
+	private String send(LitleOnlineRequest request, CallTimer timer) throws JAXBException {
+		String xmlResponse;
+		if (streamRequests) {
+			Marshaller marshaller = borrowMarshaller();
+			try {
+				xmlResponse = communication.requestToServer(request, marshaller, config);
+			} finally {
+				marshallers.offer(marshaller);
+			}
+		} else {
+			String xmlRequest = marshal(request);
+			if (timer != null) {
+				timer.lap(Phase.MARSHAL);
+			}
+			xmlResponse = communication.requestToServer(xmlRequest, config);
+		}
+		if (timer != null) {
+			timer.lap(Phase.NETWORK);
+		}
+		return xmlResponse;
+	}
+
+	private LitleOnlineResponse sendAndUnmarshal(LitleOnlineRequest request, CallTimer timer) throws JAXBException {
+		LitleOnlineResponse response;
+		if (streamRequests) {
+			Marshaller marshaller = borrowMarshaller();
+			try {
+				response = communication.requestToServer(request, marshaller, config, responseUnmarshaller);
+			} finally {
+				marshallers.offer(marshaller);
+			}
+		} else {
+			String xmlRequest = marshal(request);
+			if (timer != null) {
+				timer.lap(Phase.MARSHAL);
+			}
+			response = communication.requestToServer(xmlRequest, config, responseUnmarshaller);
+		}
+		if (timer != null) {
+			timer.lap(Phase.NETWORK);
+		}
+		return response;
+	}
+
+	private String marshal(LitleOnlineRequest request) throws JAXBException {
+		StringWriter sw = new StringWriter();
+		Marshaller marshaller = borrowMarshaller();
+		try {
+			marshaller.marshal(request, sw);
+		} finally {
+			marshallers.offer(marshaller);
+		}
+		return sw.toString();
+	}
+
+	private LitleOnlineResponse unmarshal(Source xmlResponse) throws JAXBException {
+		Unmarshaller unmarshaller = borrowUnmarshaller();
+		try {
+			return (LitleOnlineResponse)unmarshaller.unmarshal(xmlResponse);
 		} finally {
+			unmarshallers.offer(unmarshaller);
+		}
+	}
+
+	private Marshaller borrowMarshaller() throws JAXBException {
+		Marshaller marshaller = marshallers.poll();
+		return marshaller != null ? marshaller : jc.createMarshaller();
+	}
+
+	private Unmarshaller borrowUnmarshaller() throws JAXBException {
+		Unmarshaller unmarshaller = unmarshallers.poll();
+		return unmarshaller != null ? unmarshaller : jc.createUnmarshaller();
+	}
+
+	/**
+	 * The response element of the transaction response, read through the getResponse() every generated response
+	 * type has; null when there is no transaction response.
+	 */
+	private static String responseCodeOf(LitleOnlineResponse response) {
+		if (response.getTransactionResponse() == null) {
+			return null;
+		}
+		Object transactionResponse = response.getTransactionResponse().getValue();
+		Class<?> type = transactionResponse.getClass();
+		try {
+			Method getter = RESPONSE_CODE_GETTERS.get(type);
+			if (getter == null) {
+				getter = type.getMethod("getResponse");
+				RESPONSE_CODE_GETTERS.put(type, getter);
+			}
+			return (String) getter.invoke(transactionResponse);
+		} catch (Exception e) {
+			// a response type without a response code is simply not counted
+			return null;
+		}
+	}
+
+	/**
+	 * Times the phases of one call and passes them, and how the call ended, to the metrics.
+	 */
+	private static final class CallTimer {
+		private final LitleOnlineMetrics metrics;
+		private final String transactionType;
+		private final long start;
+		private long lapStart;
+
+		CallTimer(LitleOnlineMetrics metrics, String transactionType) {
+			this.metrics = metrics;
+			this.transactionType = transactionType;
+			start = System.nanoTime();
+			lapStart = start;
+		}
+
+		void lap(Phase phase) {
+			long now = System.nanoTime();
+			metrics.recordLatency(transactionType, phase, now - lapStart);
+			lapStart = now;
+		}
+
+		void finish(LitleOnlineResponse response) {
+			metrics.recordLatency(transactionType, Phase.TOTAL, System.nanoTime() - start);
+			String responseCode = responseCodeOf(response);
+			if (responseCode != null) {
+				metrics.recordResponseCode(transactionType, responseCode);
+			}
+		}
+
+		void error(LitleOnlineException e) {
+			metrics.recordError(transactionType, e);
 		}
 	}
 
@@ -0,0 +1,405 @@
+package com.litle.sdk;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import com.litle.sdk.generate.AuthReversal;
+import com.litle.sdk.generate.AuthReversalResponse;
+import com.litle.sdk.generate.Authorization;
+import com.litle.sdk.generate.AuthorizationResponse;
+import com.litle.sdk.generate.Capture;
+import com.litle.sdk.generate.CaptureGivenAuth;
+import com.litle.sdk.generate.CaptureGivenAuthResponse;
+import com.litle.sdk.generate.CaptureResponse;
+import com.litle.sdk.generate.Credit;
+import com.litle.sdk.generate.CreditResponse;
+import com.litle.sdk.generate.EcheckCredit;
+import com.litle.sdk.generate.EcheckCreditResponse;
+import com.litle.sdk.generate.EcheckRedeposit;
+import com.litle.sdk.generate.EcheckRedepositResponse;
+import com.litle.sdk.generate.EcheckSale;
+import com.litle.sdk.generate.EcheckSalesResponse;
+import com.litle.sdk.generate.EcheckVerification;
+import com.litle.sdk.generate.EcheckVerificationResponse;
+import com.litle.sdk.generate.EcheckVoid;
+import com.litle.sdk.generate.EcheckVoidResponse;
+import com.litle.sdk.generate.ForceCapture;
+import com.litle.sdk.generate.ForceCaptureResponse;
+import com.litle.sdk.generate.LitleOnlineRequest;
+import com.litle.sdk.generate.RegisterTokenRequestType;
+import com.litle.sdk.generate.RegisterTokenResponse;
+import com.litle.sdk.generate.Sale;
+import com.litle.sdk.generate.SaleResponse;
+import com.litle.sdk.generate.UpdateCardValidationNumOnToken;
+import com.litle.sdk.generate.UpdateCardValidationNumOnTokenResponse;
+import com.litle.sdk.generate.VoidResponse;
+
+/**
+ * Runs LitleOnline transactions on an executor so the calling thread is not held for the network round trip.
+ * Every xxxAsync method has the same override semantics as the matching LitleOnline method.  A failed transaction
+ * surfaces from Future.get() as an ExecutionException wrapping the LitleOnlineException.
+ *
+ * Calls made through {@link #withTimeout(long, TimeUnit)} are cancelled when they run longer than the timeout, and
+ * Future.get() then throws a CancellationException.  Cancelling a call interrupts the thread running it; a request
+ * that is already on the wire is still bounded by the socket timeout of the underlying Communication.
+ */
+public class LitleOnlineAsync {
+
+	private final LitleOnline litle;
+	private final ExecutorService executor;
+	private final boolean ownsExecutor;
+	private final ScheduledThreadPoolExecutor timer;
+	private final long timeoutMillis;
+	private final boolean view;
+
+	/**
+	 * Construct a LitleOnlineAsync that runs transactions on an executor owned by this instance, built from the
+	 * LitleOnline configuration by {@link LitleExecutors#newIoExecutor(java.util.Properties, String)}: virtual threads
+	 * when useVirtualThreads is "true", otherwise a pool of daemon threads.  Call {@link #shutdown()} to release it.
+	 * @param litle
+	 */
+	public LitleOnlineAsync(LitleOnline litle) {
+		this(litle, LitleExecutors.newIoExecutor(litle.getConfig(), "litle-online-async"), true);
+	}
+
+	/**
+	 * Construct a LitleOnlineAsync that runs transactions on the caller's executor.  The executor stays the caller's
+	 * to shut down; {@link #shutdown()} only stops the timeout timer.
+	 * @param litle
+	 * @param executor
+	 */
+	public LitleOnlineAsync(LitleOnline litle, ExecutorService executor) {
+		this(litle, executor, false);
+	}
+
+	private LitleOnlineAsync(LitleOnline litle, ExecutorService executor, boolean ownsExecutor) {
+		this(litle, executor, ownsExecutor, new ScheduledThreadPoolExecutor(1, new LitleExecutors.DaemonThreadFactory("litle-online-timeout")), 0, false);
+	}
+
+	private LitleOnlineAsync(LitleOnline litle, ExecutorService executor, boolean ownsExecutor, ScheduledThreadPoolExecutor timer,
+			long timeoutMillis, boolean view) {
+		this.litle = litle;
+		this.executor = executor;
+		this.ownsExecutor = ownsExecutor;
+		this.timer = timer;
+		this.timeoutMillis = timeoutMillis;
+		this.view = view;
+	}
+
+	/**
+	 * Returns a view sharing this instance's executor whose calls are cancelled after the given timeout.  The view
+	 * owns nothing: calling shutdown() on it does nothing, and it stops working once this instance is shut down.
+	 * @param timeout
+	 * @param unit
+	 * @return a LitleOnlineAsync applying the timeout to every call made through it
+	 */
+	public LitleOnlineAsync withTimeout(long timeout, TimeUnit unit) {
+		return new LitleOnlineAsync(litle, executor, false, timer, unit.toMillis(timeout), true);
+	}
+
+	/**
+	 * Stops the timeout timer, and the executor if this instance created it.  Transactions already submitted are
+	 * allowed to finish.  Does nothing on a view returned by {@link #withTimeout(long, TimeUnit)}.
+	 */
+	public void shutdown() {
+		if (view) {
+			return;
+		}
+		if (ownsExecutor) {
+			executor.shutdown();
+		}
+		timer.shutdown();
+	}
+
+	/**
+	 * @return the number of timeouts waiting on the timer, for tests
+	 */
+	int getPendingTimeoutCount() {
+		return timer.getQueue().size();
+	}
+
+	public Future<AuthorizationResponse> authorizeAsync(final Authorization auth) {
+		return submit(new Callable<AuthorizationResponse>() {
+			public AuthorizationResponse call() {
+				return litle.authorize(auth);
+			}
+		});
+	}
+
+	public Future<AuthorizationResponse> authorizeAsync(final Authorization auth, final LitleOnlineRequest overrides) {
+		return submit(new Callable<AuthorizationResponse>() {
+			public AuthorizationResponse call() {
+				return litle.authorize(auth, overrides);
+			}
+		});
+	}
+
+	public Future<AuthReversalResponse> authReversalAsync(final AuthReversal reversal) {
+		return submit(new Callable<AuthReversalResponse>() {
+			public AuthReversalResponse call() {
+				return litle.authReversal(reversal);
+			}
+		});
+	}
+
+	public Future<AuthReversalResponse> authReversalAsync(final AuthReversal reversal, final LitleOnlineRequest overrides) {
+		return submit(new Callable<AuthReversalResponse>() {
+			public AuthReversalResponse call() {
+				return litle.authReversal(reversal, overrides);
+			}
+		});
+	}
+
+	public Future<CaptureResponse> captureAsync(final Capture capture) {
+		return submit(new Callable<CaptureResponse>() {
+			public CaptureResponse call() {
+				return litle.capture(capture);
+			}
+		});
+	}
+
+	public Future<CaptureResponse> captureAsync(final Capture capture, final LitleOnlineRequest overrides) {
+		return submit(new Callable<CaptureResponse>() {
+			public CaptureResponse call() {
+				return litle.capture(capture, overrides);
+			}
+		});
+	}
+
+	public Future<CaptureGivenAuthResponse> captureGivenAuthAsync(final CaptureGivenAuth captureGivenAuth) {
+		return submit(new Callable<CaptureGivenAuthResponse>() {
+			public CaptureGivenAuthResponse call() {
+				return litle.captureGivenAuth(captureGivenAuth);
+			}
+		});
+	}
+
+	public Future<CaptureGivenAuthResponse> captureGivenAuthAsync(final CaptureGivenAuth captureGivenAuth, final LitleOnlineRequest overrides) {
+		return submit(new Callable<CaptureGivenAuthResponse>() {
+			public CaptureGivenAuthResponse call() {
+				return litle.captureGivenAuth(captureGivenAuth, overrides);
+			}
+		});
+	}
+
+	public Future<CreditResponse> creditAsync(final Credit credit) {
+		return submit(new Callable<CreditResponse>() {
+			public CreditResponse call() {
+				return litle.credit(credit);
+			}
+		});
+	}
+
+	public Future<CreditResponse> creditAsync(final Credit credit, final LitleOnlineRequest overrides) {
+		return submit(new Callable<CreditResponse>() {
+			public CreditResponse call() {
+				return litle.credit(credit, overrides);
+			}
+		});
+	}
+
+	public Future<EcheckCreditResponse> echeckCreditAsync(final EcheckCredit echeckcredit) {
+		return submit(new Callable<EcheckCreditResponse>() {
+			public EcheckCreditResponse call() {
+				return litle.echeckCredit(echeckcredit);
+			}
+		});
+	}
+
+	public Future<EcheckCreditResponse> echeckCreditAsync(final EcheckCredit echeckcredit, final LitleOnlineRequest overrides) {
+		return submit(new Callable<EcheckCreditResponse>() {
+			public EcheckCreditResponse call() {
+				return litle.echeckCredit(echeckcredit, overrides);
+			}
+		});
+	}
+
+	public Future<EcheckRedepositResponse> echeckRedepositAsync(final EcheckRedeposit echeckRedeposit) {
+		return submit(new Callable<EcheckRedepositResponse>() {
+			public EcheckRedepositResponse call() {
+				return litle.echeckRedeposit(echeckRedeposit);
+			}
+		});
+	}
+
+	public Future<EcheckRedepositResponse> echeckRedepositAsync(final EcheckRedeposit echeckRedeposit, final LitleOnlineRequest overrides) {
+		return submit(new Callable<EcheckRedepositResponse>() {
+			public EcheckRedepositResponse call() {
+				return litle.echeckRedeposit(echeckRedeposit, overrides);
+			}
+		});
+	}
+
+	public Future<EcheckSalesResponse> echeckSaleAsync(final EcheckSale echeckSale) {
+		return submit(new Callable<EcheckSalesResponse>() {
+			public EcheckSalesResponse call() {
+				return litle.echeckSale(echeckSale);
+			}
+		});
+	}
+
+	public Future<EcheckSalesResponse> echeckSaleAsync(final EcheckSale echeckSale, final LitleOnlineRequest overrides) {
+		return submit(new Callable<EcheckSalesResponse>() {
+			public EcheckSalesResponse call() {
+				return litle.echeckSale(echeckSale, overrides);
+			}
+		});
+	}
+
+	public Future<EcheckVerificationResponse> echeckVerificationAsync(final EcheckVerification echeckVerification) {
+		return submit(new Callable<EcheckVerificationResponse>() {
+			public EcheckVerificationResponse call() {
+				return litle.echeckVerification(echeckVerification);
+			}
+		});
+	}
+
+	public Future<EcheckVerificationResponse> echeckVerificationAsync(final EcheckVerification echeckVerification, final LitleOnlineRequest overrides) {
+		return submit(new Callable<EcheckVerificationResponse>() {
+			public EcheckVerificationResponse call() {
+				return litle.echeckVerification(echeckVerification, overrides);
+			}
+		});
+	}
+
+	public Future<ForceCaptureResponse> forceCaptureAsync(final ForceCapture forceCapture) {
+		return submit(new Callable<ForceCaptureResponse>() {
+			public ForceCaptureResponse call() {
+				return litle.forceCapture(forceCapture);
+			}
+		});
+	}
+
+	public Future<ForceCaptureResponse> forceCaptureAsync(final ForceCapture forceCapture, final LitleOnlineRequest overrides) {
+		return submit(new Callable<ForceCaptureResponse>() {
+			public ForceCaptureResponse call() {
+				return litle.forceCapture(forceCapture, overrides);
+			}
+		});
+	}
+
+	public Future<SaleResponse> saleAsync(final Sale sale) {
+		return submit(new Callable<SaleResponse>() {
+			public SaleResponse call() {
+				return litle.sale(sale);
+			}
+		});
+	}
+
+	public Future<SaleResponse> saleAsync(final Sale sale, final LitleOnlineRequest overrides) {
+		return submit(new Callable<SaleResponse>() {
+			public SaleResponse call() {
+				return litle.sale(sale, overrides);
+			}
+		});
+	}
+
+	public Future<RegisterTokenResponse> registerTokenAsync(final RegisterTokenRequestType tokenRequest) {
+		return submit(new Callable<RegisterTokenResponse>() {
+			public RegisterTokenResponse call() {
+				return litle.registerToken(tokenRequest);
+			}
+		});
+	}
+
+	public Future<RegisterTokenResponse> registerTokenAsync(final RegisterTokenRequestType tokenRequest, final LitleOnlineRequest overrides) {
+		return submit(new Callable<RegisterTokenResponse>() {
+			public RegisterTokenResponse call() {
+				return litle.registerToken(tokenRequest, overrides);
+			}
+		});
+	}
+
+	public Future<VoidResponse> dovoidAsync(final com.litle.sdk.generate.Void v) {
+		return submit(new Callable<VoidResponse>() {
+			public VoidResponse call() {
+				return litle.dovoid(v);
+			}
+		});
+	}
+
+	public Future<VoidResponse> dovoidAsync(final com.litle.sdk.generate.Void v, final LitleOnlineRequest overrides) {
+		return submit(new Callable<VoidResponse>() {
+			public VoidResponse call() {
+				return litle.dovoid(v, overrides);
+			}
+		});
+	}
+
+	public Future<EcheckVoidResponse> echeckVoidAsync(final EcheckVoid echeckVoid) {
+		return submit(new Callable<EcheckVoidResponse>() {
+			public EcheckVoidResponse call() {
+				return litle.echeckVoid(echeckVoid);
+			}
+		});
+	}
+
+	public Future<EcheckVoidResponse> echeckVoidAsync(final EcheckVoid echeckVoid, final LitleOnlineRequest overrides) {
+		return submit(new Callable<EcheckVoidResponse>() {
+			public EcheckVoidResponse call() {
+				return litle.echeckVoid(echeckVoid, overrides);
+			}
+		});
+	}
+
+	public Future<UpdateCardValidationNumOnTokenResponse> updateCardValidationNumOnTokenAsync(final UpdateCardValidationNumOnToken update) {
+		return submit(new Callable<UpdateCardValidationNumOnTokenResponse>() {
+			public UpdateCardValidationNumOnTokenResponse call() {
+				return litle.updateCardValidationNumOnToken(update);
+			}
+		});
+	}
+
+	private <T> Future<T> submit(Callable<T> call) {
+		if (timeoutMillis <= 0) {
+			FutureTask<T> task = new FutureTask<T>(call);
+			executor.execute(task);
+			return task;
+		}
+		TimedTask<T> task = new TimedTask<T>(call);
+		task.timeout = timer.schedule(task.canceller, timeoutMillis, TimeUnit.MILLISECONDS);
+		try {
+			executor.execute(task);
+		} catch (RejectedExecutionException e) {
+			task.cancelTimeout();
+			throw e;
+		}
+		return task;
+	}
+
+	/**
+	 * A call whose timeout is cancelled, and taken off the timer's queue, as soon as the call completes, so the queue
+	 * only ever holds the timeouts of calls still running.  The queue is searched linearly; Java 5 has no
+	 * remove-on-cancel policy.
+	 */
+	private final class TimedTask<T> extends FutureTask<T> {
+		private final Runnable canceller = new Runnable() {
+			public void run() {
+				cancel(true);
+			}
+		};
+		private volatile ScheduledFuture<?> timeout;
+
+		TimedTask(Callable<T> call) {
+			super(call);
+		}
+
+		@Override
+		protected void done() {
+			cancelTimeout();
+		}
+
+		void cancelTimeout() {
+			ScheduledFuture<?> scheduled = timeout;
+			if (scheduled != null && scheduled.cancel(false) && scheduled instanceof Runnable) {
+				timer.remove((Runnable) scheduled);
+			}
+		}
+	}
+}
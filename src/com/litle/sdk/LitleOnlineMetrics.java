@@ -0,0 +1,37 @@
+package com.litle.sdk;
+
+/**
+ * Implement this interface and pass it to LitleOnline.setMetrics to receive timings and outcomes of online calls,
+ * for example to forward them to an application's own metrics system.  LitleOnlineStatistics is a ready made
+ * implementation that keeps histograms in memory.
+ *
+ * Every method is called on the thread making the call, so implementations must be thread-safe and quick.
+ * The transaction type is the name of the request element, such as "authorization", "sale" or "echeckSale".
+ */
+public interface LitleOnlineMetrics {
+
+	/**
+	 * The parts of an online call that are timed.  With streamRequests the request is marshalled while it is sent,
+	 * so that time is part of NETWORK and no MARSHAL time is recorded; likewise with streamResponses for UNMARSHAL.
+	 */
+	enum Phase {
+		MARSHAL,
+		NETWORK,
+		UNMARSHAL,
+		/** the whole call, recorded only for calls that succeed; a failed call is reported to recordError instead */
+		TOTAL
+	}
+
+	void recordLatency(String transactionType, Phase phase, long nanos);
+
+	/**
+	 * @param responseCode the response element of the transaction response, such as "000" for approved
+	 */
+	void recordResponseCode(String transactionType, String responseCode);
+
+	/**
+	 * @param error what the call threw: a transport failure, a schema error or a response the server rejected
+	 */
+	void recordError(String transactionType, LitleOnlineException error);
+
+}
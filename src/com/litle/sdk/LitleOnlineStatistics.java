@@ -0,0 +1,145 @@
+package com.litle.sdk;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps in memory a LatencyHistogram for every phase of every transaction type, along with counts of response codes
+ * and errors.  Hand one to LitleOnline.setMetrics, then call snapshot() or report() whenever the numbers are wanted.
+ */
+public class LitleOnlineStatistics implements LitleOnlineMetrics {
+
+	private final ConcurrentMap<String, TransactionStatistics> transactions = new ConcurrentHashMap<String, TransactionStatistics>();
+
+	public void recordLatency(String transactionType, Phase phase, long nanos) {
+		statisticsFor(transactionType).latencies[phase.ordinal()].record(nanos);
+	}
+
+	public void recordResponseCode(String transactionType, String responseCode) {
+		ConcurrentMap<String, AtomicLong> responseCodes = statisticsFor(transactionType).responseCodes;
+		AtomicLong counter = responseCodes.get(responseCode);
+		if (counter == null) {
+			AtomicLong newCounter = new AtomicLong();
+			counter = responseCodes.putIfAbsent(responseCode, newCounter);
+			if (counter == null) {
+				counter = newCounter;
+			}
+		}
+		counter.incrementAndGet();
+	}
+
+	public void recordError(String transactionType, LitleOnlineException error) {
+		statisticsFor(transactionType).errors.incrementAndGet();
+	}
+
+	/**
+	 * @return the statistics recorded so far, by transaction type in alphabetical order
+	 */
+	public SortedMap<String, TransactionSnapshot> snapshot() {
+		SortedMap<String, TransactionSnapshot> snapshot = new TreeMap<String, TransactionSnapshot>();
+		for (Map.Entry<String, TransactionStatistics> entry : transactions.entrySet()) {
+			TransactionStatistics statistics = entry.getValue();
+			LatencyHistogram.Snapshot[] latencies = new LatencyHistogram.Snapshot[statistics.latencies.length];
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i] = statistics.latencies[i].snapshot();
+			}
+			SortedMap<String, Long> responseCodes = new TreeMap<String, Long>();
+			for (Map.Entry<String, AtomicLong> code : statistics.responseCodes.entrySet()) {
+				responseCodes.put(code.getKey(), code.getValue().get());
+			}
+			snapshot.put(entry.getKey(), new TransactionSnapshot(latencies, responseCodes, statistics.errors.get()));
+		}
+		return snapshot;
+	}
+
+	/**
+	 * @return a table with one line per transaction type and phase, giving the count and the mean, median, 90th,
+	 * 99th and 99.9th percentile and maximum durations in microseconds, followed by the response code and error counts
+	 */
+	public String report() {
+		StringBuilder report = new StringBuilder();
+		report.append(String.format("%-32s %-9s %9s %9s %9s %9s %9s %9s %9s%n",
+				"transaction", "phase", "count", "mean", "p50", "p90", "p99", "p99.9", "max"));
+		for (Map.Entry<String, TransactionSnapshot> entry : snapshot().entrySet()) {
+			TransactionSnapshot transaction = entry.getValue();
+			for (Phase phase : Phase.values()) {
+				LatencyHistogram.Snapshot latency = transaction.getLatency(phase);
+				if (latency.getCount() == 0) {
+					continue;
+				}
+				report.append(String.format("%-32s %-9s %9d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+						entry.getKey(), phase.name().toLowerCase(), latency.getCount(),
+						latency.getMean() / 1000, micros(latency.getValueAtPercentile(50)),
+						micros(latency.getValueAtPercentile(90)), micros(latency.getValueAtPercentile(99)),
+						micros(latency.getValueAtPercentile(99.9)), micros(latency.getMax())));
+			}
+			report.append(String.format("%-32s responses %s, errors %d%n",
+					entry.getKey(), transaction.getResponseCodes(), transaction.getErrors()));
+		}
+		return report.toString();
+	}
+
+	private static double micros(long nanos) {
+		return nanos / 1000.0;
+	}
+
+	private TransactionStatistics statisticsFor(String transactionType) {
+		TransactionStatistics statistics = transactions.get(transactionType);
+		if (statistics == null) {
+			TransactionStatistics newStatistics = new TransactionStatistics();
+			statistics = transactions.putIfAbsent(transactionType, newStatistics);
+			if (statistics == null) {
+				statistics = newStatistics;
+			}
+		}
+		return statistics;
+	}
+
+	private static class TransactionStatistics {
+		final LatencyHistogram[] latencies = new LatencyHistogram[Phase.values().length];
+		final ConcurrentMap<String, AtomicLong> responseCodes = new ConcurrentHashMap<String, AtomicLong>();
+		final AtomicLong errors = new AtomicLong();
+
+		TransactionStatistics() {
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i] = new LatencyHistogram();
+			}
+		}
+	}
+
+	/**
+	 * The statistics of one transaction type at the time snapshot() was called.
+	 */
+	public static class TransactionSnapshot {
+		private final LatencyHistogram.Snapshot[] latencies;
+		private final SortedMap<String, Long> responseCodes;
+		private final long errors;
+
+		TransactionSnapshot(LatencyHistogram.Snapshot[] latencies, SortedMap<String, Long> responseCodes, long errors) {
+			this.latencies = latencies;
+			this.responseCodes = Collections.unmodifiableSortedMap(responseCodes);
+			this.errors = errors;
+		}
+
+		public LatencyHistogram.Snapshot getLatency(Phase phase) {
+			return latencies[phase.ordinal()];
+		}
+
+		/**
+		 * @return how many responses carried each response code
+		 */
+		public SortedMap<String, Long> getResponseCodes() {
+			return responseCodes;
+		}
+
+		public long getErrors() {
+			return errors;
+		}
+	}
+
+}
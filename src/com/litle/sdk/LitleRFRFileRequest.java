@@ -32,6 +32,7 @@ public class LitleRFRFileRequest {
     private String requestId;
     private Marshaller marshaller;
     private Configuration config = null;
+    private boolean compact;
 
 
     public LitleRFRFileRequest(String requestFileName, RFRRequest request, Properties properties){
@@ -53,17 +54,12 @@ public class LitleRFRFileRequest {
 
     public void initializeMembers(String requestFileName, Properties in_properties) throws LitleBatchException{
         try {
-            this.jc = JAXBContext.newInstance("com.litle.sdk.generate");
+            this.jc = JAXBContextProvider.getContext();
             if(config == null){
                 config = new Configuration();
             }
             this.communication = new Communication();
             this.requestFileName = requestFileName;
-            marshaller = jc.createMarshaller();
-            // JAXB_FRAGMENT property required to prevent unnecessary XML info from being printed in the file during marshal.
-            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
-            // Proper formatting of XML purely for aesthetic purposes.
-            marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
 
             if (in_properties == null || in_properties.isEmpty()) {
                 this.properties = new Properties();
@@ -72,6 +68,9 @@ public class LitleRFRFileRequest {
                 fillInMissingFieldsFromConfig(in_properties);
                 this.properties = in_properties;
             }
+            this.compact = RequestEnvelope.isCompact(properties);
+            // Indented XML unless batchCompactXml is set, purely for aesthetic purposes.
+            marshaller = RequestEnvelope.newFragmentMarshaller(compact);
 
             responseFile = getFileToWrite("batchResponseFolder");
 
@@ -97,24 +96,23 @@ public class LitleRFRFileRequest {
 
             // Code to write to the file directly
             File localFile = getFileToWrite("batchRequestFolder");
-            StringWriter writerRequest = new StringWriter();
-            StringWriter writerRFR = new StringWriter();
+            byte[] xmlRequest;
+            StringWriter xmlRFR = new StringWriter(512);
             try {
-                marshaller.marshal(litleRequest, writerRequest);
-                marshaller.marshal(rfrRequest, writerRFR);
+                xmlRequest = RequestEnvelope.openLitleRequest(marshaller, litleRequest);
+                marshaller.marshal(rfrRequest, xmlRFR);
             } catch (JAXBException e) {
                 throw new LitleBatchException("Unable to load jaxb dependencies.  Perhaps a classpath issue?");
             }
-            String xmlRequest = writerRequest.toString();
-            xmlRequest = xmlRequest.replace("</litleRequest>", " ");
-
-            String xmlRFR = writerRFR.toString();
 
             OutputStream litleReqWriter = new FileOutputStream(localFile);
-            litleReqWriter.write(xmlRequest.getBytes());
-            litleReqWriter.write(xmlRFR.getBytes());
+            litleReqWriter.write(xmlRequest);
+            if (!compact) {
+                litleReqWriter.write(' ');
+            }
+            litleReqWriter.write(RequestEnvelope.utf8(xmlRFR.toString()));
 
-            litleReqWriter.write(("</litleRequest>\n").getBytes());
+            litleReqWriter.write(RequestEnvelope.utf8("</litleRequest>\n"));
             // marshaller.marshal(litleRequest, os);
             requestFile = localFile;
             litleReqWriter.close();
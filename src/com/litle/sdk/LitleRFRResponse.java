@@ -1,7 +1,5 @@
 package com.litle.sdk;
 
-import java.io.StringReader;
-
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Unmarshaller;
@@ -24,18 +22,19 @@ public class LitleRFRResponse {
 
 	public LitleRFRResponse(ResponseFileParser responseFileParser) throws LitleBatchException{
 		this.responseFileParser = responseFileParser;
-		String rfrResponseXML = "";
 
 		try {
-			rfrResponseXML = responseFileParser.getNextTag("RFRResponse");
-			jc = JAXBContext.newInstance("com.litle.sdk.generate");
+			jc = JAXBContextProvider.getContext();
 			unmarshaller = jc.createUnmarshaller();
-			rfrResponse = (RFRResponse) unmarshaller.unmarshal(new StringReader(rfrResponseXML));
+			rfrResponse = responseFileParser.nextElement("RFRResponse", RFRResponse.class, unmarshaller);
 		} catch (JAXBException e) {
-			throw new LitleBatchException("There was an exception while trying to unmarshall rfrResponse: " + rfrResponseXML, e);
+			throw new LitleBatchException("There was an exception while trying to unmarshall rfrResponse.", e);
 		} catch (Exception e) {
 			throw new LitleBatchException("There was an unknown error while parsing the response file.", e);
 		}
+		if (rfrResponse == null) {
+			throw new LitleBatchException("The response file holds no RFRResponse.");
+		}
 	}
 
 	void setRFRResponse(RFRResponse rfrResponse) {
@@ -0,0 +1,15 @@
+package com.litle.sdk;
+
+/**
+ * Implement this interface to be told of each problem LitleBatchFileReconciler finds between a request file and its
+ * response file.  Problems are reported as they are found, one partition of the transactions at a time, so they do
+ * not come in the order of either file.
+ */
+public interface LitleReconciliationListener {
+
+	/**
+	 * @param mismatch
+	 */
+	void mismatchFound(LitleReconciliationMismatch mismatch);
+
+}
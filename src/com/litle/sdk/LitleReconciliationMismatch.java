@@ -0,0 +1,76 @@
+package com.litle.sdk;
+
+/**
+ * A transaction of a request file that did not match exactly one response of the same kind in its response file, or
+ * a response that did not match a request.  Requests and responses are matched by their id attribute, orderId and
+ * reportGroup; see LitleBatchFileReconciler.
+ */
+public final class LitleReconciliationMismatch {
+
+	public enum Type {
+		/** the request has no response */
+		MISSING_RESPONSE,
+		/** the response has no request */
+		UNEXPECTED_RESPONSE,
+		/** another request before this one has the same id, orderId and reportGroup */
+		DUPLICATE_REQUEST,
+		/** the request already has a response */
+		DUPLICATE_RESPONSE,
+		/** the response is not of the kind the request asks for, such as a creditResponse to a sale */
+		TRANSACTION_TYPE_MISMATCH
+	}
+
+	private final Type type;
+	private final String requestTransactionType;
+	private final String responseTransactionType;
+	private final String id;
+	private final String orderId;
+	private final String reportGroup;
+
+	LitleReconciliationMismatch(Type type, String requestTransactionType, String responseTransactionType, String id, String orderId,
+			String reportGroup) {
+		this.type = type;
+		this.requestTransactionType = requestTransactionType;
+		this.responseTransactionType = responseTransactionType;
+		this.id = id;
+		this.orderId = orderId;
+		this.reportGroup = reportGroup;
+	}
+
+	public Type getType() {
+		return type;
+	}
+
+	/**
+	 * @return the name of the request's element, such as "sale", or null if there is no request
+	 */
+	public String getRequestTransactionType() {
+		return requestTransactionType;
+	}
+
+	/**
+	 * @return the name of the response's element, such as "saleResponse", or null if there is no response
+	 */
+	public String getResponseTransactionType() {
+		return responseTransactionType;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getOrderId() {
+		return orderId;
+	}
+
+	public String getReportGroup() {
+		return reportGroup;
+	}
+
+	@Override
+	public String toString() {
+		return type + " [request=" + requestTransactionType + ", response=" + responseTransactionType + ", id=" + id + ", orderId=" + orderId
+				+ ", reportGroup=" + reportGroup + "]";
+	}
+
+}
@@ -0,0 +1,60 @@
+package com.litle.sdk;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The fields of the transaction responses a caller wants to read through a LitleTransactionView, rather than
+ * unmarshalling whole transactions.  A field is the name of an element in the transaction response, such as
+ * "litleTxnId" or "message", or a path to one nested in it, such as "fraudResult/avsResult" or
+ * "tokenResponse/litleToken"; only elements holding text can be read.
+ *
+ * Reading a transaction through a projection steps over every element not on the path to one of its fields
+ * without parsing it, so fraudResult, accountUpdater and the like cost only a scan of their bytes when they are not
+ * asked for.
+ */
+public final class LitleResponseProjection {
+
+	private final Map<String, Integer> fields = new HashMap<String, Integer>();
+	private final Set<String> enclosingElements = new HashSet<String>();
+
+	public LitleResponseProjection(String... fields) {
+		for (String field : fields) {
+			if (field.length() == 0 || field.startsWith("/") || field.endsWith("/")) {
+				throw new IllegalArgumentException("\"" + field + "\" is not the name of or path to an element.");
+			}
+			if (!this.fields.containsKey(field)) {
+				this.fields.put(field, this.fields.size());
+			}
+			for (int slash = field.indexOf('/'); slash >= 0; slash = field.indexOf('/', slash + 1)) {
+				enclosingElements.add(field.substring(0, slash));
+			}
+		}
+	}
+
+	/**
+	 * @return a new view to read transactions into, which can be reused for each of them
+	 */
+	public LitleTransactionView newView() {
+		return new LitleTransactionView(this);
+	}
+
+	int size() {
+		return fields.size();
+	}
+
+	/**
+	 * @return the position of the field's value in a view, or -1 if the field is not in the projection
+	 */
+	int indexOf(String field) {
+		Integer index = fields.get(field);
+		return index == null ? -1 : index.intValue();
+	}
+
+	boolean isEnclosingElement(String path) {
+		return enclosingElements.contains(path);
+	}
+
+}
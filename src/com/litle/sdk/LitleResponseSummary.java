@@ -0,0 +1,140 @@
+package com.litle.sdk;
+
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts and approved amounts of the transaction responses in a response file or one of its batches, by transaction
+ * type, by response code and by report group, and the spread of their response times.  A summary is read in one
+ * pass over the file without unmarshalling the transactions; see LitleBatchFileResponse.summarize.
+ *
+ * Amounts are the sums of the approvedAmount elements, the only amount a transaction response carries; a response
+ * without one adds nothing to them.  A response without a response code or report group is left out of the tallies
+ * by response code or by report group, but is counted everywhere else.
+ */
+public final class LitleResponseSummary {
+
+	private final long litleBatchId;
+	private final Tally total;
+	private final Map<String, Tally> byTransactionType;
+	private final Map<String, Tally> byResponseCode;
+	private final Map<String, Tally> byReportGroup;
+	private final long[] responseTimePercentiles;
+	private final List<LitleResponseSummary> batches;
+
+	LitleResponseSummary(long litleBatchId, Tally total, Map<String, Tally> byTransactionType, Map<String, Tally> byResponseCode,
+			Map<String, Tally> byReportGroup, long[] responseTimePercentiles, List<LitleResponseSummary> batches) {
+		this.litleBatchId = litleBatchId;
+		this.total = total;
+		this.byTransactionType = Collections.unmodifiableMap(byTransactionType);
+		this.byResponseCode = Collections.unmodifiableMap(byResponseCode);
+		this.byReportGroup = Collections.unmodifiableMap(byReportGroup);
+		this.responseTimePercentiles = responseTimePercentiles;
+		this.batches = Collections.unmodifiableList(batches);
+	}
+
+	/**
+	 * @return the litleBatchId of the batch summarized, or 0 for the summary of a whole file
+	 */
+	public long getLitleBatchId() {
+		return litleBatchId;
+	}
+
+	public long getTransactionCount() {
+		return total.getCount();
+	}
+
+	public long getApprovedAmount() {
+		return total.getApprovedAmount();
+	}
+
+	/**
+	 * @return the tallies by the name of the response element, such as "saleResponse", sorted by name
+	 */
+	public Map<String, Tally> getByTransactionType() {
+		return byTransactionType;
+	}
+
+	/**
+	 * @return the tallies by response code, such as "000", sorted by code
+	 */
+	public Map<String, Tally> getByResponseCode() {
+		return byResponseCode;
+	}
+
+	/**
+	 * @return the tallies by report group, sorted by name
+	 */
+	public Map<String, Tally> getByReportGroup() {
+		return byReportGroup;
+	}
+
+	/**
+	 * @return the earliest responseTime, or null if no transaction has one
+	 */
+	public Date getFirstResponseTime() {
+		return getResponseTimePercentile(0);
+	}
+
+	/**
+	 * @return the latest responseTime, or null if no transaction has one
+	 */
+	public Date getLastResponseTime() {
+		return getResponseTimePercentile(100);
+	}
+
+	/**
+	 * @param percentile from 0 to 100
+	 * @return the responseTime that the given percentage of the response times are at or before, by the nearest rank,
+	 * or null if no transaction has one
+	 */
+	public Date getResponseTimePercentile(int percentile) {
+		if (percentile < 0 || percentile > 100) {
+			throw new IllegalArgumentException("A percentile must be from 0 to 100, not " + percentile + ".");
+		}
+		return responseTimePercentiles == null ? null : new Date(responseTimePercentiles[percentile]);
+	}
+
+	/**
+	 * @return the summaries of each batch in the file, in the order they appear, or an empty list for the summary of
+	 * a batch
+	 */
+	public List<LitleResponseSummary> getBatches() {
+		return batches;
+	}
+
+	@Override
+	public String toString() {
+		return "LitleResponseSummary [litleBatchId=" + litleBatchId + ", total=" + total + ", byTransactionType=" + byTransactionType
+				+ ", byResponseCode=" + byResponseCode + ", byReportGroup=" + byReportGroup + "]";
+	}
+
+	/**
+	 * The number of transaction responses of one kind and the sum of their approved amounts.
+	 */
+	public static final class Tally {
+		private final long count;
+		private final long approvedAmount;
+
+		Tally(long count, long approvedAmount) {
+			this.count = count;
+			this.approvedAmount = approvedAmount;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getApprovedAmount() {
+			return approvedAmount;
+		}
+
+		@Override
+		public String toString() {
+			return count + "/" + approvedAmount;
+		}
+	}
+
+}
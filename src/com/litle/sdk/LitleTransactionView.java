@@ -0,0 +1,155 @@
+package com.litle.sdk;
+
+import java.util.Arrays;
+
+import com.litle.sdk.generate.TransactionType;
+
+/**
+ * The fields of one transaction response named by a LitleResponseProjection, read without unmarshalling it.  A
+ * view is reused: each call of LitleBatchResponse.nextTransaction(LitleTransactionView) replaces what it holds with
+ * the next transaction, so no more than one transaction is held however many are read.
+ *
+ * The whole transaction can still be unmarshalled with toTransaction, for the ones that turn out to need it.
+ */
+public final class LitleTransactionView {
+
+	private static final byte[] ID_ATTRIBUTE = RequestEnvelope.utf8("id");
+	private static final byte[] REPORT_GROUP_ATTRIBUTE = RequestEnvelope.utf8("reportGroup");
+	private static final byte[] CUSTOMER_ID_ATTRIBUTE = RequestEnvelope.utf8("customerId");
+
+	private final LitleResponseProjection projection;
+	private final String[] values;
+	private LitleBatchResponse batchResponse;
+	private MappedResponseFile mappedFile;
+	private long tag = -1;
+	private long tagEnd;
+	private String transactionType;
+
+	LitleTransactionView(LitleResponseProjection projection) {
+		this.projection = projection;
+		this.values = new String[projection.size()];
+	}
+
+	/**
+	 * Reads the projection's fields of the transaction response whose start tag is at the given offset, stepping
+	 * over every element that neither is one nor holds one.
+	 */
+	void read(LitleBatchResponse batchResponse, MappedResponseFile mappedFile, long tag) {
+		this.batchResponse = batchResponse;
+		this.mappedFile = mappedFile;
+		this.tag = tag;
+		Arrays.fill(values, null);
+		long limit = mappedFile.length();
+		tagEnd = mappedFile.tagEnd(tag, limit);
+		transactionType = mappedFile.localName(tag);
+		if (mappedFile.isEmptyElementTag(tagEnd)) {
+			return;
+		}
+		String path = "";
+		long position = tagEnd;
+		while (true) {
+			long child = mappedFile.nextTag(position, limit);
+			if (child < 0) {
+				throw new LitleBatchException("The response file " + mappedFile.getFile() + " ends inside an element.");
+			}
+			if (mappedFile.isEndTag(child)) {
+				if (path.length() == 0) {
+					return;
+				}
+				position = mappedFile.tagEnd(child, limit);
+				path = path.substring(0, Math.max(path.lastIndexOf('/'), 0));
+				continue;
+			}
+			String name = mappedFile.localName(child);
+			String childPath = path.length() == 0 ? name : path + "/" + name;
+			int field = projection.indexOf(childPath);
+			long childTagEnd = mappedFile.tagEnd(child, limit);
+			if (field >= 0) {
+				values[field] = mappedFile.isEmptyElementTag(childTagEnd) ? "" : ResponseFileIndex.unescape(mappedFile.textAfter(childTagEnd, limit));
+			}
+			if (projection.isEnclosingElement(childPath) && !mappedFile.isEmptyElementTag(childTagEnd)) {
+				path = childPath;
+				position = childTagEnd;
+			} else {
+				position = mappedFile.elementEnd(child, limit);
+			}
+		}
+	}
+
+	/**
+	 * @return the name of the transaction response's element, such as "saleResponse"
+	 */
+	public String getTransactionType() {
+		checkRead();
+		return transactionType;
+	}
+
+	public String getId() {
+		return attribute(ID_ATTRIBUTE);
+	}
+
+	public String getReportGroup() {
+		return attribute(REPORT_GROUP_ATTRIBUTE);
+	}
+
+	public String getCustomerId() {
+		return attribute(CUSTOMER_ID_ATTRIBUTE);
+	}
+
+	/**
+	 * @param field one of the fields of the projection
+	 * @return the text of the field's element, or null if the transaction does not have it
+	 */
+	public String get(String field) {
+		checkRead();
+		int index = projection.indexOf(field);
+		if (index < 0) {
+			throw new IllegalArgumentException("\"" + field + "\" is not one of the fields of the projection.");
+		}
+		return values[index];
+	}
+
+	/**
+	 * @return the litleTxnId, which must be one of the fields of the projection, or 0 if the transaction does not
+	 * have one
+	 */
+	public long getLitleTxnId() {
+		String litleTxnId = get("litleTxnId");
+		return litleTxnId == null ? 0 : Long.parseLong(litleTxnId.trim());
+	}
+
+	public String getOrderId() {
+		return get("orderId");
+	}
+
+	public String getResponse() {
+		return get("response");
+	}
+
+	public String getMessage() {
+		return get("message");
+	}
+
+	/**
+	 * Unmarshals the whole of the transaction response the view holds.
+	 * @return the transaction response
+	 * @throws LitleBatchException
+	 */
+	public TransactionType toTransaction() throws LitleBatchException {
+		checkRead();
+		return batchResponse.readTransactionAt(tag);
+	}
+
+	private String attribute(byte[] name) {
+		checkRead();
+		String value = mappedFile.attributeValue(tag, tagEnd, name);
+		return value == null ? null : ResponseFileIndex.unescape(value);
+	}
+
+	private void checkRead() {
+		if (tag < 0) {
+			throw new IllegalStateException("No transaction has been read into the view yet.");
+		}
+	}
+
+}
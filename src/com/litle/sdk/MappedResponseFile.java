@@ -0,0 +1,389 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A response file mapped into memory with FileChannel.map, and the few operations needed to find elements in it by
+ * looking at its raw bytes: where the next tag starts and ends, its name, and where the element it opens ends.  None
+ * of this decodes the file, so whole batches and transactions can be stepped over at the speed the bytes can be read,
+ * leaving only the parts a caller asks for to be parsed as XML.
+ *
+ * Tags are found by their '<', which in a well-formed document only appears as markup; comments, CDATA sections,
+ * processing instructions and declarations are stepped over.  Names are read as ASCII, as every name in the Litle
+ * schema is.  Files larger than 2GB are mapped as several windows.
+ */
+final class MappedResponseFile {
+
+	private static final int WINDOW_BITS = 30;
+	private static final long WINDOW_SIZE = 1L << WINDOW_BITS;
+	private static final int WINDOW_MASK = (int) (WINDOW_SIZE - 1);
+
+	private static final byte LT = '<';
+
+	private final File file;
+	private final long length;
+	private final MappedByteBuffer[] windows;
+
+	private MappedResponseFile(File file, long length, MappedByteBuffer[] windows) {
+		this.file = file;
+		this.length = length;
+		this.windows = windows;
+	}
+
+	/**
+	 * Maps the whole file read-only.  The mapping stays valid after the file is closed, and is released once it is
+	 * no longer referenced.
+	 * @param file
+	 * @return the mapped file
+	 * @throws IOException
+	 */
+	static MappedResponseFile map(File file) throws IOException {
+		RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = randomAccessFile.getChannel();
+			long length = channel.size();
+			MappedByteBuffer[] windows = new MappedByteBuffer[(int) ((length + WINDOW_SIZE - 1) >>> WINDOW_BITS)];
+			for (int i = 0; i < windows.length; i++) {
+				long start = i * WINDOW_SIZE;
+				windows[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, length - start));
+			}
+			return new MappedResponseFile(file, length, windows);
+		} finally {
+			randomAccessFile.close();
+		}
+	}
+
+	File getFile() {
+		return file;
+	}
+
+	long length() {
+		return length;
+	}
+
+	byte get(long position) {
+		return windows[(int) (position >>> WINDOW_BITS)].get((int) position & WINDOW_MASK);
+	}
+
+	/**
+	 * @param from
+	 * @param limit
+	 * @return the position of the '<' of the next start or end tag at or after from, or -1 if there is none before
+	 * limit
+	 */
+	long nextTag(long from, long limit) {
+		for (long position = indexOf(LT, from, limit); position >= 0; position = indexOf(LT, position + 1, limit)) {
+			byte next = position + 1 < limit ? get(position + 1) : 0;
+			if (next == '?') {
+				position = indexOf('?', '>', position + 2, limit) + 1;
+			} else if (next == '!') {
+				if (startsWith(position, "<!--", limit)) {
+					position = indexOf("-->", position + 4, limit) + 2;
+				} else if (startsWith(position, "<![CDATA[", limit)) {
+					position = indexOf("]]>", position + 9, limit) + 2;
+				} else {
+					position = tagEnd(position, limit) - 1;
+				}
+			} else {
+				return position;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param tagStart
+	 * @param limit
+	 * @return the position just after the '>' closing the tag, skipping any '>' inside quoted attribute values
+	 */
+	long tagEnd(long tagStart, long limit) {
+		byte quote = 0;
+		long from = tagStart + 1;
+		while (from < limit) {
+			int window = (int) (from >>> WINDOW_BITS);
+			MappedByteBuffer buffer = windows[window];
+			long windowStart = (long) window << WINDOW_BITS;
+			int end = (int) Math.min(buffer.limit(), limit - windowStart);
+			for (int i = (int) (from - windowStart); i < end; i++) {
+				byte b = buffer.get(i);
+				if (quote != 0) {
+					if (b == quote) {
+						quote = 0;
+					}
+				} else if (b == '"' || b == '\'') {
+					quote = b;
+				} else if (b == '>') {
+					return windowStart + i + 1;
+				}
+			}
+			from = windowStart + end;
+		}
+		throw unexpectedEnd();
+	}
+
+	boolean isEndTag(long tagStart) {
+		return get(tagStart + 1) == '/';
+	}
+
+	boolean isEmptyElementTag(long tagEnd) {
+		return get(tagEnd - 2) == '/';
+	}
+
+	/**
+	 * @param tagStart
+	 * @param limit
+	 * @return the position just after the end of the element whose start tag begins at tagStart
+	 */
+	long elementEnd(long tagStart, long limit) {
+		long position = tagEnd(tagStart, limit);
+		if (isEmptyElementTag(position)) {
+			return position;
+		}
+		int depth = 1;
+		while (depth > 0) {
+			long tag = nextTag(position, limit);
+			if (tag < 0) {
+				throw unexpectedEnd();
+			}
+			position = tagEnd(tag, limit);
+			if (isEndTag(tag)) {
+				depth--;
+			} else if (!isEmptyElementTag(position)) {
+				depth++;
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * @param tagStart
+	 * @return the name in the tag, with any prefix
+	 */
+	String qualifiedName(long tagStart) {
+		long start = isEndTag(tagStart) ? tagStart + 2 : tagStart + 1;
+		long end = start;
+		while (end < length && !isNameEnd(get(end))) {
+			end++;
+		}
+		char[] name = new char[(int) (end - start)];
+		for (int i = 0; i < name.length; i++) {
+			name[i] = (char) get(start + i);
+		}
+		return new String(name);
+	}
+
+	/**
+	 * @param tagStart
+	 * @return the name in the tag, without any prefix
+	 */
+	String localName(long tagStart) {
+		String name = qualifiedName(tagStart);
+		return name.substring(name.indexOf(':') + 1);
+	}
+
+	/**
+	 * @param tagStart
+	 * @param name
+	 * @return whether the tag's local name is the given one, without decoding it
+	 */
+	boolean hasLocalName(long tagStart, byte[] name) {
+		long start = isEndTag(tagStart) ? tagStart + 2 : tagStart + 1;
+		long end = start;
+		while (end < length && !isNameEnd(get(end))) {
+			if (get(end) == ':') {
+				start = end + 1;
+			}
+			end++;
+		}
+		if (end - start != name.length) {
+			return false;
+		}
+		for (int i = 0; i < name.length; i++) {
+			if (get(start + i) != name[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param tagStart
+	 * @param tagEnd
+	 * @param name
+	 * @return the raw value of the attribute with the given name in the start tag, entities and all, or null if the
+	 * tag has no such attribute
+	 */
+	String attributeValue(long tagStart, long tagEnd, byte[] name) {
+		byte quote = 0;
+		long valueStart = -1;
+		for (long position = tagStart + 1; position < tagEnd; position++) {
+			byte b = get(position);
+			if (quote != 0) {
+				if (b == quote) {
+					if (valueStart >= 0) {
+						return decode(valueStart, position);
+					}
+					quote = 0;
+				}
+			} else if (b == '"' || b == '\'') {
+				quote = b;
+			} else if (isWhitespace(b) && matches(position + 1, name, tagEnd)) {
+				long after = position + 1 + name.length;
+				while (after < tagEnd && isWhitespace(get(after))) {
+					after++;
+				}
+				if (after < tagEnd && get(after) == '=') {
+					do {
+						after++;
+					} while (after < tagEnd && isWhitespace(get(after)));
+					valueStart = after + 1;
+					position = after - 1;
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @param tagEnd the end of a start tag
+	 * @param limit
+	 * @return the raw text from tagEnd up to the next tag, entities and all
+	 */
+	String textAfter(long tagEnd, long limit) {
+		long end = indexOf(LT, tagEnd, limit);
+		if (end < 0) {
+			throw unexpectedEnd();
+		}
+		return decode(tagEnd, end);
+	}
+
+	byte[] bytes(long start, long end) {
+		byte[] bytes = new byte[(int) (end - start)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = get(start + i);
+		}
+		return bytes;
+	}
+
+	String decode(long start, long end) {
+		try {
+			return new String(bytes(start, end), "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new LitleBatchException("UTF-8 is not supported by this JVM.", e);
+		}
+	}
+
+	/**
+	 * @param start
+	 * @param end
+	 * @return a stream reading the bytes from start to end straight out of the mapping
+	 */
+	InputStream open(final long start, final long end) {
+		return new InputStream() {
+			private long position = start;
+
+			@Override
+			public int read() {
+				return position < end ? get(position++) & 0xFF : -1;
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if (position >= end) {
+					return -1;
+				}
+				int n = (int) Math.min(len, end - position);
+				int window = (int) (position >>> WINDOW_BITS);
+				int offsetInWindow = (int) position & WINDOW_MASK;
+				n = Math.min(n, windows[window].limit() - offsetInWindow);
+				ByteBuffer view = windows[window].duplicate();
+				view.position(offsetInWindow);
+				view.get(b, off, n);
+				position += n;
+				return n;
+			}
+		};
+	}
+
+	/**
+	 * Searches for a byte one window at a time, reading the window's buffer with int indexes.
+	 * @return the position of the byte, or -1 if it does not occur before limit
+	 */
+	private long indexOf(byte b, long from, long limit) {
+		while (from < limit) {
+			int window = (int) (from >>> WINDOW_BITS);
+			MappedByteBuffer buffer = windows[window];
+			long windowStart = (long) window << WINDOW_BITS;
+			int end = (int) Math.min(buffer.limit(), limit - windowStart);
+			for (int i = (int) (from - windowStart); i < end; i++) {
+				if (buffer.get(i) == b) {
+					return windowStart + i;
+				}
+			}
+			from = windowStart + end;
+		}
+		return -1;
+	}
+
+	private boolean startsWith(long position, String text, long limit) {
+		if (position + text.length() > limit) {
+			return false;
+		}
+		for (int i = 0; i < text.length(); i++) {
+			if (get(position + i) != text.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private long indexOf(char first, char second, long from, long limit) {
+		for (long position = from; position + 1 < limit; position++) {
+			if (get(position) == first && get(position + 1) == second) {
+				return position;
+			}
+		}
+		throw unexpectedEnd();
+	}
+
+	private long indexOf(String text, long from, long limit) {
+		for (long position = from; position < limit; position++) {
+			if (startsWith(position, text, limit)) {
+				return position;
+			}
+		}
+		throw unexpectedEnd();
+	}
+
+	private boolean matches(long position, byte[] bytes, long limit) {
+		if (position + bytes.length > limit) {
+			return false;
+		}
+		for (int i = 0; i < bytes.length; i++) {
+			if (get(position + i) != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+	}
+
+	private static boolean isNameEnd(byte b) {
+		return isWhitespace(b) || b == '>' || b == '/';
+	}
+
+	private LitleBatchException unexpectedEnd() {
+		return new LitleBatchException("The response file " + file + " ends inside an element.");
+	}
+
+}
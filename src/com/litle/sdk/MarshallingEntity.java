@@ -0,0 +1,65 @@
+package com.litle.sdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import org.apache.http.entity.AbstractHttpEntity;
+
+/**
+ * An http entity that marshals a JAXB object straight into the connection's output stream as UTF-8, rather than
+ * building the whole document as a String first.  The body is sent chunked because its length is not known up front.
+ */
+class MarshallingEntity extends AbstractHttpEntity {
+
+	private final Object jaxbElement;
+	private final Marshaller marshaller;
+
+	/**
+	 * @param jaxbElement the object to send
+	 * @param marshaller used only while the entity is written, and never by two threads at once
+	 */
+	MarshallingEntity(Object jaxbElement, Marshaller marshaller) {
+		this.jaxbElement = jaxbElement;
+		this.marshaller = marshaller;
+		setContentType("text/xml; charset=UTF-8");
+		setChunked(true);
+	}
+
+	public boolean isRepeatable() {
+		return true;
+	}
+
+	public long getContentLength() {
+		return -1;
+	}
+
+	public InputStream getContent() throws IOException {
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		writeTo(buffer);
+		return new ByteArrayInputStream(buffer.toByteArray());
+	}
+
+	public void writeTo(OutputStream outstream) throws IOException {
+		if (outstream == null) {
+			throw new IllegalArgumentException("Output stream may not be null");
+		}
+		try {
+			marshaller.marshal(jaxbElement, outstream);
+		} catch (JAXBException e) {
+			IOException ioe = new IOException("Unable to marshal the request");
+			ioe.initCause(e);
+			throw ioe;
+		}
+	}
+
+	public boolean isStreaming() {
+		return false;
+	}
+
+}
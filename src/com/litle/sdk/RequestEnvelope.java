@@ -0,0 +1,111 @@
+package com.litle.sdk;
+
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.util.Properties;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Marshaller;
+
+import com.litle.sdk.generate.BatchRequest;
+import com.litle.sdk.generate.LitleRequest;
+
+/**
+ * Builds the opening tags of the litleRequest and batchRequest elements that wrap the transactions of batch and RFR
+ * request files.  The elements are marshalled, encoded as UTF-8 and cut open in those bytes, so their attributes are
+ * always written by JAXB and no tag has to be found by searching the text with a regular expression.
+ *
+ *	Optional properties are:
+ *	batchCompactXml (possible values "true" and "false" - defaults to false; true leaves out the indentation and
+ *	line breaks between elements)
+ */
+final class RequestEnvelope {
+
+	private static final byte[] LITLE_REQUEST_END = utf8("</litleRequest>");
+	private static final byte[] EMPTY_ELEMENT_END = utf8("/>");
+	private static final byte[] START_TAG_END = utf8(">");
+
+	private RequestEnvelope() {
+	}
+
+	/**
+	 * @param config
+	 * @return whether request files are written without indentation
+	 */
+	static boolean isCompact(Properties config) {
+		return "true".equalsIgnoreCase(config.getProperty("batchCompactXml"));
+	}
+
+	/**
+	 * Creates a marshaller for the elements inside a request file.
+	 * @param compact
+	 * @return a marshaller writing fragments, indented unless compact
+	 * @throws JAXBException
+	 */
+	static Marshaller newFragmentMarshaller(boolean compact) throws JAXBException {
+		Marshaller marshaller = JAXBContextProvider.getContext().createMarshaller();
+		// JAXB_FRAGMENT property required to prevent unnecessary XML info from being printed in the file during marshal.
+		marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+		marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, !compact);
+		return marshaller;
+	}
+
+	/**
+	 * @param marshaller
+	 * @param litleRequest
+	 * @return the litleRequest element without its end tag, so that batches or an RFR request can follow, and with
+	 * whatever line break the marshaller put after the element
+	 * @throws JAXBException
+	 */
+	static byte[] openLitleRequest(Marshaller marshaller, LitleRequest litleRequest) throws JAXBException {
+		StringWriter out = new StringWriter(512);
+		marshaller.marshal(litleRequest, out);
+		return cut(utf8(out.toString()), LITLE_REQUEST_END, new byte[0]);
+	}
+
+	/**
+	 * @param marshaller
+	 * @param batchRequest a header without transactions, which marshals as an empty element
+	 * @return the batchRequest start tag, followed by whatever line break the marshaller put after the element
+	 * @throws JAXBException
+	 */
+	static byte[] openBatchRequest(Marshaller marshaller, BatchRequest batchRequest) throws JAXBException {
+		StringWriter out = new StringWriter(512);
+		marshaller.marshal(batchRequest, out);
+		return cut(utf8(out.toString()), EMPTY_ELEMENT_END, START_TAG_END);
+	}
+
+	/**
+	 * @return xml with the last occurrence of tag replaced by replacement
+	 */
+	private static byte[] cut(byte[] xml, byte[] tag, byte[] replacement) {
+		int at = lastIndexOf(xml, tag);
+		byte[] result = new byte[xml.length - tag.length + replacement.length];
+		System.arraycopy(xml, 0, result, 0, at);
+		System.arraycopy(replacement, 0, result, at, replacement.length);
+		System.arraycopy(xml, at + tag.length, result, at + replacement.length, xml.length - at - tag.length);
+		return result;
+	}
+
+	static byte[] utf8(String xml) {
+		try {
+			return xml.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new LitleBatchException("UTF-8 is not supported by this JVM", e);
+		}
+	}
+
+	private static int lastIndexOf(byte[] xml, byte[] tag) {
+		for (int i = xml.length - tag.length; i >= 0; i--) {
+			int j = 0;
+			while (j < tag.length && xml[i + j] == tag[j]) {
+				j++;
+			}
+			if (j == tag.length) {
+				return i;
+			}
+		}
+		throw new LitleBatchException("Unexpected XML while building the request file: " + new String(xml));
+	}
+
+}
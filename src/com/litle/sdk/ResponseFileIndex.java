@@ -0,0 +1,413 @@
+package com.litle.sdk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLStreamException;
+
+import com.litle.sdk.generate.TransactionType;
+
+/**
+ * An index of the transaction responses in a response file by their id attribute, orderId and litleTxnId, so that
+ * one of them can be read without going through the file from the start.  The index is built by one pass over the
+ * file's memory-mapped bytes (see MappedResponseFile) that looks only at the start tags of the transactions and at
+ * their orderId and litleTxnId elements, and is saved next to the response file, with the suffix ".idx", so that it
+ * is built only once.  An index file that no longer matches the response file's length and modification time is
+ * built again.
+ *
+ * Every key is held as a primitive long in a sorted array beside the offset of its transaction's start tag, so a
+ * lookup is a binary search: a litleTxnId is held as itself, an id or orderId as a 64 bit hash, which is confirmed
+ * by reading the key back from the file.
+ */
+final class ResponseFileIndex {
+
+	static final String SUFFIX = ".idx";
+
+	static final int ID = 0;
+	static final int ORDER_ID = 1;
+	static final int LITLE_TXN_ID = 2;
+	private static final int KEY_KINDS = 3;
+
+	private static final int MAGIC = 0x4c524958;
+	private static final int VERSION = 1;
+
+	private static final byte[] ID_ATTRIBUTE = RequestEnvelope.utf8("id");
+	private static final byte[] ORDER_ID_ELEMENT = RequestEnvelope.utf8("orderId");
+	private static final byte[] LITLE_TXN_ID_ELEMENT = RequestEnvelope.utf8("litleTxnId");
+
+	private final MappedResponseFile mappedFile;
+	private byte[] header;
+	private final long[][] keys = new long[KEY_KINDS][];
+	private final long[][] offsets = new long[KEY_KINDS][];
+	private final int[] sizes = new int[KEY_KINDS];
+	private ResponseFileParser parser;
+
+	private ResponseFileIndex(MappedResponseFile mappedFile) {
+		this.mappedFile = mappedFile;
+	}
+
+	/**
+	 * Loads the index saved next to the response file, or builds it and tries to save it there.  If it cannot be
+	 * saved, as when the directory is read-only, the index is used from memory and built again next time.
+	 * @param mappedFile the response file
+	 * @return the index
+	 */
+	static ResponseFileIndex open(MappedResponseFile mappedFile) {
+		File indexFile = indexFileFor(mappedFile.getFile());
+		ResponseFileIndex index = load(mappedFile, indexFile);
+		if (index == null) {
+			index = build(mappedFile);
+			try {
+				index.save(indexFile);
+			} catch (IOException e) {
+				indexFile.delete();
+			}
+		}
+		return index;
+	}
+
+	static File indexFileFor(File responseFile) {
+		return new File(responseFile.getPath() + SUFFIX);
+	}
+
+	/**
+	 * Indexes every transaction response in every batch of the file.
+	 * @param mappedFile
+	 * @return the index
+	 */
+	static ResponseFileIndex build(MappedResponseFile mappedFile) {
+		ResponseFileIndex index = new ResponseFileIndex(mappedFile);
+		for (int kind = 0; kind < KEY_KINDS; kind++) {
+			index.keys[kind] = new long[1024];
+			index.offsets[kind] = new long[1024];
+		}
+		ResponseFileParser batches = new ResponseFileParser(mappedFile);
+		long[] batch;
+		String[] transactionKeys = new String[KEY_KINDS];
+		while ((batch = batches.nextElementRange("batchResponse")) != null) {
+			long position = mappedFile.tagEnd(batch[0], batch[1]);
+			if (mappedFile.isEmptyElementTag(position)) {
+				continue;
+			}
+			long tag;
+			while ((tag = mappedFile.nextTag(position, batch[1])) >= 0 && !mappedFile.isEndTag(tag)) {
+				if (ResponseFileParser.isTransactionResponse(mappedFile.localName(tag))) {
+					position = readKeys(mappedFile, tag, batch[1], transactionKeys);
+					index.add(tag, transactionKeys);
+				} else {
+					position = mappedFile.elementEnd(tag, batch[1]);
+				}
+			}
+		}
+		index.header = batches.getHeader();
+		for (int kind = 0; kind < KEY_KINDS; kind++) {
+			sort(index.keys[kind], index.offsets[kind], index.sizes[kind]);
+		}
+		return index;
+	}
+
+	/**
+	 * Reads the keys of the transaction response whose start tag is at the given offset.
+	 * @param tag
+	 * @param limit
+	 * @param transactionKeys set to its id, orderId and litleTxnId, or to null for those it does not have
+	 * @return the position just after the end of the transaction response
+	 */
+	private static long readKeys(MappedResponseFile mappedFile, long tag, long limit, String[] transactionKeys) {
+		Arrays.fill(transactionKeys, null);
+		long position = mappedFile.tagEnd(tag, limit);
+		String id = mappedFile.attributeValue(tag, position, ID_ATTRIBUTE);
+		transactionKeys[ID] = id == null ? null : unescape(id);
+		if (mappedFile.isEmptyElementTag(position)) {
+			return position;
+		}
+		int depth = 1;
+		while (depth > 0) {
+			long child = mappedFile.nextTag(position, limit);
+			if (child < 0) {
+				throw new LitleBatchException("The response file " + mappedFile.getFile() + " ends inside an element.");
+			}
+			position = mappedFile.tagEnd(child, limit);
+			if (mappedFile.isEndTag(child)) {
+				depth--;
+			} else if (!mappedFile.isEmptyElementTag(position)) {
+				if (depth == 1 && mappedFile.hasLocalName(child, ORDER_ID_ELEMENT)) {
+					transactionKeys[ORDER_ID] = unescape(mappedFile.textAfter(position, limit));
+				} else if (depth == 1 && mappedFile.hasLocalName(child, LITLE_TXN_ID_ELEMENT)) {
+					transactionKeys[LITLE_TXN_ID] = mappedFile.textAfter(position, limit).trim();
+				}
+				depth++;
+			}
+		}
+		return position;
+	}
+
+	private void add(long tag, String[] transactionKeys) {
+		for (int kind = 0; kind < KEY_KINDS; kind++) {
+			if (transactionKeys[kind] == null) {
+				continue;
+			}
+			long key;
+			if (kind == LITLE_TXN_ID) {
+				try {
+					key = Long.parseLong(transactionKeys[kind]);
+				} catch (NumberFormatException e) {
+					continue;
+				}
+			} else {
+				key = hash(transactionKeys[kind]);
+			}
+			if (sizes[kind] == keys[kind].length) {
+				keys[kind] = grow(keys[kind]);
+				offsets[kind] = grow(offsets[kind]);
+			}
+			keys[kind][sizes[kind]] = key;
+			offsets[kind][sizes[kind]] = tag;
+			sizes[kind]++;
+		}
+	}
+
+	/**
+	 * @param kind ID or ORDER_ID
+	 * @param key
+	 * @return the offsets of the transaction responses with the key, in the order they appear in the file
+	 */
+	long[] offsetsOf(int kind, String key) {
+		long[] candidates = offsetsOf(kind, hash(key));
+		int found = 0;
+		String[] transactionKeys = new String[KEY_KINDS];
+		for (long candidate : candidates) {
+			readKeys(mappedFile, candidate, mappedFile.length(), transactionKeys);
+			if (key.equals(transactionKeys[kind])) {
+				candidates[found++] = candidate;
+			}
+		}
+		return found == candidates.length ? candidates : copyOf(candidates, found);
+	}
+
+	/**
+	 * @param litleTxnId
+	 * @return the offsets of the transaction responses with the litleTxnId, in the order they appear in the file
+	 */
+	long[] offsetsOfLitleTxnId(long litleTxnId) {
+		return offsetsOf(LITLE_TXN_ID, litleTxnId);
+	}
+
+	private long[] offsetsOf(int kind, long key) {
+		long[] sortedKeys = keys[kind];
+		int low = 0;
+		int high = sizes[kind];
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (sortedKeys[middle] < key) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		int end = low;
+		while (end < sizes[kind] && sortedKeys[end] == key) {
+			end++;
+		}
+		long[] found = new long[end - low];
+		System.arraycopy(offsets[kind], low, found, 0, found.length);
+		Arrays.sort(found);
+		return found;
+	}
+
+	/**
+	 * Unmarshals the transaction response at an offset found in the index.
+	 * @param offset
+	 * @param unmarshaller
+	 * @return the transaction response
+	 * @throws XMLStreamException
+	 * @throws JAXBException
+	 */
+	TransactionType read(long offset, Unmarshaller unmarshaller) throws XMLStreamException, JAXBException {
+		if (parser == null) {
+			parser = new ResponseFileParser(mappedFile, header, 0, mappedFile.length());
+		}
+		return parser.transactionResponseAt(offset, unmarshaller);
+	}
+
+	int size(int kind) {
+		return sizes[kind];
+	}
+
+	private void save(File indexFile) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(indexFile), 64 * 1024));
+		try {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(mappedFile.getFile().length());
+			out.writeLong(mappedFile.getFile().lastModified());
+			out.writeInt(header == null ? -1 : header.length);
+			if (header != null) {
+				out.write(header);
+			}
+			for (int kind = 0; kind < KEY_KINDS; kind++) {
+				out.writeInt(sizes[kind]);
+				for (int i = 0; i < sizes[kind]; i++) {
+					out.writeLong(keys[kind][i]);
+				}
+				for (int i = 0; i < sizes[kind]; i++) {
+					out.writeLong(offsets[kind][i]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * @return the saved index, or null if there is none, or it is damaged or does not match the response file
+	 */
+	private static ResponseFileIndex load(MappedResponseFile mappedFile, File indexFile) {
+		if (!indexFile.isFile()) {
+			return null;
+		}
+		try {
+			DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile), 64 * 1024));
+			try {
+				if (in.readInt() != MAGIC || in.readInt() != VERSION
+						|| in.readLong() != mappedFile.getFile().length() || in.readLong() != mappedFile.getFile().lastModified()) {
+					return null;
+				}
+				ResponseFileIndex index = new ResponseFileIndex(mappedFile);
+				int headerLength = in.readInt();
+				if (headerLength >= 0) {
+					index.header = new byte[headerLength];
+					in.readFully(index.header);
+				}
+				for (int kind = 0; kind < KEY_KINDS; kind++) {
+					int size = in.readInt();
+					index.sizes[kind] = size;
+					index.keys[kind] = new long[size];
+					index.offsets[kind] = new long[size];
+					for (int i = 0; i < size; i++) {
+						index.keys[kind][i] = in.readLong();
+					}
+					for (int i = 0; i < size; i++) {
+						index.offsets[kind][i] = in.readLong();
+					}
+				}
+				return index;
+			} finally {
+				in.close();
+			}
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * The 64 bit FNV-1a hash of the key's characters.
+	 */
+	static long hash(String key) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < key.length(); i++) {
+			hash ^= key.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Replaces the predefined entities and character references in raw XML text.
+	 */
+	static String unescape(String text) {
+		int ampersand = text.indexOf('&');
+		if (ampersand < 0) {
+			return text;
+		}
+		StringBuilder unescaped = new StringBuilder(text.length());
+		int copied = 0;
+		while (ampersand >= 0) {
+			int semicolon = text.indexOf(';', ampersand);
+			if (semicolon < 0) {
+				break;
+			}
+			unescaped.append(text, copied, ampersand);
+			String entity = text.substring(ampersand + 1, semicolon);
+			if (entity.equals("amp")) {
+				unescaped.append('&');
+			} else if (entity.equals("lt")) {
+				unescaped.append('<');
+			} else if (entity.equals("gt")) {
+				unescaped.append('>');
+			} else if (entity.equals("quot")) {
+				unescaped.append('"');
+			} else if (entity.equals("apos")) {
+				unescaped.append('\'');
+			} else if (entity.startsWith("#x")) {
+				unescaped.appendCodePoint(Integer.parseInt(entity.substring(2), 16));
+			} else if (entity.startsWith("#")) {
+				unescaped.appendCodePoint(Integer.parseInt(entity.substring(1)));
+			} else {
+				unescaped.append(text, ampersand, semicolon + 1);
+			}
+			copied = semicolon + 1;
+			ampersand = text.indexOf('&', copied);
+		}
+		return unescaped.append(text, copied, text.length()).toString();
+	}
+
+	/**
+	 * Sorts the keys, moving each value with its key, by heap sort so that no boxing or extra arrays are needed.
+	 */
+	private static void sort(long[] keys, long[] values, int size) {
+		for (int i = size / 2 - 1; i >= 0; i--) {
+			siftDown(keys, values, i, size);
+		}
+		for (int end = size - 1; end > 0; end--) {
+			swap(keys, values, 0, end);
+			siftDown(keys, values, 0, end);
+		}
+	}
+
+	private static void siftDown(long[] keys, long[] values, int i, int size) {
+		while (true) {
+			int child = 2 * i + 1;
+			if (child >= size) {
+				return;
+			}
+			if (child + 1 < size && keys[child + 1] > keys[child]) {
+				child++;
+			}
+			if (keys[i] >= keys[child]) {
+				return;
+			}
+			swap(keys, values, i, child);
+			i = child;
+		}
+	}
+
+	private static void swap(long[] keys, long[] values, int i, int j) {
+		long key = keys[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		long value = values[i];
+		values[i] = values[j];
+		values[j] = value;
+	}
+
+	private static long[] grow(long[] array) {
+		return copyOf(array, array.length * 2);
+	}
+
+	private static long[] copyOf(long[] array, int length) {
+		long[] copy = new long[length];
+		System.arraycopy(array, 0, copy, 0, Math.min(array.length, length));
+		return copy;
+	}
+
+}
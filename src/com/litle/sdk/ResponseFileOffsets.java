@@ -0,0 +1,71 @@
+package com.litle.sdk;
+
+/**
+ * The byte offsets of the batchResponse elements of a response file, found by one pass over its memory-mapped bytes
+ * without parsing the XML, so that each batch can be read by a parser of its own.
+ */
+final class ResponseFileOffsets {
+
+	private final MappedResponseFile mappedFile;
+	private long[] starts = new long[16];
+	private long[] ends = new long[16];
+	private int batchCount;
+	private byte[] header;
+
+	private ResponseFileOffsets(MappedResponseFile mappedFile) {
+		this.mappedFile = mappedFile;
+	}
+
+	/**
+	 * Records where each batchResponse element of the mapped file starts and ends.
+	 * @param mappedFile
+	 * @return the offsets
+	 */
+	static ResponseFileOffsets scan(MappedResponseFile mappedFile) {
+		ResponseFileOffsets offsets = new ResponseFileOffsets(mappedFile);
+		ResponseFileParser scanner = new ResponseFileParser(offsets.mappedFile);
+		long[] batch;
+		while ((batch = scanner.nextElementRange("batchResponse")) != null) {
+			offsets.addBatch(batch[0], batch[1]);
+		}
+		offsets.header = scanner.getHeader();
+		return offsets;
+	}
+
+	private void addBatch(long start, long end) {
+		if (batchCount == starts.length) {
+			starts = grow(starts);
+			ends = grow(ends);
+		}
+		starts[batchCount] = start;
+		ends[batchCount] = end;
+		batchCount++;
+	}
+
+	private static long[] grow(long[] array) {
+		long[] larger = new long[array.length * 2];
+		System.arraycopy(array, 0, larger, 0, array.length);
+		return larger;
+	}
+
+	int getBatchCount() {
+		return batchCount;
+	}
+
+	long getBatchStart(int batch) {
+		return starts[batch];
+	}
+
+	long getBatchEnd(int batch) {
+		return ends[batch];
+	}
+
+	/**
+	 * @param batch
+	 * @return a parser that reads only the given batch
+	 */
+	ResponseFileParser newBatchParser(int batch) {
+		return new ResponseFileParser(mappedFile, header, starts[batch], ends[batch]);
+	}
+
+}
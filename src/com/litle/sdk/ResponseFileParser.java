@@ -1,183 +1,533 @@
-package com.litle.sdk;
-
-import java.io.BufferedReader;
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileNotFoundException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.Reader;
-
-public class ResponseFileParser {
-	private File fileToParse = null;
-	InputStream in = null;
-	Reader reader = null;
-	Reader buffer = null;
-
-	public ResponseFileParser(File responseFile) {
-		try {
-			fileToParse = responseFile;
-			in = new FileInputStream(fileToParse);
-			reader = new InputStreamReader(in);
-			buffer = new BufferedReader(reader);
-		} catch (FileNotFoundException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
-		}
-	}
-
-	public String getNextTag(String tagToLookFor) throws Exception {
-		StringBuffer currentStartingTagInFile = new StringBuffer();
-		StringBuffer retStringBuf = new StringBuffer();
-		StringBuffer currentEndingTagInFile = new StringBuffer();
-
-		boolean startRecordingStartingTag = false;
-		boolean startRecordingEndingTag = false;
-		boolean startRecordingRetString = false;
-
-		char lastChar = 0;
-
-		String openingTagToLookFor = "<" + tagToLookFor;
-		String closingTagToLookFor = "</" + tagToLookFor + ">";
-
-		int r = 0;
-		while ((r = buffer.read()) != -1) {
-			char ch = (char) r;
-
-			if (startRecordingRetString) {
-				retStringBuf.append(ch);
-
-				if (lastChar == '<' && ch == '/') {
-					startRecordingEndingTag = true;
-					currentEndingTagInFile.append(lastChar);
-				}
-
-				// override process for elements like litleResponse and
-				// batchResponse
-				if ((tagToLookFor.compareToIgnoreCase("batchResponse") == 0 || tagToLookFor
-						.compareToIgnoreCase("litleResponse") == 0)
-						&& ch == '>') {
-					retStringBuf.append(closingTagToLookFor);
-					break;
-				}
-			}
-
-			// We want to look for startingTag only if we aren't already
-			// recording the string to return.
-			if (ch == '<' && !startRecordingRetString) {
-				startRecordingStartingTag = true;
-			}
-
-			if (startRecordingStartingTag) {
-				currentStartingTagInFile.append(ch);
-
-				if (okToStartRecordingString(openingTagToLookFor,
-						currentStartingTagInFile.toString())) {
-					startRecordingRetString = true;
-					retStringBuf.append(currentStartingTagInFile);
-					if( openingTagToLookFor.compareToIgnoreCase("<litleResponse") != 0 ){
-						retStringBuf.append(" xmlns=\"http://www.litle.com/schema\"");
-					}
-					startRecordingStartingTag = false;
-					currentStartingTagInFile.delete(0,
-							currentStartingTagInFile.length());
-				}
-
-				// tag declaration has ended. Safe to discard.
-				if (ch == '>') {
-					if (tagToLookFor.compareToIgnoreCase("transactionResponse") == 0
-							&& currentStartingTagInFile.toString()
-									.compareToIgnoreCase("</batchResponse>") == 0) {
-						// Presumably this will only happen when the user is
-						// requesting a new transaction info,
-						// but all transactions have been exhausted. i.e. this
-						// one is a batchResponse
-						throw new Exception(
-								"All payments in this batch have already been retrieved.");
-					}
-					startRecordingStartingTag = false;
-					currentStartingTagInFile.delete(0,
-							currentStartingTagInFile.length());
-				}
-			}
-
-			if (startRecordingEndingTag) {
-				currentEndingTagInFile.append(ch);
-				if (ch == '>') {
-					startRecordingEndingTag = false;
-					if (okToStopRecordingString(closingTagToLookFor,
-							currentEndingTagInFile.toString())) {
-						startRecordingRetString = false;
-						// currentEndingTagInFile.delete(0,
-						// currentEndingTagInFile.length());
-						break;
-					}
-					currentEndingTagInFile.delete(0,
-							currentEndingTagInFile.length());
-				}
-			}
-
-			lastChar = ch;
-		}
-		return retStringBuf.toString();
-	}
-
-	boolean okToStartRecordingString(String openingTagToLookFor,
-			String currentStartingTagInFile) {
-		boolean retVal = false;
-
-		// we're looking for all transactionResponses
-		if (openingTagToLookFor.compareToIgnoreCase("<transactionResponse") == 0
-				&& (currentStartingTagInFile
-						.compareToIgnoreCase("<authorizationResponse") == 0
-						|| currentStartingTagInFile.compareToIgnoreCase("<saleResponse") == 0
-						|| currentStartingTagInFile.compareToIgnoreCase("<captureResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<forceCaptureResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<captureGivenAuthResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<creditResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<echeckSaleResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<echeckCreditResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<echeckVerificationResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<echeckRedepositResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<authReversalResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<registerTokenResponse") == 0
-	                    || currentStartingTagInFile.compareToIgnoreCase("<accountUpdateResponse") == 0)) {
-			retVal = true;
-		} else if (openingTagToLookFor
-				.compareToIgnoreCase(currentStartingTagInFile) == 0) {
-			retVal = true;
-		}
-
-		return retVal;
-	}
-
-	boolean okToStopRecordingString(String closingTagToLookFor,
-			String currentStartingTagInFile) {
-		boolean retVal = false;
-
-		// we're looking for all transactionResponses
-		if (closingTagToLookFor.compareToIgnoreCase("</transactionResponse>") == 0
-				&& (currentStartingTagInFile
-						.compareToIgnoreCase("</authorizationResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</saleResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</captureResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</forceCaptureResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</captureGivenAuthResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</creditResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</echeckSaleResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</echeckCreditResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</echeckVerificationResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</echeckRedepositResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</authReversalResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</registerTokenResponse>") == 0
-					|| currentStartingTagInFile.compareToIgnoreCase("</accountUpdateResponse>") == 0)) {
-
-			retVal = true;
-		} else if (closingTagToLookFor
-				.compareToIgnoreCase(currentStartingTagInFile) == 0) {
-			retVal = true;
-		}
-
-		return retVal;
-	}
-}
+package com.litle.sdk;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+
+import javax.xml.bind.JAXBException;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.util.StreamReaderDelegate;
+
+import com.litle.sdk.generate.AccountUpdateResponse;
+import com.litle.sdk.generate.AuthReversalResponse;
+import com.litle.sdk.generate.AuthorizationResponse;
+import com.litle.sdk.generate.CaptureGivenAuthResponse;
+import com.litle.sdk.generate.CaptureResponse;
+import com.litle.sdk.generate.CreditResponse;
+import com.litle.sdk.generate.EcheckCreditResponse;
+import com.litle.sdk.generate.EcheckRedepositResponse;
+import com.litle.sdk.generate.EcheckSalesResponse;
+import com.litle.sdk.generate.EcheckVerificationResponse;
+import com.litle.sdk.generate.ForceCaptureResponse;
+import com.litle.sdk.generate.RegisterTokenResponse;
+import com.litle.sdk.generate.SaleResponse;
+import com.litle.sdk.generate.TransactionType;
+
+/**
+ * Reads a response file from start to end.  The file is memory-mapped and the litleResponse, batchResponse and
+ * RFRResponse elements are found by scanning its raw bytes (see MappedResponseFile), so batches the caller moves past
+ * without reading their transactions are never decoded.  Only the slices the caller asks for are parsed, with a StAX
+ * pull parser: the start tag of litleResponse, and a batch once it is asked for, whose transactions are each
+ * unmarshalled straight from the parser without being copied into a String.
+ *
+ * Each slice is parsed with the start of the file up to the end of the litleResponse start tag in front of it, so
+ * the XML declaration and the namespace apply to it as they do in the file.
+ */
+public class ResponseFileParser {
+
+	static final String NAMESPACE = "http://www.litle.com/schema";
+
+	private static final byte[] LITLE_RESPONSE = RequestEnvelope.utf8("litleResponse");
+	private static final byte[] BATCH_RESPONSE = RequestEnvelope.utf8("batchResponse");
+	private static final byte[] LITLE_RESPONSE_END = RequestEnvelope.utf8("</litleResponse>");
+	private static final byte[] DEFAULT_HEADER = RequestEnvelope.utf8("<litleResponse xmlns=\"" + NAMESPACE + "\">");
+
+	private static final XMLInputFactory inputFactory = newInputFactory();
+	private static final XMLOutputFactory outputFactory = XMLOutputFactory.newInstance();
+	private static final Map<String, Class<? extends TransactionType>> transactionResponseTypes = new HashMap<String, Class<? extends TransactionType>>();
+
+	static {
+		transactionResponseTypes.put("authorizationResponse", AuthorizationResponse.class);
+		transactionResponseTypes.put("saleResponse", SaleResponse.class);
+		transactionResponseTypes.put("captureResponse", CaptureResponse.class);
+		transactionResponseTypes.put("forceCaptureResponse", ForceCaptureResponse.class);
+		transactionResponseTypes.put("captureGivenAuthResponse", CaptureGivenAuthResponse.class);
+		transactionResponseTypes.put("creditResponse", CreditResponse.class);
+		transactionResponseTypes.put("echeckSalesResponse", EcheckSalesResponse.class);
+		transactionResponseTypes.put("echeckCreditResponse", EcheckCreditResponse.class);
+		transactionResponseTypes.put("echeckVerificationResponse", EcheckVerificationResponse.class);
+		transactionResponseTypes.put("echeckRedepositResponse", EcheckRedepositResponse.class);
+		transactionResponseTypes.put("authReversalResponse", AuthReversalResponse.class);
+		transactionResponseTypes.put("registerTokenResponse", RegisterTokenResponse.class);
+		transactionResponseTypes.put("accountUpdateResponse", AccountUpdateResponse.class);
+	}
+
+	private MappedResponseFile mappedFile;
+	private byte[] header;
+	private long position;
+	private final long limit;
+	private long openedTag;
+	private int transactionsRead;
+	private long transactionCursor = -1;
+	XMLStreamReader reader = null;
+
+	public ResponseFileParser(File responseFile) {
+		this(map(responseFile));
+	}
+
+	ResponseFileParser(MappedResponseFile mappedFile) {
+		this(mappedFile, null, 0, mappedFile.length());
+	}
+
+	/**
+	 * Parses part of a response file, such as one of its batches.
+	 * @param mappedFile
+	 * @param header the start of the file up to the end of the litleResponse start tag
+	 * @param start
+	 * @param end
+	 */
+	ResponseFileParser(MappedResponseFile mappedFile, byte[] header, long start, long end) {
+		this.mappedFile = mappedFile;
+		this.header = header;
+		this.position = start;
+		this.limit = end;
+	}
+
+	private static MappedResponseFile map(File responseFile) {
+		try {
+			return MappedResponseFile.map(responseFile);
+		} catch (IOException e) {
+			throw new LitleBatchException("The response file " + responseFile + " could not be opened.", e);
+		}
+	}
+
+	private static XMLInputFactory newInputFactory() {
+		XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		return factory;
+	}
+
+	/**
+	 * Unmarshals the attributes of the next element with the given name, leaving what it contains to later calls.
+	 * @param elementName
+	 * @param type
+	 * @param unmarshaller
+	 * @return the element, or null if the file has no more of them
+	 * @throws XMLStreamException
+	 * @throws JAXBException
+	 */
+	<T> T nextStartTag(String elementName, Class<T> type, Unmarshaller unmarshaller) throws XMLStreamException, JAXBException {
+		if (!openNext(elementName)) {
+			return null;
+		}
+		StartTagReader startTag = new StartTagReader(reader);
+		T value = unmarshaller.unmarshal(startTag, type).getValue();
+		if (!startTag.advanced) {
+			reader.next();
+		}
+		return value;
+	}
+
+	/**
+	 * Unmarshals the whole of the next element with the given name.
+	 * @param elementName
+	 * @param type
+	 * @param unmarshaller
+	 * @return the element, or null if the file has no more of them
+	 * @throws XMLStreamException
+	 * @throws JAXBException
+	 */
+	<T> T nextElement(String elementName, Class<T> type, Unmarshaller unmarshaller) throws XMLStreamException, JAXBException {
+		if (!openNext(elementName)) {
+			return null;
+		}
+		T value = unmarshaller.unmarshal(reader, type).getValue();
+		closeReader();
+		return value;
+	}
+
+	/**
+	 * Unmarshals the next transaction response of the batch being read.
+	 * @param unmarshaller
+	 * @return the transaction response, or null once the end of the batchResponse element is reached
+	 * @throws XMLStreamException
+	 * @throws JAXBException
+	 */
+	TransactionType nextTransactionResponse(Unmarshaller unmarshaller) throws XMLStreamException, JAXBException {
+		if (transactionCursor >= 0) {
+			long tag = nextTransactionTag();
+			return tag < 0 ? null : transactionResponseAt(tag, unmarshaller);
+		}
+		if (!advanceTo(null, "batchResponse")) {
+			return null;
+		}
+		transactionsRead++;
+		return unmarshaller.unmarshal(reader, transactionResponseTypes.get(reader.getLocalName())).getValue();
+	}
+
+	/**
+	 * Finds the next transaction response of the batch being read by its bytes, without parsing it, and moves past
+	 * it.  The first call moves the rest of the batch over to being read this way, stepping over the transactions
+	 * already read with the pull parser; nextTransactionResponse then reads each of the rest with a parser of its own.
+	 * @return the offset in the file of the start tag of the transaction response, or -1 once the end of the
+	 * batchResponse element is reached
+	 */
+	long nextTransactionTag() {
+		if (transactionCursor < 0) {
+			if (reader == null || mappedFile == null || !mappedFile.hasLocalName(openedTag, BATCH_RESPONSE)) {
+				return -1;
+			}
+			closeReader();
+			transactionCursor = mappedFile.tagEnd(openedTag, position);
+			if (mappedFile.isEmptyElementTag(transactionCursor)) {
+				transactionCursor = position;
+			}
+			for (int i = 0; i < transactionsRead; i++) {
+				nextTransactionTag();
+			}
+		}
+		while (true) {
+			long tag = mappedFile.nextTag(transactionCursor, position);
+			if (tag < 0 || mappedFile.isEndTag(tag)) {
+				transactionCursor = position;
+				return -1;
+			}
+			transactionCursor = mappedFile.elementEnd(tag, position);
+			if (transactionResponseTypes.containsKey(mappedFile.localName(tag))) {
+				return tag;
+			}
+		}
+	}
+
+	MappedResponseFile getMappedFile() {
+		return mappedFile;
+	}
+
+	/**
+	 * Unmarshals the transaction response whose start tag is at the given offset, such as one found in a
+	 * ResponseFileIndex, without reading anything else in the file.
+	 * @param tag
+	 * @param unmarshaller
+	 * @return the transaction response
+	 * @throws XMLStreamException
+	 * @throws JAXBException
+	 */
+	TransactionType transactionResponseAt(long tag, Unmarshaller unmarshaller) throws XMLStreamException, JAXBException {
+		closeReader();
+		long end = mappedFile.elementEnd(tag, limit);
+		reader = openSlice(mappedFile.open(tag, end), LITLE_RESPONSE_END, 2);
+		Class<? extends TransactionType> type = transactionResponseTypes.get(reader.getLocalName());
+		if (type == null) {
+			throw new LitleBatchException("There is no transaction response at offset " + tag + " of the response file.");
+		}
+		TransactionType transaction = unmarshaller.unmarshal(reader, type).getValue();
+		closeReader();
+		return transaction;
+	}
+
+	/**
+	 * @param in
+	 * @return a pull parser over the stream, set up as the parser of the slices of a response file is
+	 * @throws XMLStreamException
+	 */
+	static XMLStreamReader newReader(InputStream in) throws XMLStreamException {
+		return inputFactory.createXMLStreamReader(in);
+	}
+
+	static boolean isTransactionResponse(String elementName) {
+		return transactionResponseTypes.containsKey(elementName);
+	}
+
+	/**
+	 * Finds the next element with the given name without parsing it, and moves past it.
+	 * @param elementName
+	 * @return the offsets in the file at which the element starts and ends, or null if the file has no more of them
+	 */
+	long[] nextElementRange(String elementName) {
+		closeReader();
+		long tag = find(RequestEnvelope.utf8(elementName));
+		if (tag < 0) {
+			return null;
+		}
+		position = mappedFile.elementEnd(tag, limit);
+		return new long[] { tag, position };
+	}
+
+	/**
+	 * @return the start of the file up to the end of the litleResponse start tag, once the parser has moved past it
+	 */
+	byte[] getHeader() {
+		return header;
+	}
+
+	/**
+	 * Finds the next element with the given name by its bytes, and opens a pull parser positioned at its start; the
+	 * litleResponse element is opened without its contents.
+	 * @return false if the file has no more of them
+	 */
+	private boolean openNext(String elementName) throws XMLStreamException {
+		closeReader();
+		transactionsRead = 0;
+		transactionCursor = -1;
+		long tag = find(RequestEnvelope.utf8(elementName));
+		if (tag < 0) {
+			return false;
+		}
+		long end;
+		if (mappedFile.hasLocalName(tag, LITLE_RESPONSE)) {
+			end = mappedFile.tagEnd(tag, limit);
+			setHeader(end);
+			byte[] endTag = mappedFile.isEmptyElementTag(end) ? new byte[0] : RequestEnvelope.utf8("</" + mappedFile.qualifiedName(tag) + ">");
+			reader = openSlice(mappedFile.open(0, end), endTag, 1);
+		} else {
+			end = mappedFile.elementEnd(tag, limit);
+			reader = openSlice(mappedFile.open(tag, end), LITLE_RESPONSE_END, 2);
+		}
+		openedTag = tag;
+		position = end;
+		return true;
+	}
+
+	/**
+	 * Moves the byte position to the start tag of the next element with the given name, stepping over other elements
+	 * whole and into litleResponse.
+	 * @return the position of the start tag, or -1 if there is none
+	 */
+	private long find(byte[] elementName) {
+		if (mappedFile == null) {
+			return -1;
+		}
+		while (true) {
+			long tag = mappedFile.nextTag(position, limit);
+			if (tag < 0) {
+				position = limit;
+				return -1;
+			}
+			if (mappedFile.isEndTag(tag)) {
+				position = mappedFile.tagEnd(tag, limit);
+			} else if (mappedFile.hasLocalName(tag, elementName)) {
+				return tag;
+			} else if (mappedFile.hasLocalName(tag, LITLE_RESPONSE)) {
+				position = mappedFile.tagEnd(tag, limit);
+				setHeader(position);
+			} else {
+				position = mappedFile.elementEnd(tag, limit);
+			}
+		}
+	}
+
+	private void setHeader(long litleResponseTagEnd) {
+		if (header == null) {
+			header = mappedFile.bytes(0, litleResponseTagEnd);
+		}
+	}
+
+	/**
+	 * @param slice
+	 * @param suffix what closes the document after the slice
+	 * @param depth 1 to position the parser at the document's root, 2 at the root's first child
+	 */
+	private XMLStreamReader openSlice(InputStream slice, byte[] suffix, int depth) throws XMLStreamException {
+		Vector<InputStream> parts = new Vector<InputStream>(3);
+		if (depth > 1) {
+			parts.add(new ByteArrayInputStream(header == null ? DEFAULT_HEADER : header));
+		}
+		parts.add(slice);
+		parts.add(new ByteArrayInputStream(suffix));
+		XMLStreamReader sliceReader = inputFactory.createXMLStreamReader(new SequenceInputStream(parts.elements()));
+		for (int i = 0; i < depth; i++) {
+			sliceReader.nextTag();
+		}
+		return sliceReader;
+	}
+
+	/**
+	 * Moves the pull parser forward, starting with the event it is on, to the start of the next element with the
+	 * given name, or of any transaction response if the name is null.
+	 * @param elementName
+	 * @param enclosingElement an element whose end stops the search
+	 * @return false if the search stopped without finding the element
+	 * @throws XMLStreamException
+	 */
+	private boolean advanceTo(String elementName, String enclosingElement) throws XMLStreamException {
+		if (reader == null) {
+			return false;
+		}
+		while (true) {
+			int event = reader.getEventType();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				String name = reader.getLocalName();
+				if (elementName == null ? transactionResponseTypes.containsKey(name) : elementName.equals(name)) {
+					return true;
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (reader.getLocalName().equals(enclosingElement)) {
+					return false;
+				}
+			} else if (event == XMLStreamConstants.END_DOCUMENT) {
+				return false;
+			}
+			reader.next();
+		}
+	}
+
+	/**
+	 * Returns the XML of the next element with the given name, as the earlier character by character parser did:
+	 * only the start tag for litleResponse and batchResponse, any of the transaction responses for
+	 * "transactionResponse", and with the namespace declared on the element returned.  The response classes no
+	 * longer go through this; they unmarshal straight from the parser.
+	 * @param tagToLookFor
+	 * @return the element's XML, or an empty String at the end of the file
+	 * @throws Exception if a transaction response is asked for and the batch has none left
+	 * @deprecated use LitleBatchResponse.getNextTransaction, which does not copy the transaction into a String
+	 */
+	@Deprecated
+	public String getNextTag(String tagToLookFor) throws Exception {
+		if (tagToLookFor.equalsIgnoreCase("transactionResponse")) {
+			if (!advanceTo(null, "batchResponse")) {
+				if (reader != null) {
+					throw new Exception("All payments in this batch have already been retrieved.");
+				}
+				return "";
+			}
+			return copyTransaction();
+		}
+		if (!openNext(tagToLookFor)) {
+			return "";
+		}
+		String name = mappedFile.qualifiedName(openedTag);
+		String xml;
+		if (tagToLookFor.equalsIgnoreCase("litleResponse") || tagToLookFor.equalsIgnoreCase("batchResponse")) {
+			long tagEnd = mappedFile.tagEnd(openedTag, limit);
+			xml = mappedFile.decode(openedTag, tagEnd);
+			if (mappedFile.isEmptyElementTag(tagEnd)) {
+				xml = xml.substring(0, xml.length() - 2) + ">";
+			}
+			xml = xml + "</" + name + ">";
+		} else {
+			xml = mappedFile.decode(openedTag, position);
+		}
+		int startTagEnd = xml.indexOf('>');
+		int namespace = xml.indexOf(" xmlns=");
+		if (namespace < 0 || namespace > startTagEnd) {
+			xml = "<" + name + " xmlns=\"" + NAMESPACE + "\"" + xml.substring(name.length() + 1);
+		}
+		return xml;
+	}
+
+	private String copyTransaction() throws XMLStreamException {
+		StringWriter xml = new StringWriter();
+		XMLStreamWriter writer = outputFactory.createXMLStreamWriter(xml);
+		int depth = 0;
+		do {
+			switch (reader.getEventType()) {
+			case XMLStreamConstants.START_ELEMENT:
+				writer.writeStartElement(reader.getLocalName());
+				if (depth == 0) {
+					String namespace = reader.getNamespaceURI();
+					writer.writeDefaultNamespace(namespace == null ? NAMESPACE : namespace);
+				}
+				for (int i = 0; i < reader.getAttributeCount(); i++) {
+					writer.writeAttribute(reader.getAttributeLocalName(i), reader.getAttributeValue(i));
+				}
+				depth++;
+				break;
+			case XMLStreamConstants.END_ELEMENT:
+				writer.writeEndElement();
+				depth--;
+				break;
+			case XMLStreamConstants.CHARACTERS:
+			case XMLStreamConstants.CDATA:
+			case XMLStreamConstants.SPACE:
+				writer.writeCharacters(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+				break;
+			default:
+				break;
+			}
+			reader.next();
+		} while (depth > 0);
+		writer.close();
+		return xml.toString();
+	}
+
+	private void closeReader() {
+		if (reader != null) {
+			try {
+				reader.close();
+			} catch (XMLStreamException e) {
+				// nothing more will be read from it
+			}
+			reader = null;
+		}
+	}
+
+	/**
+	 * Releases the response file.  Its mapping is freed once the parser is no longer referenced.
+	 */
+	public void close() {
+		closeReader();
+		mappedFile = null;
+	}
+
+	/**
+	 * Shows JAXB the start tag the parser is on as an element with nothing in it, leaving the parser where it is
+	 * until JAXB moves past the element's end.
+	 */
+	private static class StartTagReader extends StreamReaderDelegate {
+		private boolean ended;
+		boolean advanced;
+
+		StartTagReader(XMLStreamReader reader) {
+			super(reader);
+		}
+
+		@Override
+		public int next() throws XMLStreamException {
+			if (!ended) {
+				ended = true;
+				return XMLStreamConstants.END_ELEMENT;
+			}
+			advanced = true;
+			return super.next();
+		}
+
+		@Override
+		public int nextTag() throws XMLStreamException {
+			return next();
+		}
+
+		@Override
+		public boolean hasNext() throws XMLStreamException {
+			return !ended || super.hasNext();
+		}
+
+		@Override
+		public int getEventType() {
+			return ended && !advanced ? XMLStreamConstants.END_ELEMENT : super.getEventType();
+		}
+
+		@Override
+		public boolean isStartElement() {
+			return getEventType() == XMLStreamConstants.START_ELEMENT;
+		}
+
+		@Override
+		public boolean isEndElement() {
+			return getEventType() == XMLStreamConstants.END_ELEMENT;
+		}
+	}
+
+}
@@ -0,0 +1,188 @@
+package com.litle.sdk;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.datatype.DatatypeConfigurationException;
+import javax.xml.datatype.DatatypeFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Reads a LitleResponseSummary from a response file in one pass of a pull parser.  Only the attributes of the
+ * transaction responses and the text of their response, responseTime and approvedAmount elements are read; nothing
+ * is unmarshalled, and what is held is a few counters per kind of transaction and one long per response time.
+ * Responses in a batch tend to share their responseTime to the second, so it is parsed only when it changes.
+ */
+final class ResponseStatistics {
+
+	private final DatatypeFactory datatypeFactory;
+	private final long litleBatchId;
+	private long count;
+	private long approvedAmount;
+	private final Map<String, long[]> byTransactionType = new TreeMap<String, long[]>();
+	private final Map<String, long[]> byResponseCode = new TreeMap<String, long[]>();
+	private final Map<String, long[]> byReportGroup = new TreeMap<String, long[]>();
+	private long[] responseTimes = new long[1024];
+	private int responseTimeCount;
+	private String lastResponseTime;
+	private long lastResponseTimeMillis;
+
+	private ResponseStatistics(DatatypeFactory datatypeFactory, long litleBatchId) {
+		this.datatypeFactory = datatypeFactory;
+		this.litleBatchId = litleBatchId;
+	}
+
+	/**
+	 * @param reader a pull parser at the start of a response file
+	 * @return the summary of the file, with one for each of its batches
+	 * @throws XMLStreamException
+	 */
+	static LitleResponseSummary read(XMLStreamReader reader) throws XMLStreamException {
+		DatatypeFactory datatypeFactory;
+		try {
+			datatypeFactory = DatatypeFactory.newInstance();
+		} catch (DatatypeConfigurationException e) {
+			throw new LitleBatchException("There is no javax.xml.datatype implementation to read response times with.", e);
+		}
+		ResponseStatistics file = new ResponseStatistics(datatypeFactory, 0);
+		ResponseStatistics batch = null;
+		List<LitleResponseSummary> batches = new ArrayList<LitleResponseSummary>();
+		int depth = 0;
+		String transactionType = null;
+		String reportGroup = null;
+		String response = null;
+		String responseTime = null;
+		long transactionApprovedAmount = 0;
+		while (reader.hasNext()) {
+			int event = reader.next();
+			if (event == XMLStreamConstants.START_ELEMENT) {
+				depth++;
+				String name = reader.getLocalName();
+				if (depth == 2 && name.equals("batchResponse")) {
+					String litleBatchId = reader.getAttributeValue(null, "litleBatchId");
+					batch = new ResponseStatistics(datatypeFactory, litleBatchId == null ? 0 : Long.parseLong(litleBatchId.trim()));
+				} else if (depth == 3 && batch != null && ResponseFileParser.isTransactionResponse(name)) {
+					transactionType = name;
+					reportGroup = reader.getAttributeValue(null, "reportGroup");
+					response = null;
+					responseTime = null;
+					transactionApprovedAmount = 0;
+				} else if (depth == 4 && transactionType != null) {
+					if (name.equals("response")) {
+						response = reader.getElementText().trim();
+						depth--;
+					} else if (name.equals("responseTime")) {
+						responseTime = reader.getElementText().trim();
+						depth--;
+					} else if (name.equals("approvedAmount")) {
+						transactionApprovedAmount = Long.parseLong(reader.getElementText().trim());
+						depth--;
+					}
+				}
+			} else if (event == XMLStreamConstants.END_ELEMENT) {
+				if (depth == 3 && transactionType != null) {
+					batch.add(transactionType, response, reportGroup, transactionApprovedAmount, responseTime);
+					transactionType = null;
+				} else if (depth == 2 && batch != null) {
+					batches.add(batch.toSummary(Collections.<LitleResponseSummary>emptyList()));
+					file.addAll(batch);
+					batch = null;
+				}
+				depth--;
+			}
+		}
+		return file.toSummary(batches);
+	}
+
+	private void add(String transactionType, String response, String reportGroup, long amount, String responseTime) {
+		count++;
+		approvedAmount += amount;
+		tally(byTransactionType, transactionType, 1, amount);
+		tally(byResponseCode, response, 1, amount);
+		tally(byReportGroup, reportGroup, 1, amount);
+		if (responseTime != null && responseTime.length() > 0) {
+			if (!responseTime.equals(lastResponseTime)) {
+				lastResponseTime = responseTime;
+				lastResponseTimeMillis = datatypeFactory.newXMLGregorianCalendar(responseTime).toGregorianCalendar().getTimeInMillis();
+			}
+			addResponseTime(lastResponseTimeMillis);
+		}
+	}
+
+	private void addAll(ResponseStatistics batch) {
+		count += batch.count;
+		approvedAmount += batch.approvedAmount;
+		tallyAll(byTransactionType, batch.byTransactionType);
+		tallyAll(byResponseCode, batch.byResponseCode);
+		tallyAll(byReportGroup, batch.byReportGroup);
+		for (int i = 0; i < batch.responseTimeCount; i++) {
+			addResponseTime(batch.responseTimes[i]);
+		}
+	}
+
+	private static void tally(Map<String, long[]> tallies, String key, long count, long amount) {
+		if (key == null) {
+			return;
+		}
+		long[] tally = tallies.get(key);
+		if (tally == null) {
+			tally = new long[2];
+			tallies.put(key, tally);
+		}
+		tally[0] += count;
+		tally[1] += amount;
+	}
+
+	private static void tallyAll(Map<String, long[]> tallies, Map<String, long[]> more) {
+		for (Map.Entry<String, long[]> entry : more.entrySet()) {
+			tally(tallies, entry.getKey(), entry.getValue()[0], entry.getValue()[1]);
+		}
+	}
+
+	private void addResponseTime(long time) {
+		if (responseTimeCount == responseTimes.length) {
+			long[] larger = new long[responseTimes.length * 2];
+			System.arraycopy(responseTimes, 0, larger, 0, responseTimeCount);
+			responseTimes = larger;
+		}
+		responseTimes[responseTimeCount++] = time;
+	}
+
+	private LitleResponseSummary toSummary(List<LitleResponseSummary> batches) {
+		return new LitleResponseSummary(litleBatchId, new LitleResponseSummary.Tally(count, approvedAmount), toTallies(byTransactionType),
+				toTallies(byResponseCode), toTallies(byReportGroup), percentiles(), batches);
+	}
+
+	private static Map<String, LitleResponseSummary.Tally> toTallies(Map<String, long[]> tallies) {
+		Map<String, LitleResponseSummary.Tally> result = new TreeMap<String, LitleResponseSummary.Tally>();
+		for (Map.Entry<String, long[]> entry : tallies.entrySet()) {
+			result.put(entry.getKey(), new LitleResponseSummary.Tally(entry.getValue()[0], entry.getValue()[1]));
+		}
+		return result;
+	}
+
+	/**
+	 * @return the response time at each percentile from 0 to 100 by the nearest rank, or null if there are none
+	 */
+	private long[] percentiles() {
+		if (responseTimeCount == 0) {
+			return null;
+		}
+		long[] sorted = new long[responseTimeCount];
+		System.arraycopy(responseTimes, 0, sorted, 0, responseTimeCount);
+		Arrays.sort(sorted);
+		long[] percentiles = new long[101];
+		for (int percentile = 0; percentile <= 100; percentile++) {
+			int rank = (int) Math.ceil(percentile / 100.0 * responseTimeCount);
+			percentiles[percentile] = sorted[Math.max(rank - 1, 0)];
+		}
+		return percentiles;
+	}
+
+}
@@ -0,0 +1,19 @@
+package com.litle.sdk;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Implement this interface to read the body of an online response as it arrives, with
+ * Communication.requestToServer(..., ResponseStreamHandler).
+ */
+public interface ResponseStreamHandler<T> {
+
+	/**
+	 * @param xmlResponse the body of the response; it need not be read to the end or closed
+	 * @return the value for requestToServer to return
+	 * @throws IOException
+	 */
+	T handleResponse(InputStream xmlResponse) throws IOException;
+
+}
@@ -1,22 +1,33 @@
 package com.litle.sdk;
 
-import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStreamReader;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
 
 import javax.net.ssl.SSLSocketFactory;
 
 /**
- * This class is used to connect to a socket and read and write to it
+ * This class is used to connect to a socket and read and write to it.  Files are sent and received as bytes, never
+ * decoded: over plain TCP through a SocketChannel, with FileChannel.transferTo sending the request file without
+ * copying it through the heap, and over SSL through the socket's streams with large buffers.
  */
 
 public class StreamData {
+	static final int TRANSFER_BUFFER_SIZE = 1024 * 1024;
+
 	private Socket socket;
 
 	/**
@@ -34,17 +45,41 @@ public class StreamData {
 	 * @throws Exception when any exception occurs trying to connect to the machine/port.
 	 */
 	public void init(String hostname, String port, int timeOut, boolean SSL) throws IOException {
+		init(hostname, port, timeOut, SSL, 0, 0);
+	}
+
+	/**
+	 * This method will initialize the class for use connecting to some machine on some port, with socket buffers of
+	 * the given sizes.  Large buffers let a large file be sent over a link with a long round trip at full speed.
+	 *
+	 * @param hostname The name of the machine ( either dns name or full ip address )
+	 * @param port The port on the machine that you want to connect to.
+	 * @param timeOut The time ( in mills ) that the socket should wait on reading before timing out.
+	 * @param sendBufferSize The size of the socket's send buffer in bytes, or 0 to leave it to the operating system.
+	 * @param receiveBufferSize The size of the socket's receive buffer in bytes, or 0 to leave it to the operating system.
+	 * @throws Exception when any exception occurs trying to connect to the machine/port.
+	 */
+	public void init(String hostname, String port, int timeOut, boolean SSL, int sendBufferSize, int receiveBufferSize) throws IOException {
 		try {
 			if (SSL) {
 				SSLSocketFactory ssf = (SSLSocketFactory) SSLSocketFactory.getDefault();
-				socket = ssf.createSocket(hostname, Integer.parseInt(port));
+				socket = ssf.createSocket();
 			} else {
-				socket = new Socket(hostname, Integer.parseInt(port));
+				socket = SocketChannel.open().socket();
 			}
+			// the receive buffer has to be sized before connecting for a window larger than 64K to be offered
+			if (sendBufferSize > 0) {
+				socket.setSendBufferSize(sendBufferSize);
+			}
+			if (receiveBufferSize > 0) {
+				socket.setReceiveBufferSize(receiveBufferSize);
+			}
+			socket.connect(new InetSocketAddress(hostname, Integer.parseInt(port)));
 			socket.setTcpNoDelay(true);
 			socket.setSoTimeout(timeOut);
 		}
 		catch (IOException e) {
+			closeSocket();
 			throw new IOException("Error connecting to host <" + hostname + "> and port <" + port + ">" + e);
 		}
 	}
@@ -80,17 +115,69 @@ public class StreamData {
 	 * @throws IOException when a read exception occurs
 	 */
 	public void dataIn(File xmlResponseFile) throws IOException {
-		//StringBuffer data = new StringBuffer();
-		FileWriter outputStream = null;
-		int value;
-		BufferedInputStream bis = new BufferedInputStream(socket.getInputStream());
-		outputStream = new FileWriter(xmlResponseFile.getAbsolutePath());
-		InputStreamReader isr = new InputStreamReader(bis,"UTF-8");
-		while ((value = isr.read()) != -1) {
-			//data.append((char) value);
-			outputStream.write((char) value);
+		FileOutputStream outputStream = new FileOutputStream(xmlResponseFile);
+		try {
+			SocketChannel channel = socket.getChannel();
+			if (channel != null) {
+				receive(channel, outputStream.getChannel());
+			} else {
+				copy(socket.getInputStream(), outputStream);
+			}
+		}
+		finally {
+			outputStream.close();
 		}
-		outputStream.close();
+	}
+
+	/**
+	 * Reads the channel to its end into the file through one direct buffer, which is what FileChannel.transferFrom
+	 * would do with a socket, but waiting no longer than the socket's timeout for each read, which a blocking
+	 * channel would ignore.
+	 */
+	private void receive(SocketChannel channel, FileChannel file) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocateDirect(TRANSFER_BUFFER_SIZE);
+		int timeOut = socket.getSoTimeout();
+		Selector selector = null;
+		if (timeOut > 0) {
+			selector = Selector.open();
+			channel.configureBlocking(false);
+			channel.register(selector, SelectionKey.OP_READ);
+		}
+		try {
+			while (true) {
+				int read = channel.read(buffer);
+				if (read < 0) {
+					break;
+				}
+				if (read == 0 && buffer.position() == 0) {
+					if (selector.select(timeOut) == 0) {
+						throw new SocketTimeoutException("Read timed out");
+					}
+					selector.selectedKeys().clear();
+					continue;
+				}
+				buffer.flip();
+				while (buffer.hasRemaining()) {
+					file.write(buffer);
+				}
+				buffer.clear();
+			}
+		}
+		finally {
+			if (selector != null) {
+				selector.close();
+				channel.configureBlocking(true);
+			}
+		}
+	}
+
+	private static void copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[TRANSFER_BUFFER_SIZE];
+		int read;
+		while ((read = in.read(buffer)) != -1) {
+			out.write(buffer, 0, read);
+		}
+		out.flush();
 	}
 
 	/**
@@ -122,18 +209,21 @@ public class StreamData {
 	 * @throws IOException when a read exception occurs
 	 */
 	public void dataOut(File file) throws IOException {
-		BufferedOutputStream bos = new BufferedOutputStream(socket.getOutputStream());
-		OutputStreamWriter osw = new OutputStreamWriter(bos, "UTF-8");
-		FileReader fr = new FileReader(file);
+		FileInputStream inputStream = new FileInputStream(file);
 		try {
-			int c = -1;
-			while ((c = fr.read()) != -1) {
-				osw.write(c);
+			SocketChannel channel = socket.getChannel();
+			if (channel != null) {
+				FileChannel fileChannel = inputStream.getChannel();
+				long size = fileChannel.size();
+				for (long position = 0; position < size; ) {
+					position += fileChannel.transferTo(position, size - position, channel);
+				}
+			} else {
+				copy(inputStream, socket.getOutputStream());
 			}
-			osw.flush();
 		}
 		finally {
-			fr.close();
+			inputStream.close();
 		}
 	}
 
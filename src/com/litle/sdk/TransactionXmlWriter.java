@@ -0,0 +1,417 @@
+package com.litle.sdk;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.bind.annotation.XmlAttribute;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementRef;
+import javax.xml.bind.annotation.XmlEnumValue;
+import javax.xml.bind.annotation.XmlTransient;
+import javax.xml.bind.annotation.XmlType;
+import javax.xml.bind.annotation.adapters.XmlAdapter;
+import javax.xml.bind.annotation.adapters.XmlJavaTypeAdapter;
+import javax.xml.datatype.XMLGregorianCalendar;
+
+/**
+ * Writes batch transactions as XML without going through a JAXB Marshaller, producing the same characters the
+ * marshaller of a LitleBatchRequest does, indented or compact.  The JAXB annotations of each generated class are read
+ * once into a list of its attributes and elements in document order; after that a transaction is written by reading
+ * its fields into a StringBuilder, which is encoded as UTF-8 into a reused array.
+ *
+ * Transactions holding something this writer does not reproduce exactly, such as a subclass standing in for the
+ * declared type of an element (which JAXB marks with xsi:type), are refused and should be marshalled by JAXB.
+ *
+ * An instance reuses its buffer, so it must be used by one thread at a time.
+ *
+ *	Optional properties are:
+ *	batchTransactionWriter (possible values "jaxb" and "direct" - defaults to jaxb; direct writes the transactions of
+ *	a batch with this class)
+ */
+final class TransactionXmlWriter {
+
+	static final String NAMESPACE = "http://www.litle.com/schema";
+
+	private static final String DEFAULT_NAME = "##default";
+	private static final String INDENT = "    ";
+
+	private static final ConcurrentMap<Class<?>, Property[]> propertiesByClass = new ConcurrentHashMap<Class<?>, Property[]>();
+	private static final ConcurrentMap<Class<?>, Map<Object, String>> enumValuesByClass = new ConcurrentHashMap<Class<?>, Map<Object, String>>();
+
+	private final boolean indent;
+	private final StringBuilder xml = new StringBuilder(1024);
+	private byte[] bytes = new byte[4096];
+
+	/**
+	 * @param config
+	 * @return whether the batches of a request file write their transactions with this class
+	 */
+	static boolean isSelected(Properties config) {
+		String value = config.getProperty("batchTransactionWriter");
+		if (value == null || value.length() == 0 || value.equalsIgnoreCase("jaxb")) {
+			return false;
+		}
+		if (value.equalsIgnoreCase("direct")) {
+			return true;
+		}
+		throw new LitleBatchException("batchTransactionWriter must be \"jaxb\" or \"direct\", not " + value);
+	}
+
+	/**
+	 * @param compact true to leave out the indentation, as with batchCompactXml
+	 */
+	TransactionXmlWriter(boolean compact) {
+		this.indent = !compact;
+	}
+
+	/**
+	 * Writes the transaction, or nothing if it cannot be written exactly as JAXB would.
+	 * @param transaction
+	 * @param out
+	 * @return false if nothing was written and the transaction should be marshalled by JAXB instead
+	 * @throws IOException
+	 */
+	boolean write(JAXBElement<?> transaction, OutputStream out) throws IOException {
+		xml.setLength(0);
+		try {
+			element(transaction.getName().getLocalPart(), transaction.getValue(), transaction.getDeclaredType(), null, 0);
+		} catch (UnsupportedContentException e) {
+			return false;
+		}
+		if (indent) {
+			xml.append('\n');
+		}
+		int length = encode();
+		out.write(bytes, 0, length);
+		return true;
+	}
+
+	/**
+	 * @return the number of bytes the buffer holds in UTF-8
+	 */
+	private int encode() {
+		int length = xml.length();
+		if (bytes.length < length * 3) {
+			bytes = new byte[Math.max(length * 3, bytes.length * 2)];
+		}
+		int n = 0;
+		for (int i = 0; i < length; i++) {
+			char c = xml.charAt(i);
+			if (c < 0x80) {
+				bytes[n++] = (byte) c;
+			} else if (c < 0x800) {
+				bytes[n++] = (byte) (0xC0 | (c >> 6));
+				bytes[n++] = (byte) (0x80 | (c & 0x3F));
+			} else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(xml.charAt(i + 1))) {
+				int codePoint = Character.toCodePoint(c, xml.charAt(++i));
+				bytes[n++] = (byte) (0xF0 | (codePoint >> 18));
+				bytes[n++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+				bytes[n++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+				bytes[n++] = (byte) (0x80 | (codePoint & 0x3F));
+			} else if (Character.isHighSurrogate(c) || Character.isLowSurrogate(c)) {
+				bytes[n++] = '?';
+			} else {
+				bytes[n++] = (byte) (0xE0 | (c >> 12));
+				bytes[n++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+				bytes[n++] = (byte) (0x80 | (c & 0x3F));
+			}
+		}
+		return n;
+	}
+
+	private void element(String name, Object value, Class<?> declaredType, XmlAdapter<String, Object> adapter, int depth) throws UnsupportedContentException {
+		newLine(depth);
+		xml.append('<').append(name);
+		if (depth == 0) {
+			xml.append(" xmlns=\"").append(NAMESPACE).append('"');
+		}
+		String text = text(value, adapter);
+		if (text != null) {
+			xml.append('>');
+			escape(text, false);
+			xml.append("</").append(name).append('>');
+			return;
+		}
+		if (value.getClass() != declaredType) {
+			throw new UnsupportedContentException();
+		}
+		Property[] properties = propertiesOf(value.getClass());
+		int i = 0;
+		for (; i < properties.length && properties[i].attribute; i++) {
+			Property property = properties[i];
+			Object attribute = property.get(value);
+			if (attribute != null) {
+				String attributeText = text(attribute, property.adapter);
+				if (attributeText == null) {
+					throw new UnsupportedContentException();
+				}
+				xml.append(' ').append(property.name).append("=\"");
+				escape(attributeText, true);
+				xml.append('"');
+			}
+		}
+		boolean hasChildren = false;
+		for (; i < properties.length; i++) {
+			Property property = properties[i];
+			Object child = property.get(value);
+			if (child == null) {
+				continue;
+			}
+			if (property.list) {
+				for (Object item : (List<?>) child) {
+					if (item == null) {
+						continue;
+					}
+					if (!hasChildren) {
+						xml.append('>');
+						hasChildren = true;
+					}
+					child(property, item, depth + 1);
+				}
+			} else {
+				if (!hasChildren) {
+					xml.append('>');
+					hasChildren = true;
+				}
+				child(property, child, depth + 1);
+			}
+		}
+		if (hasChildren) {
+			newLine(depth);
+			xml.append("</").append(name).append('>');
+		} else {
+			xml.append("/>");
+		}
+	}
+
+	private void child(Property property, Object value, int depth) throws UnsupportedContentException {
+		if (property.reference) {
+			JAXBElement<?> reference = (JAXBElement<?>) value;
+			if (reference.isNil() || !NAMESPACE.equals(reference.getName().getNamespaceURI())) {
+				throw new UnsupportedContentException();
+			}
+			element(reference.getName().getLocalPart(), reference.getValue(), reference.getDeclaredType(), null, depth);
+		} else {
+			element(property.name, value, property.type, property.adapter, depth);
+		}
+	}
+
+	private void newLine(int depth) {
+		if (indent) {
+			xml.append('\n');
+			for (int i = 0; i < depth; i++) {
+				xml.append(INDENT);
+			}
+		}
+	}
+
+	/**
+	 * @return the lexical form of a simple value, or null if the value is a complex type
+	 */
+	private static String text(Object value, XmlAdapter<String, Object> adapter) throws UnsupportedContentException {
+		if (adapter != null) {
+			try {
+				return adapter.marshal(value);
+			} catch (Exception e) {
+				throw new UnsupportedContentException();
+			}
+		}
+		if (value instanceof String) {
+			return (String) value;
+		}
+		if (value instanceof BigDecimal) {
+			return ((BigDecimal) value).toPlainString();
+		}
+		if (value instanceof Number || value instanceof Boolean) {
+			return value.toString();
+		}
+		if (value instanceof Enum) {
+			return enumValue((Enum<?>) value);
+		}
+		if (value instanceof XMLGregorianCalendar) {
+			return ((XMLGregorianCalendar) value).toXMLFormat();
+		}
+		if (!propertiesByClass.containsKey(value.getClass()) && value.getClass().getAnnotation(XmlType.class) == null) {
+			// nothing else, a Calendar without an adapter for instance, is known to print the way JAXB does
+			throw new UnsupportedContentException();
+		}
+		return null;
+	}
+
+	private void escape(String text, boolean attribute) {
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			switch (c) {
+			case '&':
+				xml.append("&amp;");
+				break;
+			case '<':
+				xml.append("&lt;");
+				break;
+			case '>':
+				xml.append("&gt;");
+				break;
+			case '"':
+				xml.append(attribute ? "&quot;" : "\"");
+				break;
+			case '\r':
+				xml.append("&#xD;");
+				break;
+			case '\n':
+				xml.append(attribute ? "&#xA;" : "\n");
+				break;
+			case '\t':
+				xml.append(attribute ? "&#x9;" : "\t");
+				break;
+			default:
+				xml.append(c);
+			}
+		}
+	}
+
+	private static String enumValue(Enum<?> constant) throws UnsupportedContentException {
+		Class<?> type = constant.getDeclaringClass();
+		Map<Object, String> values = enumValuesByClass.get(type);
+		if (values == null) {
+			values = new HashMap<Object, String>();
+			for (Object each : type.getEnumConstants()) {
+				String name = ((Enum<?>) each).name();
+				try {
+					XmlEnumValue value = type.getField(name).getAnnotation(XmlEnumValue.class);
+					values.put(each, value == null ? name : value.value());
+				} catch (NoSuchFieldException e) {
+					throw new UnsupportedContentException();
+				}
+			}
+			enumValuesByClass.putIfAbsent(type, values);
+		}
+		return values.get(constant);
+	}
+
+	/**
+	 * @return the attributes of the class, then its elements in document order
+	 */
+	private static Property[] propertiesOf(Class<?> type) throws UnsupportedContentException {
+		Property[] properties = propertiesByClass.get(type);
+		if (properties == null) {
+			List<Property> attributes = new ArrayList<Property>();
+			List<Property> elements = new ArrayList<Property>();
+			// JAXB writes the attributes of a subclass before those it inherits, but the inherited elements first
+			for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+				List<Property> ownElements = new ArrayList<Property>();
+				for (Field field : c.getDeclaredFields()) {
+					if (Modifier.isStatic(field.getModifiers()) || Modifier.isTransient(field.getModifiers())
+							|| field.getAnnotation(XmlTransient.class) != null) {
+						continue;
+					}
+					Property property = new Property(field);
+					if (property.attribute) {
+						attributes.add(property);
+					} else {
+						ownElements.add(property);
+					}
+				}
+				elements.addAll(0, inPropOrder(c, ownElements));
+			}
+			attributes.addAll(elements);
+			properties = attributes.toArray(new Property[attributes.size()]);
+			propertiesByClass.putIfAbsent(type, properties);
+		}
+		return properties;
+	}
+
+	private static List<Property> inPropOrder(Class<?> type, List<Property> elements) throws UnsupportedContentException {
+		XmlType xmlType = type.getAnnotation(XmlType.class);
+		if (xmlType == null) {
+			throw new UnsupportedContentException();
+		}
+		String[] propOrder = xmlType.propOrder();
+		if (propOrder.length == 0 || (propOrder.length == 1 && propOrder[0].length() == 0)) {
+			return elements;
+		}
+		List<Property> ordered = new ArrayList<Property>(elements.size());
+		for (String fieldName : propOrder) {
+			for (Property element : elements) {
+				if (element.field.getName().equals(fieldName)) {
+					ordered.add(element);
+				}
+			}
+		}
+		if (ordered.size() != elements.size()) {
+			throw new UnsupportedContentException();
+		}
+		return ordered;
+	}
+
+	/**
+	 * A field of a generated class and how it is written.
+	 */
+	private static final class Property {
+		final Field field;
+		final String name;
+		final boolean attribute;
+		final boolean reference;
+		final boolean list;
+		final Class<?> type;
+		final XmlAdapter<String, Object> adapter;
+
+		@SuppressWarnings("unchecked")
+		Property(Field field) throws UnsupportedContentException {
+			this.field = field;
+			field.setAccessible(true);
+			XmlAttribute xmlAttribute = field.getAnnotation(XmlAttribute.class);
+			XmlElement xmlElement = field.getAnnotation(XmlElement.class);
+			this.attribute = xmlAttribute != null;
+			this.reference = field.getAnnotation(XmlElementRef.class) != null;
+			this.list = List.class.isAssignableFrom(field.getType());
+			String declaredName = attribute ? xmlAttribute.name() : (xmlElement == null ? DEFAULT_NAME : xmlElement.name());
+			this.name = DEFAULT_NAME.equals(declaredName) ? field.getName() : declaredName;
+			if (list) {
+				Type itemType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+				this.type = itemType instanceof Class ? (Class<?>) itemType : JAXBElement.class;
+			} else {
+				this.type = field.getType();
+			}
+			XmlJavaTypeAdapter xmlAdapter = field.getAnnotation(XmlJavaTypeAdapter.class);
+			if (xmlAdapter == null) {
+				this.adapter = null;
+			} else {
+				try {
+					this.adapter = (XmlAdapter<String, Object>) xmlAdapter.value().newInstance();
+				} catch (Exception e) {
+					throw new UnsupportedContentException();
+				}
+			}
+		}
+
+		Object get(Object bean) throws UnsupportedContentException {
+			try {
+				return field.get(bean);
+			} catch (IllegalAccessException e) {
+				throw new UnsupportedContentException();
+			}
+		}
+	}
+
+	/**
+	 * Thrown when the transaction holds something only JAXB can write exactly.
+	 */
+	private static final class UnsupportedContentException extends Exception {
+		private static final long serialVersionUID = 1L;
+	}
+
+}
@@ -0,0 +1,67 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+/**
+ * Fills a request file with 1,000 batches of 500 sales each, 500,000 transactions in all, and prints how long the
+ * calls to addTransaction took.  Every call checks the number of transactions in the whole file, so this shows what
+ * that check costs as the file fills up.
+ */
+public class performanceTestBatchAccounting {
+
+    static final int BATCHES = 1000;
+    static final int TRANSACTIONS_PER_BATCH = 500;
+    static final int ROUNDS = 3;
+    static String merchantId = "07103229";
+
+    public static void main(String[] args) throws Exception {
+        // warm up JAXB and the JIT
+        run();
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println(BATCHES + " batches, " + BATCHES * TRANSACTIONS_PER_BATCH + " transactions: " + run() + " ms");
+        }
+    }
+
+    static long run() throws Exception {
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "litleAccountingBenchmark");
+        workDir.mkdirs();
+        Properties config = new Properties();
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", merchantId);
+        config.setProperty("batchHost", "localhost");
+        config.setProperty("batchPort", "15000");
+        config.setProperty("batchTcpTimeout", "10000");
+        config.setProperty("batchUseSSL", "false");
+        config.setProperty("maxAllowedTransactionsPerFile", String.valueOf(BATCHES * TRANSACTIONS_PER_BATCH));
+        config.setProperty("maxTransactionsPerBatch", String.valueOf(TRANSACTIONS_PER_BATCH));
+        config.setProperty("batchRequestFolder", workDir.getAbsolutePath());
+        config.setProperty("batchResponseFolder", workDir.getAbsolutePath());
+        config.setProperty("proxyHost", "");
+        config.setProperty("proxyPort", "");
+        config.setProperty("sftpUsername", "");
+        config.setProperty("sftpPassword", "");
+
+        LitleBatchFileRequest litleBatchFileRequest = new LitleBatchFileRequest("accountingBenchmark.xml", config);
+        List<LitleBatchRequest> batches = new ArrayList<LitleBatchRequest>();
+        long elapsed = 0;
+        for (int b = 0; b < BATCHES; b++) {
+            LitleBatchRequest batch = litleBatchFileRequest.createBatch(merchantId);
+            batches.add(batch);
+            long start = System.nanoTime();
+            for (int i = 0; i < TRANSACTIONS_PER_BATCH; i++) {
+                batch.addTransaction(performanceTestBatchFileAssembly.createSale(b * TRANSACTIONS_PER_BATCH + i));
+            }
+            elapsed += System.nanoTime() - start;
+            batch.closeFile();
+        }
+        for (LitleBatchRequest batch : batches) {
+            batch.getFile().delete();
+        }
+        return elapsed / 1000000;
+    }
+
+}
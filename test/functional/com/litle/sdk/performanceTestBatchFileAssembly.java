@@ -0,0 +1,76 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.Properties;
+
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
+import com.litle.sdk.generate.OrderSourceType;
+import com.litle.sdk.generate.Sale;
+
+/**
+ * Adds 500,000 sales to a LitleBatchFileRequest in five batches and times generateRequestFile, which assembles the
+ * batch temporary files into the final request file.
+ */
+public class performanceTestBatchFileAssembly {
+
+    static final int TRANSACTIONS = 500000;
+    static String merchantId = "07103229";
+
+    public static void main(String[] args) throws Exception {
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "litleAssemblyBenchmark");
+        workDir.mkdirs();
+        Properties config = new Properties();
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", merchantId);
+        config.setProperty("batchHost", "localhost");
+        config.setProperty("batchPort", "15000");
+        config.setProperty("batchTcpTimeout", "10000");
+        config.setProperty("batchUseSSL", "false");
+        config.setProperty("maxAllowedTransactionsPerFile", "500000");
+        config.setProperty("maxTransactionsPerBatch", "100000");
+        config.setProperty("batchRequestFolder", workDir.getAbsolutePath());
+        config.setProperty("batchResponseFolder", workDir.getAbsolutePath());
+        config.setProperty("proxyHost", "");
+        config.setProperty("proxyPort", "");
+        config.setProperty("sftpUsername", "");
+        config.setProperty("sftpPassword", "");
+
+        LitleBatchFileRequest litleBatchFileRequest = new LitleBatchFileRequest("assemblyBenchmark.xml", config);
+        long start = System.nanoTime();
+        LitleBatchRequest batch = litleBatchFileRequest.createBatch(merchantId);
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            if (batch.isFull()) {
+                batch = litleBatchFileRequest.createBatch(merchantId);
+            }
+            batch.addTransaction(createSale(i));
+        }
+        long adding = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        litleBatchFileRequest.generateRequestFile();
+        long assembling = System.nanoTime() - start;
+
+        File requestFile = litleBatchFileRequest.getFile();
+        System.out.println("Adding " + TRANSACTIONS + " sales:        " + adding / 1000000 + " ms");
+        System.out.println("Assembling the request file: " + assembling / 1000000 + " ms, "
+                + requestFile.length() / (1024 * 1024) + " MB");
+        requestFile.delete();
+    }
+
+    static Sale createSale(int i) {
+        Sale sale = new Sale();
+        sale.setReportGroup("Planets");
+        sale.setOrderId(String.valueOf(i));
+        sale.setAmount(106L);
+        sale.setOrderSource(OrderSourceType.ECOMMERCE);
+        CardType card = new CardType();
+        card.setType(MethodOfPaymentTypeEnum.VI);
+        card.setNumber("4100000000000002");
+        card.setExpDate("1210");
+        sale.setCard(card);
+        return sale;
+    }
+
+}
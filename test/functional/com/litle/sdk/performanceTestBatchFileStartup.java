@@ -0,0 +1,58 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.Properties;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.Marshaller;
+
+/**
+ * Times building a LitleBatchFileRequest with 100 batches.  "Before" rebuilds the JAXBContext for the file and
+ * for every batch, as each LitleBatchRequest used to; "after" is the shared context from JAXBContextProvider.
+ * Run it in a fresh JVM so the first context build is part of the "after" figure.
+ */
+public class performanceTestBatchFileStartup {
+
+    static final int BATCHES = 100;
+    static String merchantId = "07103229";
+
+    public static void main(String[] args) throws Exception {
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "litleStartupBenchmark");
+        workDir.mkdirs();
+        Properties config = new Properties();
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", merchantId);
+        config.setProperty("batchHost", "localhost");
+        config.setProperty("batchPort", "15000");
+        config.setProperty("batchTcpTimeout", "10000");
+        config.setProperty("batchUseSSL", "false");
+        config.setProperty("maxAllowedTransactionsPerFile", "500000");
+        config.setProperty("maxTransactionsPerBatch", "100000");
+        config.setProperty("batchRequestFolder", workDir.getAbsolutePath());
+        config.setProperty("batchResponseFolder", workDir.getAbsolutePath());
+        config.setProperty("proxyHost", "");
+        config.setProperty("proxyPort", "");
+        config.setProperty("sftpUsername", "");
+        config.setProperty("sftpPassword", "");
+
+        long start = System.nanoTime();
+        LitleBatchFileRequest litleBatchFileRequest = new LitleBatchFileRequest("startupBenchmark.xml", config);
+        for (int i = 0; i < BATCHES; i++) {
+            litleBatchFileRequest.createBatch(merchantId);
+        }
+        long after = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i <= BATCHES; i++) {
+            JAXBContext jc = JAXBContext.newInstance("com.litle.sdk.generate");
+            Marshaller marshaller = jc.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, true);
+        }
+        long before = System.nanoTime() - start;
+
+        System.out.println("File with " + BATCHES + " batches, JAXBContext per instance: " + before / 1000000 + " ms");
+        System.out.println("File with " + BATCHES + " batches, shared JAXBContext:       " + after / 1000000 + " ms");
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Adds 100,000 sales to a batch with the old writer (every transaction written straight to the temporary file) and
+ * with the buffered staging writer in its heap, direct and synced configurations, and prints how long each took.
+ */
+public class performanceTestBatchStaging {
+
+    static final int TRANSACTIONS = 100000;
+    static final int ROUNDS = 3;
+    static String merchantId = "07103229";
+
+    public static void main(String[] args) throws Exception {
+        // warm up JAXB and the JIT
+        for (int i = 0; i < 5; i++) {
+            run("0", "false", "never");
+            run("65536", "true", "never");
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            System.out.println("unbuffered (old writer)       : " + run("0", "false", "never") + " ms");
+            System.out.println("64 KB heap buffer             : " + run("65536", "false", "never") + " ms");
+            System.out.println("64 KB direct buffer           : " + run("65536", "true", "never") + " ms");
+            System.out.println("64 KB heap buffer, fsync batch: " + run("65536", "false", "batch") + " ms");
+            System.out.println("64 KB heap buffer, fsync 10000: " + run("65536", "false", "10000") + " ms");
+        }
+    }
+
+    static long run(String bufferSize, String directBuffer, String sync) throws Exception {
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "litleStagingBenchmark");
+        workDir.mkdirs();
+        Properties config = new Properties();
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", merchantId);
+        config.setProperty("batchHost", "localhost");
+        config.setProperty("batchPort", "15000");
+        config.setProperty("batchTcpTimeout", "10000");
+        config.setProperty("batchUseSSL", "false");
+        config.setProperty("maxAllowedTransactionsPerFile", "500000");
+        config.setProperty("maxTransactionsPerBatch", "100000");
+        config.setProperty("batchRequestFolder", workDir.getAbsolutePath());
+        config.setProperty("batchResponseFolder", workDir.getAbsolutePath());
+        config.setProperty("proxyHost", "");
+        config.setProperty("proxyPort", "");
+        config.setProperty("sftpUsername", "");
+        config.setProperty("sftpPassword", "");
+        config.setProperty("batchStagingBufferSize", bufferSize);
+        config.setProperty("batchStagingDirectBuffer", directBuffer);
+        config.setProperty("batchStagingSync", sync);
+
+        LitleBatchFileRequest litleBatchFileRequest = new LitleBatchFileRequest("stagingBenchmark.xml", config);
+        LitleBatchRequest batch = litleBatchFileRequest.createBatch(merchantId);
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            batch.addTransaction(performanceTestBatchFileAssembly.createSale(i));
+        }
+        batch.closeFile();
+        long elapsed = System.nanoTime() - start;
+        batch.getFile().delete();
+        return elapsed / 1000000;
+    }
+
+}
@@ -0,0 +1,137 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Writes a request file of 500,000 sales in 5 batches, indented and with batchCompactXml, and prints for each the
+ * time to build it, its size per transaction, the time to upload it over a loopback socket and the time to parse
+ * it with SAX.
+ */
+public class performanceTestCompactXml {
+
+    static final int BATCHES = 5;
+    static final int TRANSACTIONS_PER_BATCH = 100000;
+    static final int ROUNDS = 3;
+    static String merchantId = "07103229";
+
+    public static void main(String[] args) throws Exception {
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "litleCompactBenchmark");
+        workDir.mkdirs();
+        // warm up JAXB, SAX and the JIT
+        measure(workDir, false, false);
+        measure(workDir, true, false);
+        for (int round = 0; round < ROUNDS; round++) {
+            measure(workDir, false, true);
+            measure(workDir, true, true);
+        }
+    }
+
+    static void measure(File workDir, boolean compact, boolean print) throws Exception {
+        int transactions = BATCHES * TRANSACTIONS_PER_BATCH;
+        long start = System.nanoTime();
+        File file = build(workDir, compact);
+        long built = System.nanoTime();
+        upload(file);
+        long uploaded = System.nanoTime();
+        int elements = parse(file);
+        long parsed = System.nanoTime();
+        if (print) {
+            System.out.println(String.format("%-8s: %6.1f bytes/txn, %9d bytes, build %5d ms, upload %4d ms, parse %5d ms (%d elements)",
+                    compact ? "compact" : "indented", (double) file.length() / transactions, file.length(),
+                    (built - start) / 1000000, (uploaded - built) / 1000000, (parsed - uploaded) / 1000000, elements));
+        }
+        file.delete();
+    }
+
+    static File build(File workDir, boolean compact) throws Exception {
+        Properties config = new Properties();
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", merchantId);
+        config.setProperty("batchHost", "localhost");
+        config.setProperty("batchPort", "15000");
+        config.setProperty("batchTcpTimeout", "10000");
+        config.setProperty("batchUseSSL", "false");
+        config.setProperty("maxAllowedTransactionsPerFile", String.valueOf(BATCHES * TRANSACTIONS_PER_BATCH));
+        config.setProperty("maxTransactionsPerBatch", String.valueOf(TRANSACTIONS_PER_BATCH));
+        config.setProperty("batchRequestFolder", workDir.getAbsolutePath());
+        config.setProperty("batchResponseFolder", workDir.getAbsolutePath());
+        config.setProperty("proxyHost", "");
+        config.setProperty("proxyPort", "");
+        config.setProperty("sftpUsername", "");
+        config.setProperty("sftpPassword", "");
+        config.setProperty("batchCompactXml", String.valueOf(compact));
+
+        LitleBatchFileRequest litleBatchFileRequest = new LitleBatchFileRequest("compactBenchmark.xml", config);
+        for (int b = 0; b < BATCHES; b++) {
+            LitleBatchRequest batch = litleBatchFileRequest.createBatch(merchantId);
+            for (int i = 0; i < TRANSACTIONS_PER_BATCH; i++) {
+                batch.addTransaction(performanceTestBatchFileAssembly.createSale(b * TRANSACTIONS_PER_BATCH + i));
+            }
+        }
+        litleBatchFileRequest.generateRequestFile();
+        return litleBatchFileRequest.getFile();
+    }
+
+    /**
+     * Copies the file to a loopback socket whose other end reads and discards it.
+     */
+    static void upload(File file) throws Exception {
+        final ServerSocket server = new ServerSocket(0, 1, InetAddress.getByName("127.0.0.1"));
+        Thread sink = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    Socket socket = server.accept();
+                    InputStream in = socket.getInputStream();
+                    byte[] buffer = new byte[64 * 1024];
+                    while (in.read(buffer) >= 0) {
+                    }
+                    socket.close();
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+        };
+        sink.start();
+        Socket socket = new Socket(server.getInetAddress(), server.getLocalPort());
+        OutputStream out = socket.getOutputStream();
+        InputStream in = new FileInputStream(file);
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) >= 0) {
+            out.write(buffer, 0, read);
+        }
+        in.close();
+        socket.close();
+        sink.join();
+        server.close();
+    }
+
+    static int parse(File file) throws Exception {
+        final int[] elements = new int[1];
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setNamespaceAware(true);
+        factory.newSAXParser().parse(file, new DefaultHandler() {
+            @Override
+            public void startElement(String uri, String localName, String qName, Attributes attributes) {
+                elements[0]++;
+            }
+        });
+        return elements[0];
+    }
+
+}
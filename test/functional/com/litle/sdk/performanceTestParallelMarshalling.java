@@ -0,0 +1,66 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Adds 100,000 sales to a batch with the transactions marshalled on the caller's thread and then on 1, 2, 4 and as
+ * many marshalling threads as there are processors, and prints how long each took to add and close.
+ */
+public class performanceTestParallelMarshalling {
+
+    static final int TRANSACTIONS = 100000;
+    static final int ROUNDS = 3;
+    static String merchantId = "07103229";
+
+    public static void main(String[] args) throws Exception {
+        int processors = Runtime.getRuntime().availableProcessors();
+        String[] threads = { "0", "1", "2", "4", String.valueOf(processors) };
+        // warm up JAXB and the JIT
+        for (int i = 0; i < 3; i++) {
+            for (String t : threads) {
+                run(t);
+            }
+        }
+        System.out.println(processors + " processors");
+        for (int round = 0; round < ROUNDS; round++) {
+            for (String t : threads) {
+                System.out.println(String.format("batchMarshallingThreads %-3s: %6d ms", t, run(t)));
+            }
+        }
+    }
+
+    static long run(String marshallingThreads) throws Exception {
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "litleMarshallingBenchmark");
+        workDir.mkdirs();
+        Properties config = new Properties();
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", merchantId);
+        config.setProperty("batchHost", "localhost");
+        config.setProperty("batchPort", "15000");
+        config.setProperty("batchTcpTimeout", "10000");
+        config.setProperty("batchUseSSL", "false");
+        config.setProperty("maxAllowedTransactionsPerFile", "500000");
+        config.setProperty("maxTransactionsPerBatch", "100000");
+        config.setProperty("batchRequestFolder", workDir.getAbsolutePath());
+        config.setProperty("batchResponseFolder", workDir.getAbsolutePath());
+        config.setProperty("proxyHost", "");
+        config.setProperty("proxyPort", "");
+        config.setProperty("sftpUsername", "");
+        config.setProperty("sftpPassword", "");
+        config.setProperty("batchMarshallingThreads", marshallingThreads);
+
+        LitleBatchFileRequest litleBatchFileRequest = new LitleBatchFileRequest("marshallingBenchmark.xml", config);
+        LitleBatchRequest batch = litleBatchFileRequest.createBatch(merchantId);
+        long start = System.nanoTime();
+        for (int i = 0; i < TRANSACTIONS; i++) {
+            batch.addTransaction(performanceTestBatchFileAssembly.createSale(i));
+        }
+        batch.closeFile();
+        long elapsed = System.nanoTime() - start;
+        batch.getFile().delete();
+        return elapsed / 1000000;
+    }
+
+}
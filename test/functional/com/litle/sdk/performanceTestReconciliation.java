@@ -0,0 +1,70 @@
+package com.litle.sdk;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes the response file of performanceTestResponseParsing and a request file of the sales it answers, less one
+ * in every thousand, then prints the time to reconcile the two and the heap in use afterwards.
+ */
+public class performanceTestReconciliation {
+
+    static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        File responseFile = new File(System.getProperty("java.io.tmpdir"), "litleReconciliationResponse.xml");
+        File requestFile = new File(System.getProperty("java.io.tmpdir"), "litleReconciliationRequest.xml");
+        performanceTestResponseParsing.writeResponseFile(responseFile);
+        writeRequestFile(requestFile);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                final AtomicInteger mismatches = new AtomicInteger();
+                long start = System.nanoTime();
+                long matched = new LitleBatchFileReconciler(requestFile, responseFile).reconcile(new LitleReconciliationListener() {
+                    public void mismatchFound(LitleReconciliationMismatch mismatch) {
+                        mismatches.incrementAndGet();
+                    }
+                });
+                long elapsed = System.nanoTime() - start;
+                Runtime runtime = Runtime.getRuntime();
+                System.out.println(String.format("%d matched, %d mismatches: %6d ms, %8.0f txn/s, %d MB of heap in use",
+                        matched, mismatches.get(), elapsed / 1000000, matched / (elapsed / 1e9),
+                        (runtime.totalMemory() - runtime.freeMemory()) / (1024 * 1024)));
+            }
+        } finally {
+            responseFile.delete();
+            requestFile.delete();
+        }
+    }
+
+    static void writeRequestFile(File file) throws Exception {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 64 * 1024);
+        try {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+            out.write("<litleRequest version=\"8.18\" xmlns=\"http://www.litle.com/schema\" numBatchRequests=\""
+                    + performanceTestResponseParsing.BATCHES + "\">\n");
+            out.write("  <authentication><user>user</user><password>password</password></authentication>\n");
+            for (int b = 0; b < performanceTestResponseParsing.BATCHES; b++) {
+                out.write("  <batchRequest merchantId=\"07103229\">\n");
+                for (int i = 0; i < performanceTestResponseParsing.TRANSACTIONS_PER_BATCH; i++) {
+                    int n = b * performanceTestResponseParsing.TRANSACTIONS_PER_BATCH + i;
+                    if (n % 1000 == 999) {
+                        continue;
+                    }
+                    out.write("    <sale id=\"" + n + "\" reportGroup=\"Planets\"><orderId>" + n + "</orderId><amount>" + (100 + n % 1000)
+                            + "</amount><orderSource>ecommerce</orderSource><card><type>VI</type><number>4100000000000002</number>"
+                            + "<expDate>1210</expDate></card></sale>\n");
+                }
+                out.write("  </batchRequest>\n");
+            }
+            out.write("</litleRequest>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Writes the response file of performanceTestResponseParsing, then prints the time to build its index, to load the
+ * saved index, and to look up transactions by litleTxnId and by orderId.
+ */
+public class performanceTestResponseIndex {
+
+    static final int LOOKUPS = 10000;
+
+    public static void main(String[] args) throws Exception {
+        File file = new File(System.getProperty("java.io.tmpdir"), "litleResponseIndexBenchmark.xml");
+        File indexFile = ResponseFileIndex.indexFileFor(file);
+        performanceTestResponseParsing.writeResponseFile(file);
+        int transactions = performanceTestResponseParsing.BATCHES * performanceTestResponseParsing.TRANSACTIONS_PER_BATCH;
+        try {
+            long start = System.nanoTime();
+            new LitleBatchFileResponse(file).findTransactionByLitleTxnId(0L);
+            long built = System.nanoTime();
+            System.out.println(String.format("%d transactions: index built and saved in %d ms, %d bytes",
+                    transactions, (built - start) / 1000000, indexFile.length()));
+
+            for (int round = 0; round < 3; round++) {
+                start = System.nanoTime();
+                LitleBatchFileResponse response = new LitleBatchFileResponse(file);
+                response.findTransactionByLitleTxnId(0L);
+                long loaded = System.nanoTime();
+                Random random = new Random(round);
+                for (int i = 0; i < LOOKUPS; i++) {
+                    int n = random.nextInt(transactions);
+                    if (response.findTransactionByLitleTxnId(84568456000L + n) == null) {
+                        throw new IllegalStateException("litleTxnId of transaction " + n + " not found");
+                    }
+                }
+                long byLitleTxnId = System.nanoTime();
+                for (int i = 0; i < LOOKUPS; i++) {
+                    int n = random.nextInt(transactions);
+                    if (response.findTransactionsByOrderId(String.valueOf(n)).size() != 1) {
+                        throw new IllegalStateException("orderId of transaction " + n + " not found");
+                    }
+                }
+                long byOrderId = System.nanoTime();
+                System.out.println(String.format("index loaded in %d ms; %d lookups by litleTxnId %d ms (%.1f us each), by orderId %d ms (%.1f us each)",
+                        (loaded - start) / 1000000, LOOKUPS, (byLitleTxnId - loaded) / 1000000, (byLitleTxnId - loaded) / 1e3 / LOOKUPS,
+                        (byOrderId - byLitleTxnId) / 1000000, (byOrderId - byLitleTxnId) / 1e3 / LOOKUPS));
+            }
+        } finally {
+            indexFile.delete();
+            file.delete();
+        }
+    }
+
+}
@@ -0,0 +1,161 @@
+package com.litle.sdk;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Writes a response file of 500,000 sale responses in 20 batches, then prints the time to read every transaction
+ * out of it through LitleBatchFileResponse, one batch after another and with processBatchesInParallel, and the time to
+ * read only the batch headers, stepping over every transaction, to read four fields of each
+ * transaction through a LitleResponseProjection, and to summarize the file.
+ */
+public class performanceTestResponseParsing {
+
+    static final int BATCHES = 20;
+    static final int TRANSACTIONS_PER_BATCH = 25000;
+    static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        File file = new File(System.getProperty("java.io.tmpdir"), "litleResponseBenchmark.xml");
+        writeResponseFile(file);
+        try {
+            // warm up JAXB and the JIT
+            read(file);
+            readInParallel(file);
+            readBatchHeaders(file);
+            readProjected(file);
+            new LitleBatchFileResponse(file).summarize();
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                int transactions = read(file);
+                long sequential = System.nanoTime();
+                int transactionsInParallel = readInParallel(file);
+                long parallel = System.nanoTime();
+                System.out.println(String.format("%d transactions, %9d bytes: sequential %6d ms, %8.0f txn/s; parallel (%d threads) %6d ms, %8.0f txn/s",
+                        transactions, file.length(), (sequential - start) / 1000000, transactions / ((sequential - start) / 1e9),
+                        Runtime.getRuntime().availableProcessors(), (parallel - sequential) / 1000000,
+                        transactionsInParallel / ((parallel - sequential) / 1e9)));
+                start = System.nanoTime();
+                int batches = readBatchHeaders(file);
+                long elapsed = System.nanoTime() - start;
+                System.out.println(String.format("%d batch headers only: %6d ms, %8.1f MB/s",
+                        batches, elapsed / 1000000, file.length() / (elapsed / 1e9) / (1024 * 1024)));
+                start = System.nanoTime();
+                int projected = readProjected(file);
+                elapsed = System.nanoTime() - start;
+                System.out.println(String.format("%d transactions projected: %6d ms, %8.0f txn/s",
+                        projected, elapsed / 1000000, projected / (elapsed / 1e9)));
+                start = System.nanoTime();
+                LitleResponseSummary summary = new LitleBatchFileResponse(file).summarize();
+                elapsed = System.nanoTime() - start;
+                System.out.println(String.format("%d transactions summarized: %6d ms, %8.0f txn/s",
+                        summary.getTransactionCount(), elapsed / 1000000, summary.getTransactionCount() / (elapsed / 1e9)));
+            }
+        } finally {
+            file.delete();
+        }
+    }
+
+    static int read(File file) {
+        LitleBatchFileResponse response = new LitleBatchFileResponse(file);
+        int transactions = 0;
+        for (int b = 0; b < BATCHES; b++) {
+            LitleBatchResponse batch = response.getNextLitleBatchResponse();
+            try {
+                while (true) {
+                    batch.getNextTransaction();
+                    transactions++;
+                }
+            } catch (LitleBatchNoMoreBatchTransactionException e) {
+                // on to the next batch
+            }
+        }
+        return transactions;
+    }
+
+    static int readProjected(File file) {
+        LitleBatchFileResponse response = new LitleBatchFileResponse(file);
+        LitleTransactionView view = new LitleResponseProjection("litleTxnId", "orderId", "response", "message").newView();
+        int transactions = 0;
+        for (int b = 0; b < BATCHES; b++) {
+            LitleBatchResponse batch = response.getNextLitleBatchResponse();
+            while (batch.nextTransaction(view)) {
+                if (view.getResponse() != null) {
+                    transactions++;
+                }
+            }
+        }
+        return transactions;
+    }
+
+    static int readBatchHeaders(File file) {
+        LitleBatchFileResponse response = new LitleBatchFileResponse(file);
+        int batches = 0;
+        try {
+            while (true) {
+                response.getNextLitleBatchResponse();
+                batches++;
+            }
+        } catch (LitleBatchNoMoreBatchesException e) {
+            // every batch has been seen
+        }
+        return batches;
+    }
+
+    static int readInParallel(File file) {
+        final AtomicInteger transactions = new AtomicInteger();
+        LitleResponseProcessor ignore = (LitleResponseProcessor) Proxy.newProxyInstance(
+                LitleResponseProcessor.class.getClassLoader(), new Class<?>[] { LitleResponseProcessor.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return null;
+                    }
+                });
+        new LitleBatchFileResponse(file).processBatchesInParallel(ignore, new LitleBatchCompletionListener() {
+            public void batchCompleted(int batchIndex, LitleBatchResponse batchResponse, int transactionCount) {
+                transactions.addAndGet(transactionCount);
+            }
+
+            public void batchFailed(int batchIndex, RuntimeException e) {
+                e.printStackTrace();
+            }
+        });
+        return transactions.get();
+    }
+
+    static void writeResponseFile(File file) throws Exception {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"), 64 * 1024);
+        try {
+            out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n");
+            out.write("<litleResponse version=\"8.17\" xmlns=\"http://www.litle.com/schema\" response=\"0\" message=\"Valid Format\" litleSessionId=\"82821\">\n");
+            for (int b = 0; b < BATCHES; b++) {
+                out.write("  <batchResponse id=\"" + b + "\" litleBatchId=\"" + (1000 + b) + "\" merchantId=\"07103229\">\n");
+                for (int i = 0; i < TRANSACTIONS_PER_BATCH; i++) {
+                    int n = b * TRANSACTIONS_PER_BATCH + i;
+                    out.write("    <saleResponse id=\"" + n + "\" reportGroup=\"Planets\">\n"
+                            + "      <litleTxnId>" + (84568456000L + n) + "</litleTxnId>\n"
+                            + "      <orderId>" + n + "</orderId>\n"
+                            + "      <response>000</response>\n"
+                            + "      <responseTime>2013-03-01T10:20:30</responseTime>\n"
+                            + "      <message>Approved</message>\n"
+                            + "      <authCode>123457</authCode>\n"
+                            + "      <fraudResult>\n"
+                            + "        <avsResult>00</avsResult>\n"
+                            + "      </fraudResult>\n"
+                            + "    </saleResponse>\n");
+                }
+                out.write("  </batchResponse>\n");
+            }
+            out.write("</litleResponse>\n");
+        } finally {
+            out.close();
+        }
+    }
+
+}
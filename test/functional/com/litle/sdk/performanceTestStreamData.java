@@ -0,0 +1,136 @@
+package com.litle.sdk;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+
+/**
+ * Sends a request file (500 MB, or the number of MB given as the argument) to a loopback server and receives a
+ * response a tenth of its size, with the old StreamData copy loops (one char at a time through a FileReader and a
+ * FileWriter) and with StreamData, and prints the time each took.
+ */
+public class performanceTestStreamData {
+
+    static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws Exception {
+        long size = (args.length > 0 ? Long.parseLong(args[0]) : 500) * 1024 * 1024;
+        File requestFile = new File(System.getProperty("java.io.tmpdir"), "litleStreamBenchmarkRequest.xml");
+        File responseFile = new File(System.getProperty("java.io.tmpdir"), "litleStreamBenchmarkResponse.xml");
+        writeFile(requestFile, size);
+        final ServerSocket server = new ServerSocket(0);
+        final long responseSize = size / 10;
+        Thread loopback = new Thread() {
+            public void run() {
+                byte[] buffer = new byte[1024 * 1024];
+                byte[] response = new byte[1024 * 1024];
+                Arrays.fill(response, (byte) 'x');
+                try {
+                    while (true) {
+                        Socket connection = server.accept();
+                        InputStream in = connection.getInputStream();
+                        long read = 0;
+                        long length = Long.parseLong(readLine(in));
+                        while (read < length) {
+                            read += in.read(buffer);
+                        }
+                        OutputStream out = connection.getOutputStream();
+                        for (long written = 0; written < responseSize; written += response.length) {
+                            out.write(response, 0, (int) Math.min(response.length, responseSize - written));
+                        }
+                        connection.close();
+                    }
+                } catch (Exception e) {
+                    // the server has been closed
+                }
+            }
+        };
+        loopback.setDaemon(true);
+        loopback.start();
+        try {
+            String port = String.valueOf(server.getLocalPort());
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                sendWithCharLoops(port, requestFile, responseFile);
+                long legacy = System.nanoTime() - start;
+                start = System.nanoTime();
+                StreamData streamData = new StreamData();
+                streamData.init("localhost", port, 60000, false, 1024 * 1024, 1024 * 1024);
+                streamData.dataOut(requestFile);
+                streamData.dataIn(responseFile);
+                streamData.closeSocket();
+                long nio = System.nanoTime() - start;
+                System.out.println(String.format("%d MB out, %d MB in: char loops %6d ms, %7.1f MB/s; channels %6d ms, %7.1f MB/s",
+                        size >> 20, responseSize >> 20, legacy / 1000000, (size + responseSize) / (legacy / 1e9) / (1024 * 1024),
+                        nio / 1000000, (size + responseSize) / (nio / 1e9) / (1024 * 1024)));
+            }
+        } finally {
+            server.close();
+            requestFile.delete();
+            responseFile.delete();
+        }
+    }
+
+    static void sendWithCharLoops(String port, File requestFile, File responseFile) throws Exception {
+        Socket socket = new Socket("localhost", Integer.parseInt(port));
+        socket.setTcpNoDelay(true);
+        socket.setSoTimeout(60000);
+        try {
+            OutputStreamWriter osw = new OutputStreamWriter(new BufferedOutputStream(socket.getOutputStream()), "UTF-8");
+            FileReader fr = new FileReader(requestFile);
+            int c;
+            while ((c = fr.read()) != -1) {
+                osw.write(c);
+            }
+            osw.flush();
+            fr.close();
+            InputStreamReader isr = new InputStreamReader(new BufferedInputStream(socket.getInputStream()), "UTF-8");
+            FileWriter fw = new FileWriter(responseFile);
+            int value;
+            while ((value = isr.read()) != -1) {
+                fw.write((char) value);
+            }
+            fw.close();
+        } finally {
+            socket.close();
+        }
+    }
+
+    /**
+     * Writes a file starting with a line giving the number of bytes that follow it, for the loopback server to know
+     * where the request ends.
+     */
+    static void writeFile(File file, long size) throws Exception {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file), 1024 * 1024);
+        try {
+            String header = String.valueOf(size) + "\n";
+            out.write(header.getBytes("US-ASCII"));
+            byte[] sale = "<sale id=\"1\" reportGroup=\"Planets\"><orderId>1</orderId><amount>100</amount></sale>\n".getBytes("UTF-8");
+            for (long written = 0; written < size; written += sale.length) {
+                out.write(sale, 0, (int) Math.min(sale.length, size - written));
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    static String readLine(InputStream in) throws Exception {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            line.append((char) c);
+        }
+        return line.toString();
+    }
+
+}
@@ -0,0 +1,174 @@
+package com.litle.sdk;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Properties;
+
+import com.litle.sdk.generate.Authorization;
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
+import com.litle.sdk.generate.OrderSourceType;
+
+/**
+ * Sends authorizations over keep-alive connections to a minimal http responder on the loopback interface: once with
+ * the request and response as Strings, once with streamRequests=true and once with streamResponses=true as well.
+ * Prints the bytes the calling thread allocates per authorization and the time per call.  Needs a HotSpot JVM for the per thread allocation counter.
+ */
+public class performanceTestStreamingRequests {
+
+    static final int WARMUP_CALLS = 2000;
+    static final int CALLS = 5000;
+    static final byte[] RESPONSE = ("<litleOnlineResponse version='8.18' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'>"
+            + "<authorizationResponse><litleTxnId>123</litleTxnId></authorizationResponse></litleOnlineResponse>").getBytes();
+
+    public static void main(String[] args) throws Exception {
+        final ServerSocket server = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+        Thread acceptor = new Thread(new Runnable() {
+            public void run() {
+                try {
+                    while (true) {
+                        final Socket socket = server.accept();
+                        socket.setTcpNoDelay(true);
+                        Thread connection = new Thread(new Runnable() {
+                            public void run() {
+                                serve(socket);
+                            }
+                        });
+                        connection.setDaemon(true);
+                        connection.start();
+                    }
+                } catch (IOException e) {
+                    // closed at the end of the run
+                }
+            }
+        });
+        acceptor.setDaemon(true);
+        acceptor.start();
+        String url = "http://127.0.0.1:" + server.getLocalPort() + "/online";
+        try {
+            LitleOnline buffered = createLitleOnline(url, "false", "false");
+            LitleOnline streamedRequests = createLitleOnline(url, "true", "false");
+            LitleOnline streamedBothWays = createLitleOnline(url, "true", "true");
+            run(buffered, WARMUP_CALLS);
+            run(streamedRequests, WARMUP_CALLS);
+            run(streamedBothWays, WARMUP_CALLS);
+            report("String request and response  ", buffered);
+            report("streamed request             ", streamedRequests);
+            report("streamed request and response", streamedBothWays);
+        } finally {
+            server.close();
+        }
+    }
+
+    /**
+     * Answers every request on a keep-alive connection with the same authorization response, in a single write.
+     */
+    static void serve(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+            byte[] response = ("HTTP/1.1 200 OK\r\nContent-Type: text/xml\r\nContent-Length: " + RESPONSE.length + "\r\n\r\n"
+                    + new String(RESPONSE, "UTF-8")).getBytes("UTF-8");
+            String line;
+            while ((line = readLine(in)) != null) {
+                long contentLength = 0;
+                boolean chunked = false;
+                while ((line = readLine(in)) != null && line.length() > 0) {
+                    String header = line.toLowerCase();
+                    if (header.startsWith("content-length:")) {
+                        contentLength = Long.parseLong(header.substring(15).trim());
+                    } else if (header.startsWith("transfer-encoding:") && header.contains("chunked")) {
+                        chunked = true;
+                    }
+                }
+                if (chunked) {
+                    long chunkSize;
+                    while ((chunkSize = Long.parseLong(readLine(in).trim(), 16)) > 0) {
+                        skip(in, chunkSize + 2);
+                    }
+                    readLine(in);
+                } else {
+                    skip(in, contentLength);
+                }
+                out.write(response);
+                out.flush();
+            }
+        } catch (IOException e) {
+            // the client closed the connection
+        }
+    }
+
+    static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int b;
+        while ((b = in.read()) != -1 && b != '\n') {
+            if (b != '\r') {
+                line.append((char) b);
+            }
+        }
+        return b == -1 && line.length() == 0 ? null : line.toString();
+    }
+
+    static void skip(InputStream in, long bytes) throws IOException {
+        while (bytes > 0) {
+            long skipped = in.skip(bytes);
+            if (skipped <= 0) {
+                throw new IOException("Unexpected end of request");
+            }
+            bytes -= skipped;
+        }
+    }
+
+    static void report(String label, LitleOnline litle) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long allocatedBefore = threads.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        run(litle, CALLS);
+        long elapsed = System.nanoTime() - start;
+        long allocated = threads.getThreadAllocatedBytes(threadId) - allocatedBefore;
+        System.out.println(label + ": " + allocated / CALLS + " bytes allocated per authorization, "
+                + elapsed / CALLS / 1000 + " us per call");
+    }
+
+    static void run(LitleOnline litle, int calls) {
+        for (int i = 0; i < calls; i++) {
+            litle.authorize(createAuthorization(i));
+        }
+    }
+
+    static LitleOnline createLitleOnline(String url, String streamRequests, String streamResponses) {
+        Properties config = new Properties();
+        config.setProperty("url", url);
+        config.setProperty("reportGroup", "Default Report Group");
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", "101");
+        config.setProperty("version", "8.18");
+        config.setProperty("timeout", "65");
+        config.setProperty("keepAlive", "true");
+        config.setProperty("streamRequests", streamRequests);
+        config.setProperty("streamResponses", streamResponses);
+        return new LitleOnline(config);
+    }
+
+    static Authorization createAuthorization(int i) {
+        Authorization authorization = new Authorization();
+        authorization.setOrderId(String.valueOf(i));
+        authorization.setAmount(106L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+        CardType card = new CardType();
+        card.setType(MethodOfPaymentTypeEnum.VI);
+        card.setNumber("4100000000000002");
+        card.setExpDate("1210");
+        authorization.setCard(card);
+        return authorization;
+    }
+
+}
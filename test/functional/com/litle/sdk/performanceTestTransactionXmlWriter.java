@@ -0,0 +1,71 @@
+package com.litle.sdk;
+
+import java.io.File;
+import java.util.Properties;
+
+/**
+ * Builds a request file of 200,000 sales in 2 batches with each batchTransactionWriter, and prints the time each
+ * took and the number of transactions written per second.
+ */
+public class performanceTestTransactionXmlWriter {
+
+    static final int BATCHES = 2;
+    static final int TRANSACTIONS_PER_BATCH = 100000;
+    static final int ROUNDS = 3;
+    static String merchantId = "07103229";
+
+    public static void main(String[] args) throws Exception {
+        File workDir = new File(System.getProperty("java.io.tmpdir"), "litleWriterBenchmark");
+        workDir.mkdirs();
+        // warm up JAXB and the JIT
+        measure(workDir, "jaxb", false);
+        measure(workDir, "direct", false);
+        for (int round = 0; round < ROUNDS; round++) {
+            measure(workDir, "jaxb", true);
+            measure(workDir, "direct", true);
+        }
+    }
+
+    static void measure(File workDir, String transactionWriter, boolean print) throws Exception {
+        int transactions = BATCHES * TRANSACTIONS_PER_BATCH;
+        long start = System.nanoTime();
+        File file = build(workDir, transactionWriter);
+        long elapsed = System.nanoTime() - start;
+        if (print) {
+            System.out.println(String.format("%-6s: %6d ms, %8.0f txn/s, %9d bytes",
+                    transactionWriter, elapsed / 1000000, transactions / (elapsed / 1e9), file.length()));
+        }
+        file.delete();
+    }
+
+    static File build(File workDir, String transactionWriter) throws Exception {
+        Properties config = new Properties();
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", merchantId);
+        config.setProperty("batchHost", "localhost");
+        config.setProperty("batchPort", "15000");
+        config.setProperty("batchTcpTimeout", "10000");
+        config.setProperty("batchUseSSL", "false");
+        config.setProperty("maxAllowedTransactionsPerFile", String.valueOf(BATCHES * TRANSACTIONS_PER_BATCH));
+        config.setProperty("maxTransactionsPerBatch", String.valueOf(TRANSACTIONS_PER_BATCH));
+        config.setProperty("batchRequestFolder", workDir.getAbsolutePath());
+        config.setProperty("batchResponseFolder", workDir.getAbsolutePath());
+        config.setProperty("proxyHost", "");
+        config.setProperty("proxyPort", "");
+        config.setProperty("sftpUsername", "");
+        config.setProperty("sftpPassword", "");
+        config.setProperty("batchTransactionWriter", transactionWriter);
+
+        LitleBatchFileRequest litleBatchFileRequest = new LitleBatchFileRequest("writerBenchmark.xml", config);
+        for (int b = 0; b < BATCHES; b++) {
+            LitleBatchRequest batch = litleBatchFileRequest.createBatch(merchantId);
+            for (int i = 0; i < TRANSACTIONS_PER_BATCH; i++) {
+                batch.addTransaction(performanceTestBatchFileAssembly.createSale(b * TRANSACTIONS_PER_BATCH + i));
+            }
+        }
+        litleBatchFileRequest.generateRequestFile();
+        return litleBatchFileRequest.getFile();
+    }
+
+}
@@ -0,0 +1,95 @@
+package com.litle.sdk;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+
+import com.litle.sdk.generate.Authorization;
+import com.litle.sdk.generate.AuthorizationResponse;
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
+import com.litle.sdk.generate.OrderSourceType;
+
+/**
+ * Pushes 10,000 authorizations through LitleOnlineAsync against a transport that blocks for 50 ms per call, once on
+ * the platform thread pool and once on virtual threads, and prints the throughput and peak OS thread count of each.
+ * The virtual thread run needs Java 21 or later.
+ */
+public class performanceTestVirtualThreads {
+
+    static final int CALLS = 10000;
+    static final long ROUND_TRIP_MILLIS = 50;
+
+    public static void main(String[] args) throws Exception {
+        // warm up JAXB and the JIT so neither run pays for them
+        run("warm-up ", "false", "200");
+        System.gc();
+        run("platform", "false", "200");
+        if (LitleExecutors.isVirtualThreadSupported()) {
+            run("virtual ", "true", "200");
+        } else {
+            System.out.println("virtual threads are not available on Java " + System.getProperty("java.version"));
+        }
+    }
+
+    static void run(String label, String useVirtualThreads, String ioThreads) throws Exception {
+        Properties config = new Properties();
+        config.setProperty("url", "http://localhost/online");
+        config.setProperty("reportGroup", "Default Report Group");
+        config.setProperty("username", "PHXMLTEST");
+        config.setProperty("password", "password");
+        config.setProperty("merchantId", "101");
+        config.setProperty("version", "8.18");
+        config.setProperty("useVirtualThreads", useVirtualThreads);
+        config.setProperty("ioThreads", ioThreads);
+        LitleOnline litle = new LitleOnline(config);
+        litle.setCommunication(new Communication() {
+            @Override
+            public String requestToServer(String xmlRequest, Properties configuration) {
+                try {
+                    Thread.sleep(ROUND_TRIP_MILLIS);
+                } catch (InterruptedException e) {
+                    throw new LitleOnlineException("interrupted");
+                }
+                return "<litleOnlineResponse version='8.18' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'>"
+                        + "<authorizationResponse><litleTxnId>123</litleTxnId></authorizationResponse></litleOnlineResponse>";
+            }
+        });
+        LitleOnlineAsync async = new LitleOnlineAsync(litle);
+
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long start = System.nanoTime();
+        List<Future<AuthorizationResponse>> results = new ArrayList<Future<AuthorizationResponse>>(CALLS);
+        for (int i = 0; i < CALLS; i++) {
+            results.add(async.authorizeAsync(createAuthorization(i)));
+        }
+        for (Future<AuthorizationResponse> result : results) {
+            result.get();
+        }
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+        async.shutdown();
+        // let the pool's threads exit so they are not counted against the next run
+        Thread.sleep(500);
+
+        System.out.println(label + ": " + CALLS + " calls in " + elapsedMillis + " ms, "
+                + (CALLS * 1000L / Math.max(1, elapsedMillis)) + " calls/s, peak OS threads " + threads.getPeakThreadCount());
+    }
+
+    static Authorization createAuthorization(int i) {
+        Authorization authorization = new Authorization();
+        authorization.setOrderId(String.valueOf(i));
+        authorization.setAmount(106L);
+        authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+        CardType card = new CardType();
+        card.setType(MethodOfPaymentTypeEnum.VI);
+        card.setNumber("4100000000000002");
+        card.setExpDate("1210");
+        authorization.setCard(card);
+        return authorization;
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.Properties;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestBatchStagingOutputStream {
+
+	private File file;
+
+	@Before
+	public void before() throws Exception {
+		file = File.createTempFile("litleStaging", ".tmp");
+	}
+
+	@After
+	public void after() {
+		file.delete();
+	}
+
+	@Test
+	public void testWritesEverythingInOrder() throws Exception {
+		for (int bufferSize : new int[] {0, 1, 7, 64, 65536}) {
+			for (boolean direct : new boolean[] {false, true}) {
+				BatchStagingOutputStream out = new BatchStagingOutputStream(file, bufferSize, direct, 3);
+				ByteArrayOutputStream expected = new ByteArrayOutputStream();
+				for (int i = 0; i < 200; i++) {
+					byte[] chunk = new byte[i % 100];
+					for (int j = 0; j < chunk.length; j++) {
+						chunk[j] = (byte) (i + j);
+					}
+					out.write(chunk, 0, chunk.length);
+					out.write(i);
+					out.transactionWritten();
+					expected.write(chunk, 0, chunk.length);
+					expected.write(i);
+				}
+				out.close();
+				out.close();
+				assertArrayEquals("buffer " + bufferSize + " direct " + direct, expected.toByteArray(), read(file));
+			}
+		}
+	}
+
+	@Test
+	public void testSyncPolicyFromConfig() throws Exception {
+		Properties config = new Properties();
+		config.setProperty("batchStagingSync", "batch");
+		BatchStagingOutputStream.open(file, config).close();
+		config.setProperty("batchStagingSync", "1000");
+		BatchStagingOutputStream.open(file, config).close();
+		config.setProperty("batchStagingSync", "sometimes");
+		try {
+			BatchStagingOutputStream.open(file, config);
+			fail("Expected an invalid sync policy to be rejected");
+		} catch (LitleBatchException e) {
+			assertEquals("batchStagingSync must be \"never\", \"batch\" or a positive number of transactions, not sometimes", e.getMessage());
+		}
+	}
+
+	private static byte[] read(File file) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream contents = new ByteArrayOutputStream();
+			byte[] buffer = new byte[4096];
+			int n;
+			while ((n = in.read(buffer)) != -1) {
+				contents.write(buffer, 0, n);
+			}
+			return contents.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+}
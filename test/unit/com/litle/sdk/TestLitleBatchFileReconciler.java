@@ -0,0 +1,88 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Test;
+
+public class TestLitleBatchFileReconciler {
+
+	private static final String REQUEST_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+			+ "<litleRequest version=\"8.18\" xmlns=\"http://www.litle.com/schema\" numBatchRequests=\"2\">\n"
+			+ "  <authentication><user>u</user><password>p</password></authentication>\n"
+			+ "  <batchRequest merchantId=\"101\">\n"
+			+ "    <sale id=\"1\" reportGroup=\"g\"><orderId>a</orderId><amount>100</amount></sale>\n"
+			+ "    <sale id=\"2\" reportGroup=\"g\"><orderId>b</orderId><amount>100</amount></sale>\n"
+			+ "    <authorization id=\"3\" reportGroup=\"g\"><orderId>c</orderId><amount>100</amount></authorization>\n"
+			+ "    <sale id=\"4\" reportGroup=\"g\"><orderId>d &amp; e</orderId><amount>100</amount></sale>\n"
+			+ "    <sale id=\"4\" reportGroup=\"g\"><orderId>d &amp; e</orderId><amount>100</amount></sale>\n"
+			+ "  </batchRequest>\n"
+			+ "  <batchRequest merchantId=\"101\">\n"
+			+ "    <echeckSale id=\"5\" reportGroup=\"g\"><orderId>f</orderId></echeckSale>\n"
+			+ "    <sale id=\"6\" reportGroup=\"g\"><orderId>g</orderId><amount>100</amount></sale>\n"
+			+ "    <sale id=\"1\" reportGroup=\"other\"><orderId>a</orderId><amount>100</amount></sale>\n"
+			+ "  </batchRequest>\n"
+			+ "</litleRequest>\n";
+
+	private static final String RESPONSE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<litleResponse version=\"8.18\" xmlns=\"http://www.litle.com/schema\" response=\"0\" message=\"Valid Format\" litleSessionId=\"1\">\n"
+			+ "  <batchResponse litleBatchId=\"1\" merchantId=\"101\">\n"
+			+ "    <saleResponse id=\"1\" reportGroup=\"g\"><litleTxnId>11</litleTxnId><orderId>a</orderId></saleResponse>\n"
+			+ "    <creditResponse id=\"3\" reportGroup=\"g\"><litleTxnId>13</litleTxnId><orderId>c</orderId></creditResponse>\n"
+			+ "    <saleResponse id=\"4\" reportGroup=\"g\"><litleTxnId>14</litleTxnId><orderId>d &amp; e</orderId></saleResponse>\n"
+			+ "  </batchResponse>\n"
+			+ "  <batchResponse litleBatchId=\"2\" merchantId=\"101\">\n"
+			+ "    <echeckSalesResponse id=\"5\" reportGroup=\"g\"><litleTxnId>15</litleTxnId><orderId>f</orderId></echeckSalesResponse>\n"
+			+ "    <saleResponse id=\"6\" reportGroup=\"g\"><litleTxnId>16</litleTxnId><orderId>g</orderId></saleResponse>\n"
+			+ "    <saleResponse id=\"6\" reportGroup=\"g\"><litleTxnId>17</litleTxnId><orderId>g</orderId></saleResponse>\n"
+			+ "    <saleResponse id=\"7\" reportGroup=\"g\"><litleTxnId>18</litleTxnId><orderId>h</orderId></saleResponse>\n"
+			+ "    <saleResponse id=\"1\" reportGroup=\"other\"><litleTxnId>19</litleTxnId><orderId>a</orderId></saleResponse>\n"
+			+ "  </batchResponse>\n"
+			+ "</litleResponse>\n";
+
+	@Test
+	public void testReportsEveryKindOfMismatch() throws Exception {
+		File requestFile = writeFile(REQUEST_XML);
+		File responseFile = writeFile(RESPONSE_XML);
+		try {
+			for (int partitions : new int[] { 1, 3 }) {
+				final List<String> mismatches = new ArrayList<String>();
+				LitleBatchFileReconciler reconciler = new LitleBatchFileReconciler(requestFile, responseFile);
+				reconciler.setPartitions(partitions);
+				long matched = reconciler.reconcile(new LitleReconciliationListener() {
+					public void mismatchFound(LitleReconciliationMismatch mismatch) {
+						mismatches.add(mismatch.toString());
+					}
+				});
+				assertEquals(4, matched);
+				Collections.sort(mismatches);
+				assertEquals("[DUPLICATE_REQUEST [request=sale, response=null, id=4, orderId=d & e, reportGroup=g], "
+						+ "DUPLICATE_RESPONSE [request=sale, response=saleResponse, id=6, orderId=g, reportGroup=g], "
+						+ "MISSING_RESPONSE [request=sale, response=null, id=2, orderId=b, reportGroup=g], "
+						+ "TRANSACTION_TYPE_MISMATCH [request=authorization, response=creditResponse, id=3, orderId=c, reportGroup=g], "
+						+ "UNEXPECTED_RESPONSE [request=null, response=saleResponse, id=7, orderId=h, reportGroup=g]]", mismatches.toString());
+			}
+		} finally {
+			requestFile.delete();
+			responseFile.delete();
+		}
+	}
+
+	private File writeFile(String xml) throws Exception {
+		File file = File.createTempFile("litleReconciliation", ".xml");
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(xml.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return file;
+	}
+
+}
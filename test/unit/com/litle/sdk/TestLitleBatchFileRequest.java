@@ -1,11 +1,25 @@
 package com.litle.sdk;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
+import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
@@ -15,6 +29,7 @@ import org.junit.Test;
 import org.mockito.Mockito;
 
 import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.LitleRequest;
 import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
 import com.litle.sdk.generate.OrderSourceType;
 import com.litle.sdk.generate.Sale;
@@ -142,6 +157,210 @@ public class TestLitleBatchFileRequest {
         assertTrue(litleBatchFileRequest.isFull());
     }
 
+    @Test
+    public void testConcurrentBatchesStopAtFileLimit() throws Exception {
+        final int threads = 8;
+        litleBatchFileRequest.getConfig().setProperty("batchRequestFolder", System.getProperty("java.io.tmpdir"));
+        final CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<LitleBatchRequest>> results = new ArrayList<Future<LitleBatchRequest>>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                final Marshaller mockMarshaller = Mockito.mock(Marshaller.class);
+                results.add(pool.submit(new Callable<LitleBatchRequest>() {
+                    public LitleBatchRequest call() throws Exception {
+                        start.await();
+                        LitleBatchRequest batch = litleBatchFileRequest.createBatch("101");
+                        batch.setMarshaller(mockMarshaller);
+                        try {
+                            for (int i = 0; i < 300; i++) {
+                                batch.addTransaction(createTestSale(100L, String.valueOf(i)));
+                            }
+                        } catch (LitleBatchFileFullException e) {
+                            // the other batches took the rest of the file
+                        }
+                        batch.closeFile();
+                        return batch;
+                    }
+                }));
+            }
+            start.countDown();
+            int inBatches = 0;
+            for (Future<LitleBatchRequest> result : results) {
+                LitleBatchRequest batch = result.get();
+                inBatches += batch.getNumberOfTransactions();
+                batch.getFile().delete();
+            }
+            assertEquals(threads, litleBatchFileRequest.getNumberOfBatches());
+            assertEquals(1000, inBatches);
+            assertEquals(1000, litleBatchFileRequest.getNumberOfTransactionInFile());
+            assertTrue(litleBatchFileRequest.isFull());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testParallelMarshallingWritesTransactionsInOrder() throws Exception {
+        File sequential = buildRequestFile("sequential.xml", "0", "false", "jaxb");
+        File parallel = buildRequestFile("parallel.xml", "3", "false", "jaxb");
+        try {
+            assertArrayEquals(readAll(sequential), readAll(parallel));
+        } finally {
+            sequential.delete();
+            parallel.delete();
+        }
+    }
+
+    @Test
+    public void testCompactXml() throws Exception {
+        File indented = buildRequestFile("indented.xml", "0", "false", "jaxb");
+        File compact = buildRequestFile("compact.xml", "2", "true", "jaxb");
+        try {
+            String xml = new String(readAll(compact), "UTF-8");
+            assertEquals(xml.length() - 1, xml.indexOf('\n'));
+            assertTrue(compact.length() < indented.length());
+            LitleRequest request = (LitleRequest) JAXBContextProvider.getContext().createUnmarshaller().unmarshal(compact);
+            assertEquals(100, request.getBatchRequests().get(0).getTransactions().size());
+            assertEquals(100, request.getBatchRequests().get(0).getNumSales().intValue());
+        } finally {
+            indented.delete();
+            compact.delete();
+        }
+    }
+
+    @Test
+    public void testDirectTransactionWriterMatchesJaxb() throws Exception {
+        for (String compactXml : new String[] { "false", "true" }) {
+            File jaxb = buildRequestFile("jaxb.xml", "0", compactXml, "jaxb");
+            File direct = buildRequestFile("direct.xml", "0", compactXml, "direct");
+            File directParallel = buildRequestFile("directParallel.xml", "2", compactXml, "direct");
+            try {
+                assertArrayEquals(readAll(jaxb), readAll(direct));
+                assertArrayEquals(readAll(jaxb), readAll(directParallel));
+            } finally {
+                jaxb.delete();
+                direct.delete();
+                directParallel.delete();
+            }
+        }
+    }
+
+    @Test
+    public void testNothingCanBeAddedOnceGenerated() throws Exception {
+        Properties config = (Properties) litleBatchFileRequest.getConfig().clone();
+        config.setProperty("batchRequestFolder", System.getProperty("java.io.tmpdir"));
+        LitleBatchFileRequest request = new LitleBatchFileRequest("generated.xml", config);
+        LitleBatchRequest batch = request.createBatch("101");
+        batch.addTransaction(createTestSale(100L, "1"));
+        request.generateRequestFile();
+        try {
+            try {
+                batch.addTransaction(createTestSale(101L, "2"));
+                fail("Expected a LitleBatchException");
+            } catch (LitleBatchException e) {
+                assertEquals(1, batch.getNumberOfTransactions());
+            }
+            try {
+                request.createBatch("101");
+                fail("Expected a LitleBatchException");
+            } catch (LitleBatchException e) {
+                assertEquals(1, request.getNumberOfBatches());
+            }
+            try {
+                request.generateRequestFile();
+                fail("Expected a LitleBatchException");
+            } catch (LitleBatchException e) {
+                assertEquals(1, request.getNumberOfTransactionInFile());
+            }
+        } finally {
+            request.getFile().delete();
+        }
+    }
+
+    @Test
+    public void testFailedGenerationLeavesNothingBehindAndCanBeRetried() throws Exception {
+        Properties config = (Properties) litleBatchFileRequest.getConfig().clone();
+        config.setProperty("batchRequestFolder", System.getProperty("java.io.tmpdir"));
+        LitleBatchFileRequest request = new LitleBatchFileRequest("retried.xml", config);
+        LitleBatchRequest first = request.createBatch("101");
+        first.addTransaction(createTestSale(100L, "1"));
+        LitleBatchRequest second = request.createBatch("101");
+        second.addTransaction(createTestSale(101L, "2"));
+        File target = request.getFileToWrite("batchRequestFolder");
+        assertTrue(target.mkdir());
+        try {
+            request.generateRequestFile();
+            fail("Expected a LitleBatchException");
+        } catch (LitleBatchException e) {
+            assertTrue(target.isDirectory());
+            assertNull(request.getFile());
+            assertTrue(first.getFile().isFile());
+            assertTrue(second.getFile().isFile());
+        } finally {
+            target.delete();
+        }
+
+        request.generateRequestFile();
+        try {
+            LitleRequest litleRequest = (LitleRequest) JAXBContextProvider.getContext().createUnmarshaller().unmarshal(request.getFile());
+            assertEquals(2, litleRequest.getBatchRequests().size());
+            assertEquals(1, litleRequest.getBatchRequests().get(1).getTransactions().size());
+            assertFalse(first.getFile().exists());
+            assertFalse(second.getFile().exists());
+        } finally {
+            request.getFile().delete();
+        }
+
+        LitleBatchFileRequest broken = new LitleBatchFileRequest("broken.xml", config);
+        LitleBatchRequest kept = broken.createBatch("101");
+        kept.addTransaction(createTestSale(100L, "1"));
+        LitleBatchRequest lost = broken.createBatch("101");
+        lost.addTransaction(createTestSale(101L, "2"));
+        lost.closeFile();
+        assertTrue(lost.getFile().delete());
+        try {
+            broken.generateRequestFile();
+            fail("Expected a LitleBatchException");
+        } catch (LitleBatchException e) {
+            assertFalse(broken.getFileToWrite("batchRequestFolder").exists());
+            assertTrue(kept.getFile().isFile());
+        } finally {
+            kept.getFile().delete();
+        }
+    }
+
+    private File buildRequestFile(String name, String marshallingThreads, String compactXml, String transactionWriter) throws Exception {
+        Properties config = (Properties) litleBatchFileRequest.getConfig().clone();
+        config.setProperty("batchRequestFolder", System.getProperty("java.io.tmpdir"));
+        config.setProperty("batchMarshallingThreads", marshallingThreads);
+        config.setProperty("batchMarshallingChunkSize", "7");
+        config.setProperty("batchCompactXml", compactXml);
+        config.setProperty("batchTransactionWriter", transactionWriter);
+        LitleBatchFileRequest request = new LitleBatchFileRequest(name, config);
+        LitleBatchRequest batch = request.createBatch("101");
+        for (int i = 0; i < 100; i++) {
+            batch.addTransaction(createTestSale(100L + i, String.valueOf(i)));
+        }
+        request.generateRequestFile();
+        assertEquals(100, batch.getBatchRequest().getNumSales().intValue());
+        return request.getFile();
+    }
+
+    private byte[] readAll(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        FileInputStream in = new FileInputStream(file);
+        try {
+            int read = 0;
+            while (read < bytes.length) {
+                read += in.read(bytes, read, bytes.length - read);
+            }
+        } finally {
+            in.close();
+        }
+        return bytes;
+    }
+
     public Sale createTestSale(Long amount, String orderId){
         Sale sale = new Sale();
         sale.setAmount(amount);
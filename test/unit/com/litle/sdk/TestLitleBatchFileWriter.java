@@ -0,0 +1,145 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.util.List;
+import java.util.Properties;
+
+import javax.xml.bind.JAXBElement;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.litle.sdk.generate.AccountUpdate;
+import com.litle.sdk.generate.BatchRequest;
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.LitleRequest;
+import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
+import com.litle.sdk.generate.OrderSourceType;
+import com.litle.sdk.generate.Sale;
+import com.litle.sdk.generate.TransactionType;
+
+public class TestLitleBatchFileWriter {
+
+	private File folder;
+	private LitleBatchFileWriter writer;
+
+	@Before
+	public void before() throws Exception {
+		folder = new File(System.getProperty("java.io.tmpdir"), "litleBatchFileWriterTest");
+		folder.mkdirs();
+		Properties property = new Properties();
+		property.setProperty("username", "PHXMLTEST");
+		property.setProperty("password", "password");
+		property.setProperty("version", "8.18");
+		property.setProperty("maxAllowedTransactionsPerFile", "5");
+		property.setProperty("maxTransactionsPerBatch", "2");
+		property.setProperty("batchHost", "localhost");
+		property.setProperty("batchPort", "2104");
+		property.setProperty("batchTcpTimeout", "10000");
+		property.setProperty("batchUseSSL", "false");
+		property.setProperty("merchantId", "101");
+		property.setProperty("proxyHost", "");
+		property.setProperty("proxyPort", "");
+		property.setProperty("sftpUsername", "");
+		property.setProperty("sftpPassword", "");
+		property.setProperty("batchRequestFolder", folder.getAbsolutePath());
+		property.setProperty("batchResponseFolder", folder.getAbsolutePath());
+		writer = new LitleBatchFileWriter("writerTest.xml", property);
+	}
+
+	@After
+	public void after() {
+		for (File file : writer.getFinishedFiles()) {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testRollsOverBatchesAndFiles() throws Exception {
+		for (int i = 0; i < 5; i++) {
+			writer.addTransaction("101", createTestSale(100L + i, "101-" + i));
+			writer.addTransaction("102", createTestSale(200L + i, "102-" + i));
+		}
+		writer.addTransaction("101", new AccountUpdate());
+
+		List<File> files = writer.close();
+		assertEquals(3, files.size());
+		assertEquals("writerTest_1.xml", files.get(0).getName());
+		assertEquals("writerTest_3.xml", files.get(2).getName());
+
+		LitleRequest first = read(files.get(0));
+		assertEquals(3, first.getNumBatchRequests().intValue());
+		assertEquals(2, first.getBatchRequests().get(0).getTransactions().size());
+		assertEquals("101", first.getBatchRequests().get(0).getMerchantId());
+		assertEquals(401, first.getBatchRequests().get(1).getSaleAmount().intValue());
+		assertEquals(1, first.getBatchRequests().get(2).getTransactions().size());
+
+		LitleRequest last = read(files.get(2));
+		assertEquals(1, last.getNumBatchRequests().intValue());
+		assertEquals(1, last.getBatchRequests().get(0).getNumAccountUpdates().intValue());
+	}
+
+	@Test
+	public void testKeepsAccountUpdatesInTheirOwnBatches() throws Exception {
+		writer.addTransaction("101", createTestSale(100L, "1"));
+		writer.addTransaction("101", new AccountUpdate());
+		writer.addTransaction("101", new AccountUpdate());
+
+		List<File> files = writer.close();
+		assertEquals(1, files.size());
+		List<BatchRequest> batches = read(files.get(0)).getBatchRequests();
+		assertEquals(2, batches.size());
+		assertEquals(1, batches.get(0).getNumSales().intValue());
+		assertEquals(0, batches.get(0).getNumAccountUpdates().intValue());
+		assertEquals(2, batches.get(1).getNumAccountUpdates().intValue());
+		for (JAXBElement<? extends TransactionType> transaction : batches.get(1).getTransactions()) {
+			assertTrue(transaction.getValue() instanceof AccountUpdate);
+		}
+	}
+
+	@Test(expected=LitleBatchException.class)
+	public void testAddAfterClose() {
+		writer.close();
+		writer.addTransaction("101", createTestSale(100L, "1"));
+	}
+
+	@Test
+	public void testRejectsTransactionsThatCannotBeBatched() throws Exception {
+		try {
+			writer.addTransaction("101", new com.litle.sdk.generate.Void());
+			fail("Expected a LitleBatchException");
+		} catch (LitleBatchException expected) {
+		}
+		writer.addTransaction("101", createTestSale(100L, "1"));
+
+		List<File> files = writer.close();
+		assertEquals(1, files.size());
+		BatchRequest batch = read(files.get(0)).getBatchRequests().get(0);
+		assertEquals(1, batch.getTransactions().size());
+		assertTrue(batch.getTransactions().get(0).getValue() instanceof Sale);
+	}
+
+	private LitleRequest read(File file) throws Exception {
+		return (LitleRequest) JAXBContextProvider.getContext().createUnmarshaller().unmarshal(file);
+	}
+
+	private Sale createTestSale(Long amount, String orderId){
+		Sale sale = new Sale();
+		sale.setAmount(amount);
+		sale.setOrderId(orderId);
+		sale.setOrderSource(OrderSourceType.ECOMMERCE);
+		CardType card = new CardType();
+		card.setType(MethodOfPaymentTypeEnum.VI);
+		card.setNumber("4100000000000002");
+		card.setExpDate("1210");
+		sale.setCard(card);
+		sale.setReportGroup("test");
+		return sale;
+	}
+
+}
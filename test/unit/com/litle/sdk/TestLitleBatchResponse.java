@@ -1,17 +1,39 @@
 package com.litle.sdk;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Before;
 import org.junit.Test;
 
+import com.litle.sdk.generate.AuthorizationResponse;
 import com.litle.sdk.generate.BatchResponse;
 import com.litle.sdk.generate.CardType;
 import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
 import com.litle.sdk.generate.OrderSourceType;
 import com.litle.sdk.generate.Sale;
+import com.litle.sdk.generate.SaleResponse;
+import com.litle.sdk.generate.TransactionType;
 
 public class TestLitleBatchResponse {
 
@@ -33,6 +55,343 @@ public class TestLitleBatchResponse {
 		assertEquals("101", litleBatchResponse.getBatchResponse().getMerchantId());
 	}
 
+	@Test
+	public void testReadsTransactionsFromResponseFile() throws Exception {
+		file = writeResponseFile();
+		try {
+			LitleBatchFileResponse fileResponse = new LitleBatchFileResponse(file);
+			assertEquals(12345L, fileResponse.getLitleSessionId());
+			assertEquals("Valid Format", fileResponse.getMessage());
+
+			LitleBatchResponse first = fileResponse.getNextLitleBatchResponse();
+			assertEquals(1431L, first.getLitleBatchId());
+			assertEquals("101", first.getMerchantId());
+			SaleResponse sale = (SaleResponse) first.getNextTransaction();
+			assertEquals("order & 1", sale.getOrderId());
+			assertEquals(11L, sale.getLitleTxnId());
+			AuthorizationResponse auth = (AuthorizationResponse) first.getNextTransaction();
+			assertEquals("2", auth.getOrderId());
+			try {
+				first.getNextTransaction();
+				fail("the first batch has only two transactions");
+			} catch (LitleBatchNoMoreBatchTransactionException expected) {
+			}
+
+			LitleBatchResponse second = fileResponse.getNextLitleBatchResponse();
+			assertEquals(1432L, second.getLitleBatchId());
+			final StringBuilder processed = new StringBuilder();
+			LitleResponseProcessor processor = (LitleResponseProcessor) Proxy.newProxyInstance(
+					getClass().getClassLoader(), new Class<?>[] { LitleResponseProcessor.class }, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							processed.append(method.getName()).append(';');
+							return null;
+						}
+					});
+			assertTrue(second.processNextTransaction(processor));
+			assertFalse(second.processNextTransaction(processor));
+			assertEquals("processSaleResponse;", processed.toString());
+
+			try {
+				fileResponse.getNextLitleBatchResponse();
+				fail("the file has only two batches");
+			} catch (LitleBatchNoMoreBatchesException expected) {
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	@SuppressWarnings("deprecation")
+	public void testGetNextTagReturnsElementXml() throws Exception {
+		file = writeResponseFile();
+		try {
+			ResponseFileParser parser = new ResponseFileParser(file);
+			String litleResponse = parser.getNextTag("litleResponse");
+			assertTrue(litleResponse, litleResponse.startsWith("<litleResponse version=\"8.17\" xmlns=\"http://www.litle.com/schema\""));
+			assertTrue(litleResponse, litleResponse.endsWith("></litleResponse>"));
+			String batchResponse = parser.getNextTag("batchResponse");
+			assertTrue(batchResponse, batchResponse.contains("litleBatchId=\"1431\""));
+			assertTrue(batchResponse, batchResponse.endsWith("></batchResponse>"));
+			String sale = parser.getNextTag("transactionResponse");
+			assertTrue(sale, sale.startsWith("<saleResponse xmlns=\"http://www.litle.com/schema\""));
+			assertTrue(sale, sale.contains("<orderId>order &amp; 1</orderId>"));
+			assertTrue(sale, sale.endsWith("</saleResponse>"));
+			parser.getNextTag("transactionResponse");
+			try {
+				parser.getNextTag("transactionResponse");
+				fail("the first batch has only two transactions");
+			} catch (Exception expected) {
+			}
+			parser.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testProcessBatchesInParallel() throws Exception {
+		String xml = RESPONSE_XML.replace("</litleResponse>",
+				"  <batchResponse id=\"a > b\" litleBatchId=\"1433\" merchantId=\"101\"/>\n</litleResponse>");
+		file = writeFile(xml);
+		ExecutorService executor = Executors.newFixedThreadPool(2);
+		try {
+			final List<String> processed = Collections.synchronizedList(new ArrayList<String>());
+			LitleResponseProcessor processor = (LitleResponseProcessor) Proxy.newProxyInstance(
+					getClass().getClassLoader(), new Class<?>[] { LitleResponseProcessor.class }, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							processed.add(method.getName());
+							return null;
+						}
+					});
+			final Map<Integer, String> completed = new ConcurrentHashMap<Integer, String>();
+			new LitleBatchFileResponse(file).processBatchesInParallel(processor, new LitleBatchCompletionListener() {
+				public void batchCompleted(int batchIndex, LitleBatchResponse batchResponse, int transactionCount) {
+					completed.put(batchIndex, batchResponse.getLitleBatchId() + "/" + transactionCount);
+				}
+
+				public void batchFailed(int batchIndex, RuntimeException e) {
+					completed.put(batchIndex, e.toString());
+				}
+			}, executor);
+
+			assertEquals("1431/2", completed.get(0));
+			assertEquals("1432/1", completed.get(1));
+			assertEquals("1433/0", completed.get(2));
+			Collections.sort(processed);
+			assertEquals("[processAuthorizationResponse, processSaleResponse, processSaleResponse]", processed.toString());
+		} finally {
+			executor.shutdown();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testProcessBatchesInParallelDefaultsToItsOwnPool() throws Exception {
+		file = writeFile(RESPONSE_XML);
+		try {
+			final List<String> threads = Collections.synchronizedList(new ArrayList<String>());
+			LitleResponseProcessor processor = (LitleResponseProcessor) Proxy.newProxyInstance(
+					getClass().getClassLoader(), new Class<?>[] { LitleResponseProcessor.class }, new InvocationHandler() {
+						public Object invoke(Object proxy, Method method, Object[] args) {
+							threads.add(Thread.currentThread().getName());
+							return null;
+						}
+					});
+			new LitleBatchFileResponse(file).processBatchesInParallel(processor, null);
+
+			assertEquals(3, threads.size());
+			for (String thread : threads) {
+				assertTrue(thread, thread.startsWith("litle-response-"));
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSkipsBatchesAndMarkupThatIsNotTags() throws Exception {
+		String xml = RESPONSE_XML.replace("<litleResponse ", "<!-- <batchResponse litleBatchId=\"1\"> -->\n<litleResponse ")
+				.replace("<message>Approved</message></saleResponse>", "<message><![CDATA[</batchResponse><batchResponse>]]></message></saleResponse>");
+		file = writeFile(xml);
+		try {
+			LitleBatchFileResponse fileResponse = new LitleBatchFileResponse(file);
+			assertEquals(1431L, fileResponse.getNextLitleBatchResponse().getLitleBatchId());
+			LitleBatchResponse second = fileResponse.getNextLitleBatchResponse();
+			assertEquals(1432L, second.getLitleBatchId());
+			assertEquals("</batchResponse><batchResponse>", ((SaleResponse) second.getNextTransaction()).getMessage());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testFindsTransactionsThroughIndex() throws Exception {
+		file = writeFile(RESPONSE_XML.replace("<saleResponse reportGroup=\"test\"><litleTxnId>13", "<saleResponse id=\"s&amp;3\" reportGroup=\"test\"><litleTxnId>13"));
+		File indexFile = ResponseFileIndex.indexFileFor(file);
+		try {
+			LitleBatchFileResponse fileResponse = new LitleBatchFileResponse(file);
+			assertEquals("2", ((AuthorizationResponse) fileResponse.findTransactionByLitleTxnId(12L)).getOrderId());
+			assertTrue(indexFile.isFile());
+			assertNull(fileResponse.findTransactionByLitleTxnId(99L));
+			List<TransactionType> byOrderId = fileResponse.findTransactionsByOrderId("order & 1");
+			assertEquals(1, byOrderId.size());
+			assertEquals(11L, ((SaleResponse) byOrderId.get(0)).getLitleTxnId());
+			assertTrue(fileResponse.findTransactionsByOrderId("order").isEmpty());
+			assertEquals(1431L, fileResponse.getNextLitleBatchResponse().getLitleBatchId());
+
+			LitleBatchFileResponse reopened = new LitleBatchFileResponse(file);
+			List<TransactionType> byId = reopened.findTransactionsById("s&3");
+			assertEquals(1, byId.size());
+			assertEquals(13L, ((SaleResponse) byId.get(0)).getLitleTxnId());
+			assertEquals("3", ((SaleResponse) reopened.findTransactionByLitleTxnId(13L)).getOrderId());
+		} finally {
+			indexFile.delete();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testIteratesOverTransactionsAndBatches() throws Exception {
+		file = writeResponseFile();
+		try {
+			LitleBatchFileResponse fileResponse = new LitleBatchFileResponse(file);
+			StringBuilder litleTxnIds = new StringBuilder();
+			for (TransactionType transaction : fileResponse.getTransactions()) {
+				litleTxnIds.append(transaction instanceof SaleResponse ? ((SaleResponse) transaction).getLitleTxnId()
+						: ((AuthorizationResponse) transaction).getLitleTxnId()).append(';');
+			}
+			assertEquals("11;12;13;", litleTxnIds.toString());
+			assertFalse(fileResponse.getTransactions().iterator().hasNext());
+
+			List<LitleBatchResponse> batches = new LitleBatchFileResponse(file).splitIntoBatches();
+			assertEquals(2, batches.size());
+			Iterator<TransactionType> second = batches.get(1).iterator();
+			assertEquals(13L, ((SaleResponse) second.next()).getLitleTxnId());
+			assertFalse(second.hasNext());
+			try {
+				second.next();
+				fail("the second batch has only one transaction");
+			} catch (NoSuchElementException expected) {
+			}
+			assertEquals(1431L, batches.get(0).getLitleBatchId());
+			assertEquals(11L, ((SaleResponse) batches.get(0).getNextTransaction()).getLitleTxnId());
+			fileResponse.close();
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSharesOneMappingUntilClosed() throws Exception {
+		file = writeResponseFile();
+		File indexFile = ResponseFileIndex.indexFileFor(file);
+		try {
+			LitleBatchFileResponse fileResponse = new LitleBatchFileResponse(file);
+			MappedResponseFile mappedFile = fileResponse.getMappedFile();
+			assertSame(fileResponse.getResponseFileParser().getMappedFile(), mappedFile);
+			assertEquals(3, fileResponse.summarize().getTransactionCount());
+			assertEquals(2, fileResponse.splitIntoBatches().size());
+			assertEquals("3", ((SaleResponse) fileResponse.findTransactionByLitleTxnId(13L)).getOrderId());
+			assertSame(mappedFile, fileResponse.getMappedFile());
+
+			fileResponse.close();
+			try {
+				fileResponse.summarize();
+				fail("Expected a LitleBatchException");
+			} catch (LitleBatchException expected) {
+			}
+		} finally {
+			indexFile.delete();
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testSummarizesResponses() throws Exception {
+		file = writeFile(RESPONSE_XML
+				.replace("<orderId>2</orderId><response>000</response><responseTime>2013-03-01T10:20:30</responseTime>",
+						"<orderId>2</orderId><response>110</response><responseTime>2013-03-01T10:20:31</responseTime><approvedAmount>500</approvedAmount>")
+				.replace("<orderId>3</orderId>", "<orderId>3</orderId><approvedAmount>250</approvedAmount>")
+				.replace("<litleTxnId>13</litleTxnId>", "<litleTxnId>13</litleTxnId><fraudResult><response>x</response></fraudResult>")
+				.replace("<saleResponse reportGroup=\"test\"><litleTxnId>13", "<saleResponse reportGroup=\"other\"><litleTxnId>13")
+				.replace("2013-03-01T10:20:30</responseTime><message>Approved</message></saleResponse>\n  </batchResponse>\n</litleResponse>",
+						"2013-03-01T10:20:40</responseTime><message>Approved</message></saleResponse>\n  </batchResponse>\n</litleResponse>"));
+		try {
+			LitleResponseSummary summary = new LitleBatchFileResponse(file).summarize();
+			assertEquals(3, summary.getTransactionCount());
+			assertEquals(750, summary.getApprovedAmount());
+			assertEquals("{authorizationResponse=1/500, saleResponse=2/250}", summary.getByTransactionType().toString());
+			assertEquals("{000=2/250, 110=1/500}", summary.getByResponseCode().toString());
+			assertEquals("{other=1/250, test=2/500}", summary.getByReportGroup().toString());
+			assertEquals(10000, summary.getLastResponseTime().getTime() - summary.getFirstResponseTime().getTime());
+			assertEquals(1000, summary.getResponseTimePercentile(50).getTime() - summary.getFirstResponseTime().getTime());
+
+			assertEquals(2, summary.getBatches().size());
+			LitleResponseSummary first = summary.getBatches().get(0);
+			assertEquals(1431L, first.getLitleBatchId());
+			assertEquals(2, first.getTransactionCount());
+			assertEquals("{000=1/0, 110=1/500}", first.getByResponseCode().toString());
+			assertTrue(first.getBatches().isEmpty());
+			assertEquals(250, summary.getBatches().get(1).getApprovedAmount());
+		} finally {
+			file.delete();
+		}
+	}
+
+	@Test
+	public void testReadsProjectedFieldsIntoView() throws Exception {
+		file = writeFile(RESPONSE_XML.replace("<saleResponse reportGroup=\"test\"><litleTxnId>13</litleTxnId>",
+				"<saleResponse id=\"s3\" reportGroup=\"test\"><litleTxnId>13</litleTxnId><fraudResult><avsResult>00</avsResult><message>x</message></fraudResult>"));
+		try {
+			LitleBatchFileResponse fileResponse = new LitleBatchFileResponse(file);
+			LitleResponseProjection projection = new LitleResponseProjection("litleTxnId", "orderId", "message", "fraudResult/avsResult");
+			LitleTransactionView view = projection.newView();
+
+			LitleBatchResponse first = fileResponse.getNextLitleBatchResponse();
+			assertEquals(11L, ((SaleResponse) first.getNextTransaction()).getLitleTxnId());
+			assertTrue(first.nextTransaction(view));
+			assertEquals("authorizationResponse", view.getTransactionType());
+			assertEquals(12L, view.getLitleTxnId());
+			assertEquals("2", view.getOrderId());
+			assertNull(view.get("fraudResult/avsResult"));
+			assertFalse(first.nextTransaction(view));
+
+			LitleBatchResponse second = fileResponse.getNextLitleBatchResponse();
+			assertTrue(second.nextTransaction(view));
+			assertEquals(13L, view.getLitleTxnId());
+			assertEquals("s3", view.getId());
+			assertEquals("test", view.getReportGroup());
+			assertEquals("Approved", view.getMessage());
+			assertEquals("00", view.get("fraudResult/avsResult"));
+			try {
+				view.getResponse();
+				fail("response is not in the projection");
+			} catch (IllegalArgumentException expected) {
+			}
+			SaleResponse sale = (SaleResponse) view.toTransaction();
+			assertEquals("00", sale.getFraudResult().getAvsResult());
+			assertEquals("000", sale.getResponse());
+			assertFalse(second.nextTransaction(view));
+			try {
+				second.getNextTransaction();
+				fail("the second batch has been read");
+			} catch (LitleBatchNoMoreBatchTransactionException expected) {
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	private static final String RESPONSE_XML = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+			+ "<litleResponse version=\"8.17\" xmlns=\"http://www.litle.com/schema\" response=\"0\" message=\"Valid Format\" litleSessionId=\"12345\">\n"
+			+ "  <batchResponse id=\"b1\" litleBatchId=\"1431\" merchantId=\"101\">\n"
+			+ "    <saleResponse reportGroup=\"test\"><litleTxnId>11</litleTxnId><orderId>order &amp; 1</orderId>"
+			+ "<response>000</response><responseTime>2013-03-01T10:20:30</responseTime><message>Approved</message></saleResponse>\n"
+			+ "    <authorizationResponse reportGroup=\"test\"><litleTxnId>12</litleTxnId><orderId>2</orderId>"
+			+ "<response>000</response><responseTime>2013-03-01T10:20:30</responseTime><message>Approved</message></authorizationResponse>\n"
+			+ "  </batchResponse>\n"
+			+ "  <batchResponse id=\"b2\" litleBatchId=\"1432\" merchantId=\"101\">\n"
+			+ "    <saleResponse reportGroup=\"test\"><litleTxnId>13</litleTxnId><orderId>3</orderId>"
+			+ "<response>000</response><responseTime>2013-03-01T10:20:30</responseTime><message>Approved</message></saleResponse>\n"
+			+ "  </batchResponse>\n"
+			+ "</litleResponse>\n";
+
+	private File writeResponseFile() throws Exception {
+		return writeFile(RESPONSE_XML);
+	}
+
+	private File writeFile(String xml) throws Exception {
+		File responseFile = File.createTempFile("litleResponse", ".xml");
+		OutputStream out = new FileOutputStream(responseFile);
+		try {
+			out.write(xml.getBytes("UTF-8"));
+		} finally {
+			out.close();
+		}
+		return responseFile;
+	}
+
 	public Sale createTestSale(Long amount, String orderId){
 		Sale sale = new Sale();
 		sale.setAmount(amount);
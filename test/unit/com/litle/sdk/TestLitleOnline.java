@@ -1,12 +1,15 @@
 package com.litle.sdk;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.mockito.Matchers.any;
 import static org.mockito.Matchers.matches;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.Calendar;
 import java.util.Properties;
 
@@ -642,4 +645,40 @@ public class TestLitleOnline {
 		assertEquals(123L, authorize.getLitleTxnId());
 	}
 
+	@Test
+	public void testAuthWithStreamedResponse() throws Exception {
+		Properties config = new Properties();
+		config.setProperty("url", "http://localhost/online");
+		config.setProperty("reportGroup", "Default Report Group");
+		config.setProperty("username", "PHXMLTEST");
+		config.setProperty("password", "password");
+		config.setProperty("merchantId", "101");
+		config.setProperty("version", "8.18");
+		config.setProperty("streamResponses", "true");
+		LitleOnline streamingLitle = new LitleOnline(config);
+		streamingLitle.setCommunication(new Communication() {
+			@Override
+			public <T> T requestToServer(String xmlRequest, Properties configuration, ResponseStreamHandler<T> handler) {
+				assertTrue(xmlRequest.matches(".*?<litleOnlineRequest.*?<authorization.*?<orderId>12344</orderId>.*?</authorization>.*?"));
+				try {
+					return handler.handleResponse(new ByteArrayInputStream(("<litleOnlineResponse version='8.18' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'>"
+							+ "<authorizationResponse><litleTxnId>123</litleTxnId></authorizationResponse></litleOnlineResponse>").getBytes("UTF-8")));
+				} catch (IOException e) {
+					throw new LitleOnlineException("unexpected", e);
+				}
+			}
+		});
+
+		Authorization authorization = new Authorization();
+		authorization.setOrderId("12344");
+		authorization.setAmount(106L);
+		authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+		CardType card = new CardType();
+		card.setType(MethodOfPaymentTypeEnum.VI);
+		card.setNumber("4100000000000002");
+		card.setExpDate("1210");
+		authorization.setCard(card);
+		assertEquals(123L, streamingLitle.authorize(authorization).getLitleTxnId());
+	}
+
 }
@@ -0,0 +1,163 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.matches;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.Properties;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.litle.sdk.generate.Authorization;
+import com.litle.sdk.generate.AuthorizationResponse;
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.LitleOnlineRequest;
+import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
+import com.litle.sdk.generate.OrderSourceType;
+import com.litle.sdk.generate.Sale;
+import com.litle.sdk.generate.SaleResponse;
+
+public class TestLitleOnlineAsync {
+
+	private LitleOnline litle;
+	private LitleOnlineAsync async;
+
+	@Before
+	public void before() throws Exception {
+		litle = new LitleOnline();
+		async = new LitleOnlineAsync(litle);
+	}
+
+	@After
+	public void after() throws Exception {
+		async.shutdown();
+	}
+
+	@Test
+	public void testAuthorizeAsyncWithOverrides() throws Exception {
+		Communication mockedCommunication = mock(Communication.class);
+		when(
+				mockedCommunication
+						.requestToServer(
+								matches(".*?<litleOnlineRequest.*?merchantId=\"9001\".*?<authorization.*?<number>4100000000000002</number>.*?</authorization>.*?"),
+								any(Properties.class)))
+				.thenReturn(
+						"<litleOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'><authorizationResponse><litleTxnId>123</litleTxnId></authorizationResponse></litleOnlineResponse>");
+		litle.setCommunication(mockedCommunication);
+
+		LitleOnlineRequest overrides = new LitleOnlineRequest();
+		overrides.setMerchantId("9001");
+		Future<AuthorizationResponse> future = async.authorizeAsync(createAuthorization(), overrides);
+		assertEquals(123L, future.get(10, TimeUnit.SECONDS).getLitleTxnId());
+	}
+
+	@Test
+	public void testFailureSurfacesFromGet() throws Exception {
+		Communication mockedCommunication = mock(Communication.class);
+		when(mockedCommunication.requestToServer(matches(".*?<sale.*"), any(Properties.class)))
+				.thenReturn("<litleOnlineResponse version='8.10' response='1' message='Error validating xml data against the schema' xmlns='http://www.litle.com/schema'/>");
+		litle.setCommunication(mockedCommunication);
+
+		Sale sale = new Sale();
+		sale.setAmount(106L);
+		sale.setOrderId("12344");
+		sale.setOrderSource(OrderSourceType.ECOMMERCE);
+		Future<SaleResponse> future = async.saleAsync(sale);
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			fail("Expected an ExecutionException");
+		} catch (ExecutionException e) {
+			assertTrue(e.getCause() instanceof LitleOnlineException);
+			assertEquals("Error validating xml data against the schema", e.getCause().getMessage());
+		}
+	}
+
+	@Test
+	public void testTimeoutCancelsCall() throws Exception {
+		litle.setCommunication(new Communication() {
+			@Override
+			public String requestToServer(String xmlRequest, Properties configuration) {
+				try {
+					Thread.sleep(10000);
+				} catch (InterruptedException e) {
+					throw new LitleOnlineException("interrupted");
+				}
+				return null;
+			}
+		});
+
+		Future<AuthorizationResponse> future = async.withTimeout(100, TimeUnit.MILLISECONDS).authorizeAsync(createAuthorization());
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("Expected the call to be cancelled");
+		} catch (CancellationException e) {
+			assertTrue(future.isCancelled());
+		}
+	}
+
+	@Test
+	public void testCompletedCallsLeaveNoTimeoutBehind() throws Exception {
+		Communication mockedCommunication = mock(Communication.class);
+		when(mockedCommunication.requestToServer(matches(".*?<authorization.*"), any(Properties.class)))
+				.thenReturn("<litleOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'><authorizationResponse><litleTxnId>123</litleTxnId></authorizationResponse></litleOnlineResponse>");
+		litle.setCommunication(mockedCommunication);
+
+		LitleOnlineAsync timed = async.withTimeout(3600, TimeUnit.SECONDS);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(123L, timed.authorizeAsync(createAuthorization()).get(10, TimeUnit.SECONDS).getLitleTxnId());
+		}
+		// done() may run just after get() returns
+		long deadline = System.currentTimeMillis() + 5000;
+		while (timed.getPendingTimeoutCount() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(0, timed.getPendingTimeoutCount());
+	}
+
+	@Test
+	public void testShutdownLeavesCallersExecutorAndViewsLeaveTheirParent() throws Exception {
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			LitleOnlineAsync shared = new LitleOnlineAsync(litle, executor);
+			shared.withTimeout(1, TimeUnit.SECONDS).shutdown();
+			shared.shutdown();
+			assertFalse(executor.isShutdown());
+		} finally {
+			executor.shutdown();
+		}
+
+		async.withTimeout(1, TimeUnit.SECONDS).shutdown();
+		Communication mockedCommunication = mock(Communication.class);
+		when(mockedCommunication.requestToServer(matches(".*?<authorization.*"), any(Properties.class)))
+				.thenReturn("<litleOnlineResponse version='8.10' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'><authorizationResponse><litleTxnId>123</litleTxnId></authorizationResponse></litleOnlineResponse>");
+		litle.setCommunication(mockedCommunication);
+		assertEquals(123L, async.withTimeout(1, TimeUnit.SECONDS).authorizeAsync(createAuthorization()).get(10, TimeUnit.SECONDS).getLitleTxnId());
+	}
+
+	private Authorization createAuthorization() {
+		Authorization authorization = new Authorization();
+		authorization.setReportGroup("Planets");
+		authorization.setOrderId("12344");
+		authorization.setAmount(106L);
+		authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+		CardType card = new CardType();
+		card.setType(MethodOfPaymentTypeEnum.VI);
+		card.setNumber("4100000000000002");
+		card.setExpDate("1210");
+		authorization.setCard(card);
+		return authorization;
+	}
+}
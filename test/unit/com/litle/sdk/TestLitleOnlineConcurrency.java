@@ -0,0 +1,146 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.litle.sdk.generate.Authorization;
+import com.litle.sdk.generate.Capture;
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
+import com.litle.sdk.generate.OrderSourceType;
+import com.litle.sdk.generate.Sale;
+
+public class TestLitleOnlineConcurrency {
+
+	private static final int THREADS = 16;
+	private static final int CALLS_PER_THREAD = 150;
+
+	private static LitleOnline litle;
+
+	@BeforeClass
+	public static void beforeClass() throws Exception {
+		Properties config = new Properties();
+		config.setProperty("url", "http://localhost/online");
+		config.setProperty("reportGroup", "Default Report Group");
+		config.setProperty("username", "PHXMLTEST");
+		config.setProperty("password", "password");
+		config.setProperty("merchantId", "101");
+		config.setProperty("version", "8.18");
+		config.setProperty("timeout", "65");
+		litle = new LitleOnline(config);
+		litle.setCommunication(new EchoCommunication());
+	}
+
+	@Test
+	public void testSharedInstanceFromManyThreads() throws Exception {
+		ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+		final CountDownLatch start = new CountDownLatch(1);
+		List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+		try {
+			for (int t = 0; t < THREADS; t++) {
+				final int thread = t;
+				results.add(pool.submit(new Callable<Integer>() {
+					public Integer call() throws Exception {
+						start.await();
+						int completed = 0;
+						for (int i = 0; i < CALLS_PER_THREAD; i++) {
+							long id = thread * 100000L + i + 1;
+							switch (i % 3) {
+							case 0:
+								assertEquals(id, litle.authorize(createAuthorization(id)).getLitleTxnId());
+								break;
+							case 1:
+								assertEquals(id, litle.sale(createSale(id)).getLitleTxnId());
+								break;
+							default:
+								Capture capture = new Capture();
+								capture.setLitleTxnId(id);
+								assertEquals(id, litle.capture(capture).getLitleTxnId());
+							}
+							completed++;
+						}
+						return completed;
+					}
+				}));
+			}
+			start.countDown();
+			int total = 0;
+			for (Future<Integer> result : results) {
+				total += result.get().intValue();
+			}
+			assertEquals(THREADS * CALLS_PER_THREAD, total);
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	private static Authorization createAuthorization(long id) {
+		Authorization authorization = new Authorization();
+		authorization.setOrderId(String.valueOf(id));
+		authorization.setAmount(106L);
+		authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+		authorization.setCard(createCard());
+		return authorization;
+	}
+
+	private static Sale createSale(long id) {
+		Sale sale = new Sale();
+		sale.setOrderId(String.valueOf(id));
+		sale.setAmount(106L);
+		sale.setOrderSource(OrderSourceType.ECOMMERCE);
+		sale.setCard(createCard());
+		return sale;
+	}
+
+	private static CardType createCard() {
+		CardType card = new CardType();
+		card.setType(MethodOfPaymentTypeEnum.VI);
+		card.setNumber("4100000000000002");
+		card.setExpDate("1210");
+		return card;
+	}
+
+	/**
+	 * Answers every request with the orderId (or litleTxnId for captures) echoed back as the litleTxnId,
+	 * so a response that crossed threads fails the assertion on the calling thread.
+	 */
+	private static class EchoCommunication extends Communication {
+		private static final Pattern ORDER_ID = Pattern.compile("<orderId>(\\d+)</orderId>");
+		private static final Pattern LITLE_TXN_ID = Pattern.compile("<litleTxnId>(\\d+)</litleTxnId>");
+
+		@Override
+		public String requestToServer(String xmlRequest, Properties configuration) {
+			String responseElement;
+			Matcher matcher;
+			if (xmlRequest.contains("<authorization")) {
+				responseElement = "authorizationResponse";
+				matcher = ORDER_ID.matcher(xmlRequest);
+			} else if (xmlRequest.contains("<sale")) {
+				responseElement = "saleResponse";
+				matcher = ORDER_ID.matcher(xmlRequest);
+			} else {
+				responseElement = "captureResponse";
+				matcher = LITLE_TXN_ID.matcher(xmlRequest);
+			}
+			if (!matcher.find()) {
+				throw new LitleOnlineException("No id in request: " + xmlRequest);
+			}
+			return "<litleOnlineResponse version='8.18' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'>"
+					+ "<" + responseElement + "><litleTxnId>" + matcher.group(1) + "</litleTxnId></" + responseElement + ">"
+					+ "</litleOnlineResponse>";
+		}
+	}
+}
@@ -0,0 +1,103 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Properties;
+import java.util.SortedMap;
+
+import org.junit.Test;
+
+import com.litle.sdk.LitleOnlineMetrics.Phase;
+import com.litle.sdk.LitleOnlineStatistics.TransactionSnapshot;
+import com.litle.sdk.generate.Capture;
+import com.litle.sdk.generate.Sale;
+
+public class TestLitleOnlineStatistics {
+
+	@Test
+	public void testHistogramPercentiles() {
+		LatencyHistogram histogram = new LatencyHistogram();
+		for (long i = 1; i <= 10000; i++) {
+			histogram.record(i * 1000);
+		}
+		LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+		assertEquals(10000, snapshot.getCount());
+		assertEquals(10000000, snapshot.getMax());
+		assertEquals(5000500, snapshot.getMean(), 0.001);
+		assertWithin(5000000, snapshot.getValueAtPercentile(50));
+		assertWithin(9900000, snapshot.getValueAtPercentile(99));
+		assertWithin(9990000, snapshot.getValueAtPercentile(99.9));
+		assertEquals(10000000, snapshot.getValueAtPercentile(100));
+		assertEquals(0, new LatencyHistogram().snapshot().getValueAtPercentile(50));
+	}
+
+	@Test
+	public void testBucketBoundaries() {
+		for (long value : new long[] {0, 1, 31, 32, 33, 63, 64, 65, 1000, 123456789, Long.MAX_VALUE}) {
+			int bucket = LatencyHistogram.bucketOf(value);
+			assertTrue(value <= LatencyHistogram.highestValueIn(bucket));
+			assertTrue(bucket == 0 || value > LatencyHistogram.highestValueIn(bucket - 1));
+		}
+	}
+
+	@Test
+	public void testLitleOnlineRecordsPhasesCodesAndErrors() {
+		Properties config = new Properties();
+		config.setProperty("url", "http://localhost/online");
+		config.setProperty("reportGroup", "Default Report Group");
+		config.setProperty("username", "PHXMLTEST");
+		config.setProperty("password", "password");
+		config.setProperty("merchantId", "101");
+		config.setProperty("version", "8.18");
+		LitleOnline litle = new LitleOnline(config);
+		litle.setCommunication(new Communication() {
+			@Override
+			public String requestToServer(String xmlRequest, Properties configuration) {
+				if (xmlRequest.contains("<capture")) {
+					return "<litleOnlineResponse version='8.18' response='1' message='Error validating xml data against the schema' xmlns='http://www.litle.com/schema'/>";
+				}
+				return "<litleOnlineResponse version='8.18' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'>"
+						+ "<saleResponse><litleTxnId>123</litleTxnId><response>000</response></saleResponse></litleOnlineResponse>";
+			}
+		});
+		LitleOnlineStatistics statistics = new LitleOnlineStatistics();
+		litle.setMetrics(statistics);
+
+		Sale sale = new Sale();
+		sale.setOrderId("1");
+		sale.setAmount(106L);
+		litle.sale(sale);
+		litle.sale(sale);
+		Capture capture = new Capture();
+		capture.setLitleTxnId(123L);
+		try {
+			litle.capture(capture);
+			fail("Expected the capture to be rejected");
+		} catch (LitleOnlineException expected) {
+		}
+
+		SortedMap<String, TransactionSnapshot> snapshot = statistics.snapshot();
+		TransactionSnapshot sales = snapshot.get("sale");
+		for (Phase phase : Phase.values()) {
+			assertEquals(2, sales.getLatency(phase).getCount());
+		}
+		assertEquals(Long.valueOf(2), sales.getResponseCodes().get("000"));
+		assertEquals(0, sales.getErrors());
+		TransactionSnapshot captures = snapshot.get("capture");
+		assertEquals(1, captures.getErrors());
+		assertEquals(1, captures.getLatency(Phase.NETWORK).getCount());
+		assertEquals(0, captures.getLatency(Phase.TOTAL).getCount());
+		assertTrue(captures.getResponseCodes().isEmpty());
+		assertTrue(statistics.report().contains("sale"));
+
+		litle.setMetrics(null);
+		litle.sale(sale);
+		assertEquals(2, statistics.snapshot().get("sale").getLatency(Phase.TOTAL).getCount());
+	}
+
+	private static void assertWithin(long expected, long actual) {
+		assertTrue("expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.04);
+	}
+}
@@ -0,0 +1,106 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Properties;
+
+import javax.xml.bind.Marshaller;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.litle.sdk.generate.Authorization;
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.LitleOnlineRequest;
+import com.litle.sdk.generate.MethodOfPaymentTypeEnum;
+import com.litle.sdk.generate.ObjectFactory;
+import com.litle.sdk.generate.OrderSourceType;
+
+public class TestMarshallingEntity {
+
+	private Marshaller marshaller;
+
+	@Before
+	public void before() throws Exception {
+		marshaller = JAXBContextProvider.getContext().createMarshaller();
+	}
+
+	@Test
+	public void testWritesUTF8AndIsRepeatable() throws Exception {
+		LitleOnlineRequest request = createRequest();
+		MarshallingEntity entity = new MarshallingEntity(request, marshaller);
+		ByteArrayOutputStream first = new ByteArrayOutputStream();
+		entity.writeTo(first);
+		ByteArrayOutputStream second = new ByteArrayOutputStream();
+		entity.writeTo(second);
+
+		assertTrue(first.toString("UTF-8").startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\""));
+		assertEquals(first.toString("UTF-8"), second.toString("UTF-8"));
+		LitleOnlineRequest roundTrip = (LitleOnlineRequest) JAXBContextProvider.getContext().createUnmarshaller()
+				.unmarshal(new ByteArrayInputStream(first.toByteArray()));
+		assertEquals("Caf\u00e9", ((Authorization) roundTrip.getTransaction().getValue()).getOrderId());
+		assertTrue(entity.isChunked());
+		assertEquals(-1, entity.getContentLength());
+	}
+
+	@Test
+	public void testLitleOnlineStreamsWhenConfigured() throws Exception {
+		Properties config = new Properties();
+		config.setProperty("url", "http://localhost/online");
+		config.setProperty("reportGroup", "Default Report Group");
+		config.setProperty("username", "PHXMLTEST");
+		config.setProperty("password", "password");
+		config.setProperty("merchantId", "101");
+		config.setProperty("version", "8.18");
+		config.setProperty("streamRequests", "true");
+		LitleOnline litle = new LitleOnline(config);
+		final StringBuilder sent = new StringBuilder();
+		litle.setCommunication(new Communication() {
+			@Override
+			public String requestToServer(String xmlRequest, Properties configuration) {
+				throw new AssertionError("the request should have been streamed");
+			}
+
+			@Override
+			public String requestToServer(LitleOnlineRequest request, Marshaller marshaller, Properties configuration) {
+				try {
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					new MarshallingEntity(request, marshaller).writeTo(out);
+					sent.append(out.toString("UTF-8"));
+				} catch (Exception e) {
+					throw new LitleOnlineException("unexpected", e);
+				}
+				return "<litleOnlineResponse version='8.18' response='0' message='Valid Format' xmlns='http://www.litle.com/schema'>"
+						+ "<authorizationResponse><litleTxnId>123</litleTxnId></authorizationResponse></litleOnlineResponse>";
+			}
+		});
+
+		assertEquals(123L, litle.authorize(createAuthorization()).getLitleTxnId());
+		assertTrue(sent.toString().matches("(?s).*<authorization.*<orderId>Caf\u00e9</orderId>.*</authorization>.*"));
+	}
+
+	private LitleOnlineRequest createRequest() {
+		LitleOnlineRequest request = new LitleOnlineRequest();
+		request.setMerchantId("101");
+		request.setVersion("8.18");
+		request.setTransaction(new ObjectFactory().createAuthorization(createAuthorization()));
+		return request;
+	}
+
+	private Authorization createAuthorization() {
+		Authorization authorization = new Authorization();
+		authorization.setReportGroup("Planets");
+		authorization.setOrderId("Caf\u00e9");
+		authorization.setAmount(106L);
+		authorization.setOrderSource(OrderSourceType.ECOMMERCE);
+		CardType card = new CardType();
+		card.setType(MethodOfPaymentTypeEnum.VI);
+		card.setNumber("4100000000000002");
+		card.setExpDate("1210");
+		authorization.setCard(card);
+		return authorization;
+	}
+}
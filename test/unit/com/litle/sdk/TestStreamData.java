@@ -0,0 +1,101 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class TestStreamData {
+
+	@Test
+	public void testSendsAndReceivesFilesUnchanged() throws Exception {
+		final byte[] request = filler(3 * StreamData.TRANSFER_BUFFER_SIZE / 2, "<sale><orderId>\u20ac\ud83d\ude00</orderId></sale>");
+		final byte[] response = filler(StreamData.TRANSFER_BUFFER_SIZE + 7, "<saleResponse><message>\u00e9</message></saleResponse>");
+		File requestFile = File.createTempFile("litleStreamRequest", ".xml");
+		File responseFile = File.createTempFile("litleStreamResponse", ".xml");
+		final ServerSocket server = new ServerSocket(0);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			write(requestFile, request);
+			Future<byte[]> received = executor.submit(new Callable<byte[]>() {
+				public byte[] call() throws Exception {
+					Socket connection = server.accept();
+					try {
+						InputStream in = connection.getInputStream();
+						ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+						byte[] buffer = new byte[8192];
+						while (bytes.size() < request.length) {
+							bytes.write(buffer, 0, in.read(buffer));
+						}
+						OutputStream out = connection.getOutputStream();
+						out.write(response);
+						out.flush();
+						return bytes.toByteArray();
+					} finally {
+						connection.close();
+					}
+				}
+			});
+
+			StreamData streamData = new StreamData();
+			streamData.init("localhost", String.valueOf(server.getLocalPort()), 10000, false, 256 * 1024, 256 * 1024);
+			streamData.dataOut(requestFile);
+			streamData.dataIn(responseFile);
+			streamData.closeSocket();
+
+			assertArrayEquals(request, received.get());
+			assertArrayEquals(response, read(responseFile));
+		} finally {
+			executor.shutdown();
+			server.close();
+			requestFile.delete();
+			responseFile.delete();
+		}
+	}
+
+	private static byte[] filler(int length, String text) throws Exception {
+		byte[] unit = text.getBytes("UTF-8");
+		byte[] bytes = new byte[length];
+		for (int i = 0; i < length; i++) {
+			bytes[i] = unit[i % unit.length];
+		}
+		return bytes;
+	}
+
+	private static void write(File file, byte[] bytes) throws Exception {
+		OutputStream out = new FileOutputStream(file);
+		try {
+			out.write(bytes);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static byte[] read(File file) throws Exception {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			byte[] buffer = new byte[8192];
+			int read;
+			while ((read = in.read(buffer)) != -1) {
+				bytes.write(buffer, 0, read);
+			}
+			return bytes.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+}
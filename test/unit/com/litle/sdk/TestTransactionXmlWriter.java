@@ -0,0 +1,181 @@
+package com.litle.sdk;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
+
+import javax.xml.bind.JAXBElement;
+import javax.xml.datatype.DatatypeFactory;
+
+import org.junit.Test;
+
+import com.litle.sdk.generate.AccountUpdate;
+import com.litle.sdk.generate.AuthReversal;
+import com.litle.sdk.generate.Authorization;
+import com.litle.sdk.generate.Capture;
+import com.litle.sdk.generate.CaptureGivenAuth;
+import com.litle.sdk.generate.CardTokenType;
+import com.litle.sdk.generate.CardTokenTypeAU;
+import com.litle.sdk.generate.CardType;
+import com.litle.sdk.generate.Credit;
+import com.litle.sdk.generate.EcheckCredit;
+import com.litle.sdk.generate.EcheckRedeposit;
+import com.litle.sdk.generate.EcheckSale;
+import com.litle.sdk.generate.EcheckVerification;
+import com.litle.sdk.generate.ForceCapture;
+import com.litle.sdk.generate.ObjectFactory;
+import com.litle.sdk.generate.RegisterTokenRequestType;
+import com.litle.sdk.generate.Sale;
+import com.litle.sdk.generate.UpdateCardValidationNumOnToken;
+
+/**
+ * Checks that TransactionXmlWriter writes every transaction type a batch accepts exactly as the JAXB marshaller does.
+ * Each transaction has every one of its fields, and those of the types it contains, filled in.
+ */
+public class TestTransactionXmlWriter {
+
+	private static final ObjectFactory objectFactory = new ObjectFactory();
+
+	private int counter;
+
+	@Test
+	public void testEveryTransactionTypeMatchesJaxb() throws Exception {
+		for (boolean compact : new boolean[] { false, true }) {
+			assertSameAsJaxb(objectFactory.createSale(fill(Sale.class)), compact);
+			assertSameAsJaxb(objectFactory.createAuthorization(fill(Authorization.class)), compact);
+			assertSameAsJaxb(objectFactory.createCredit(fill(Credit.class)), compact);
+			assertSameAsJaxb(objectFactory.createRegisterTokenRequest(fill(RegisterTokenRequestType.class)), compact);
+			assertSameAsJaxb(objectFactory.createCaptureGivenAuth(fill(CaptureGivenAuth.class)), compact);
+			assertSameAsJaxb(objectFactory.createForceCapture(fill(ForceCapture.class)), compact);
+			assertSameAsJaxb(objectFactory.createAuthReversal(fill(AuthReversal.class)), compact);
+			assertSameAsJaxb(objectFactory.createCapture(fill(Capture.class)), compact);
+			assertSameAsJaxb(objectFactory.createEcheckVerification(fill(EcheckVerification.class)), compact);
+			assertSameAsJaxb(objectFactory.createEcheckCredit(fill(EcheckCredit.class)), compact);
+			assertSameAsJaxb(objectFactory.createEcheckRedeposit(fill(EcheckRedeposit.class)), compact);
+			assertSameAsJaxb(objectFactory.createEcheckSale(fill(EcheckSale.class)), compact);
+			assertSameAsJaxb(objectFactory.createUpdateCardValidationNumOnToken(fill(UpdateCardValidationNumOnToken.class)), compact);
+
+			AccountUpdate withCard = fill(AccountUpdate.class);
+			withCard.setCardOrToken(objectFactory.createCard(fill(CardType.class)));
+			assertSameAsJaxb(objectFactory.createAccountUpdate(withCard), compact);
+			AccountUpdate withToken = fill(AccountUpdate.class);
+			withToken.setCardOrToken(objectFactory.createToken(fill(CardTokenType.class)));
+			assertSameAsJaxb(objectFactory.createAccountUpdate(withToken), compact);
+		}
+	}
+
+	@Test
+	public void testSparseTransactionsMatchJaxb() throws Exception {
+		Sale sale = new Sale();
+		sale.setOrderId("");
+		sale.setAmount(0L);
+		sale.setBillToAddress(new com.litle.sdk.generate.Contact());
+		sale.setCard(new CardType());
+		assertSameAsJaxb(objectFactory.createSale(sale), false);
+		assertSameAsJaxb(objectFactory.createSale(sale), true);
+		assertSameAsJaxb(objectFactory.createAccountUpdate(new AccountUpdate()), false);
+	}
+
+	@Test
+	public void testRefusesSubstitutedTypes() throws Exception {
+		AccountUpdate accountUpdate = new AccountUpdate();
+		accountUpdate.setOrderId("1");
+		CardTokenTypeAU token = new CardTokenTypeAU();
+		token.setLitleToken("1111222233334444");
+		accountUpdate.setCardOrToken(objectFactory.createToken(token));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		assertFalse(new TransactionXmlWriter(false).write(objectFactory.createAccountUpdate(accountUpdate), bytes));
+		assertEquals(0, bytes.size());
+	}
+
+	private void assertSameAsJaxb(JAXBElement<?> transaction, boolean compact) throws Exception {
+		ByteArrayOutputStream jaxb = new ByteArrayOutputStream();
+		RequestEnvelope.newFragmentMarshaller(compact).marshal(transaction, jaxb);
+
+		ByteArrayOutputStream written = new ByteArrayOutputStream();
+		assertTrue(new TransactionXmlWriter(compact).write(transaction, written));
+
+		assertEquals(jaxb.toString("UTF-8"), written.toString("UTF-8"));
+		assertArrayEquals(jaxb.toByteArray(), written.toByteArray());
+	}
+
+	/**
+	 * Builds an instance of a generated class with every field set, recursing into the complex types it holds.
+	 */
+	private <T> T fill(Class<T> type) throws Exception {
+		return fill(type, 0);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private <T> T fill(Class<T> type, int depth) throws Exception {
+		T bean = type.newInstance();
+		for (Class<?> c = type; c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.getType() == JAXBElement.class) {
+					continue;
+				}
+				field.setAccessible(true);
+				if (List.class.isAssignableFrom(field.getType())) {
+					Object itemType = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+					if (itemType instanceof Class) {
+						List items = new ArrayList();
+						for (int i = 0; i < 2; i++) {
+							Object item = value((Class<?>) itemType, depth);
+							if (item != null) {
+								items.add(item);
+							}
+						}
+						field.set(bean, items);
+					}
+				} else {
+					field.set(bean, value(field.getType(), depth));
+				}
+			}
+		}
+		return bean;
+	}
+
+	private Object value(Class<?> type, int depth) throws Exception {
+		int n = ++counter;
+		if (type == String.class) {
+			return "v" + n + " & <x> \"q\" 'a' \t\r\n\u00e9\u20ac\ud83d\ude00";
+		} else if (type == Long.class || type == long.class) {
+			return Long.valueOf(n);
+		} else if (type == Integer.class || type == int.class) {
+			return Integer.valueOf(n);
+		} else if (type == BigInteger.class) {
+			return BigInteger.valueOf(n);
+		} else if (type == BigDecimal.class) {
+			return new BigDecimal(n + ".50");
+		} else if (type == Boolean.class || type == boolean.class) {
+			return n % 2 == 0;
+		} else if (type == Calendar.class) {
+			Calendar calendar = new GregorianCalendar(TimeZone.getTimeZone("GMT"));
+			calendar.clear();
+			calendar.set(2013, Calendar.MARCH, n % 28 + 1);
+			return calendar;
+		} else if (type == javax.xml.datatype.XMLGregorianCalendar.class) {
+			return DatatypeFactory.newInstance().newXMLGregorianCalendar(2013, 3, n % 28 + 1, 10, 20, 30, 0, 0);
+		} else if (type.isEnum()) {
+			Object[] constants = type.getEnumConstants();
+			return constants[n % constants.length];
+		} else if (depth < 4 && !Modifier.isAbstract(type.getModifiers()) && type.getPackage() == Sale.class.getPackage()) {
+			return fill(type, depth + 1);
+		}
+		return null;
+	}
+
+}
@@ -7,10 +7,19 @@ import org.junit.runners.Suite;
 @Suite.SuiteClasses({
 	TestEnumerations.class,
 	TestLitleOnline.class,
+	TestLitleOnlineConcurrency.class,
+	TestLitleOnlineAsync.class,
+	TestMarshallingEntity.class,
+	TestLitleOnlineStatistics.class,
+	TestBatchStagingOutputStream.class,
 	TestLitleBatchFileRequest.class,
+	TestLitleBatchFileReconciler.class,
+	TestLitleBatchFileWriter.class,
 	TestLitleBatchRequest.class,
 	TestLitleBatchResponse.class,
-	TestLitleRFRResponse.class
+	TestLitleRFRResponse.class,
+	TestStreamData.class,
+	TestTransactionXmlWriter.class
 })
 public class UnitSuite {
 }